@@ -0,0 +1,79 @@
+package io.github.bluething.textflow.benchmark;
+
+import io.github.bluething.textflow.domain.TextContent;
+import io.github.bluething.textflow.domain.rules.UppercaseWordCountRule;
+import io.github.bluething.textflow.domain.tokenization.SmartTokenizer;
+import io.github.bluething.textflow.domain.tokenization.TokenizationConfig;
+import io.github.bluething.textflow.domain.tokenization.TokenizedText;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizer and rule throughput on about 1 MB of text in different scripts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TokenizerBenchmark {
+    private static final String ASCII_LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_";
+    private static final String LATIN1_LETTERS = "äöüßéèêçñåæøÄÖÜÉÇÑ";
+    private static final String MIXED_LETTERS = "привет日本語テキストαβγδ\u0301\u0308中文";
+    private static final String[] SEPARATORS = {" ", " ", " ", ", ", ". ", "\n", "-", "@", "."};
+
+    @Param({"ASCII", "LATIN1", "MIXED"})
+    public String script;
+
+    private String text;
+    private SmartTokenizer tokenizer;
+    private TokenizedText tokens;
+    private UppercaseWordCountRule uppercaseRule;
+    private TextContent content;
+
+    @Setup
+    public void setUp() {
+        String letters = switch (script) {
+            case "ASCII" -> ASCII_LETTERS;
+            case "LATIN1" -> ASCII_LETTERS + LATIN1_LETTERS;
+            default -> ASCII_LETTERS + LATIN1_LETTERS + MIXED_LETTERS;
+        };
+        var random = new Random(42);
+        var builder = new StringBuilder();
+        while (builder.length() < 1 << 20) {
+            int length = 1 + random.nextInt(10);
+            for (int i = 0; i < length; i++) {
+                builder.append(letters.charAt(random.nextInt(letters.length())));
+            }
+            builder.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+        }
+        text = builder.toString();
+        tokenizer = new SmartTokenizer(TokenizationConfig.defaultConfig());
+        tokens = tokenizer.tokenizeText(text);
+        uppercaseRule = new UppercaseWordCountRule();
+        content = TextContent.of(text, "bench.txt", "txt", "text/plain");
+    }
+
+    @Benchmark
+    public void lex(Blackhole blackhole) {
+        tokenizer.tokenize(text, (source, start, end, kind) -> blackhole.consume(end));
+    }
+
+    @Benchmark
+    public TokenizedText tokenizeText() {
+        return tokenizer.tokenizeText(text);
+    }
+
+    @Benchmark
+    public Object uppercaseRule() {
+        return uppercaseRule.apply(content, tokens);
+    }
+}
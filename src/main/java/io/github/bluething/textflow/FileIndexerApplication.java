@@ -4,6 +4,7 @@ import io.github.bluething.textflow.domain.FileIndexerService;
 import io.github.bluething.textflow.domain.FileIndexerServiceImpl;
 import io.github.bluething.textflow.domain.FileProcessingResult;
 import io.github.bluething.textflow.domain.IndexerConfiguration;
+import io.github.bluething.textflow.domain.rules.IndexingRuleResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,6 +12,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 public class FileIndexerApplication {
 
@@ -41,7 +43,16 @@ public class FileIndexerApplication {
             var indexerService = createIndexerService();
             var results = indexerService.processFiles(filePaths);
 
-            displayResults(results);
+            try {
+                displayResults(results);
+                if (results.size() > 1) {
+                    var totals = indexerService.aggregateResults(results);
+                    displayTotals(totals);
+                    IndexingRuleResult.closeAll(totals.values());
+                }
+            } finally {
+                results.forEach(FileProcessingResult::close);
+            }
 
             logger.info("File indexing completed successfully");
             return 0;
@@ -64,6 +75,12 @@ public class FileIndexerApplication {
 
         results.forEach(this::displaySingleResult);
     }
+    private void displayTotals(Map<String, IndexingRuleResult> totals) {
+        System.out.println("ALL FILES");
+        totals.forEach((ruleName, ruleResult) ->
+                System.out.println(STR."\{ruleName}: \{ruleResult.getDisplayValue()}"));
+        System.out.println("-".repeat(80));
+    }
     private void displaySingleResult(FileProcessingResult result) {
         if (result.isSuccess()) {
             System.out.println("File: " + result.fileName());
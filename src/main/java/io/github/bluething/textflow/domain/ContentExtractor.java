@@ -1,6 +1,7 @@
 package io.github.bluething.textflow.domain;
 
 import java.io.IOException;
+import java.nio.CharBuffer;
 import java.nio.file.Path;
 import java.util.Set;
 
@@ -20,6 +21,28 @@ public interface ContentExtractor {
      */
     TextContent extract(Path filePath, String detectedMimeType) throws IOException;
 
+    /**
+     * Pushes the text {@link #extract(Path, String)} would return to {@code sink} in
+     * decoded chunks of at most {@code chunkSize} characters. By default the file
+     * is extracted whole and then pushed in slices; see {@link #streamsInBoundedMemory()}.
+     */
+    default void extract(Path filePath, String detectedMimeType, TextChunkSink sink, int chunkSize)
+            throws IOException {
+        String content = extract(filePath, detectedMimeType).content();
+        for (int start = 0; start < content.length(); start += chunkSize) {
+            sink.accept(CharBuffer.wrap(content, start, Math.min(content.length(), start + chunkSize)));
+        }
+    }
+
+    /**
+     * Whether {@link #extract(Path, String, TextChunkSink, int)} holds only a
+     * fixed amount of the file at a time, whatever its size. This covers the
+     * extractor alone: what the rules fed by it keep comes on top.
+     */
+    default boolean streamsInBoundedMemory() {
+        return false;
+    }
+
     /**
      * Gets the file type identifier for this extractor.
      */
@@ -24,6 +24,7 @@ public class ContentExtractorRegistry {
     private void registerDefaultExtractors() {
         register(new TextContentExtractor());
         register(new HtmlContentExtractor());
+        register(new JsonContentExtractor());
     }
 
     public void register(ContentExtractor extractor) {
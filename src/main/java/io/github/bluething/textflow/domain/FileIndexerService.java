@@ -1,7 +1,10 @@
 package io.github.bluething.textflow.domain;
 
+import io.github.bluething.textflow.domain.rules.IndexingRuleResult;
+
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
 public interface FileIndexerService {
     /**
@@ -19,4 +22,13 @@ public interface FileIndexerService {
      * @return The processing result
      */
     FileProcessingResult processFile(Path filePath);
+
+    /**
+     * Combines per-file results into totals over all the files, without reading them again.
+     * The per-file results are closed once merged.
+     *
+     * @param results Results returned by this service
+     * @return Totals by rule name, for the rules whose results can be combined
+     */
+    Map<String, IndexingRuleResult> aggregateResults(List<FileProcessingResult> results);
 }
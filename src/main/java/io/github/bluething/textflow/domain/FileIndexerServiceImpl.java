@@ -1,11 +1,13 @@
 package io.github.bluething.textflow.domain;
 
+import io.github.bluething.textflow.domain.rules.IndexingRuleResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 
@@ -18,10 +20,7 @@ public class FileIndexerServiceImpl implements FileIndexerService {
 
     public FileIndexerServiceImpl(IndexerConfiguration configuration) {
         this.configuration = configuration;
-        this.fileProcessor = new FileProcessor(
-                configuration.getExtractorRegistry(),
-                configuration.getIndexingRules()
-        );
+        this.fileProcessor = new FileProcessor(configuration);
     }
 
     @Override
@@ -113,4 +112,9 @@ public class FileIndexerServiceImpl implements FileIndexerService {
     public FileProcessingResult processFile(Path filePath) {
         return processFileWithSizeCheck(filePath);
     }
+
+    @Override
+    public Map<String, IndexingRuleResult> aggregateResults(List<FileProcessingResult> results) {
+        return fileProcessor.aggregateResults(results);
+    }
 }
@@ -9,7 +9,7 @@ public record FileProcessingResult(String fileName,
                                    Map<String, IndexingRuleResult> indexingResults,
                                    String errorMessage,
                                    long processingTimeMs,
-                                   long fileSizeBytes) {
+                                   long fileSizeBytes) implements AutoCloseable {
     /**
      * Creates a successful processing result.
      */
@@ -23,4 +23,13 @@ public record FileProcessingResult(String fileName,
     public static FileProcessingResult failure(String fileName, String errorMessage, long processingTimeMs, long fileSizeBytes) {
         return new FileProcessingResult(fileName, false, Map.of(), errorMessage, processingTimeMs, fileSizeBytes);
     }
+
+    /**
+     * Deletes any temporary files behind the rule results, such as a spilled word
+     * list. The results must not be read afterwards.
+     */
+    @Override
+    public void close() {
+        IndexingRuleResult.closeAll(indexingResults.values());
+    }
 }
@@ -1,27 +1,59 @@
 package io.github.bluething.textflow.domain;
 
-import io.github.bluething.textflow.domain.rules.CountResult;
 import io.github.bluething.textflow.domain.rules.IndexingRule;
 import io.github.bluething.textflow.domain.rules.IndexingRuleResult;
+import io.github.bluething.textflow.domain.tokenization.Utf8Text;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.lang.foreign.Arena;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 public class FileProcessor {
     private static final Logger logger = LoggerFactory.getLogger(FileProcessor.class);
+    // Bytes tokenized at a time from files too large to map as one buffer
+    private static final int MAPPED_WINDOW_BYTES = 256 * 1024 * 1024;
+    // Characters pushed at a time from HTML stripped of its tags
+    private static final int STRIPPED_HTML_CHUNK = 64 * 1024;
 
     private final ContentExtractorRegistry extractorRegistry;
     private final List<IndexingRule> indexingRules;
+    private final boolean enableMemoryMapping;
+    private final int streamingBufferBytes; // 0 when files are not streamed
+    private final long fastHtmlThresholdBytes; // 0 when HTML is always parsed
+    private final HtmlContentExtractor htmlScanner; // null when HTML goes to jsoup
+    private final IndexingRuleEngine ruleEngine;
 
     public FileProcessor(ContentExtractorRegistry extractorRegistry, List<IndexingRule> indexingRules) {
+        this(extractorRegistry, indexingRules, true, 0, false, 0,
+                new IndexingRuleEngine(indexingRules, ForkJoinPool.commonPool(), null));
+    }
+
+    public FileProcessor(IndexerConfiguration configuration) {
+        this(configuration.getExtractorRegistry(), configuration.getIndexingRules(),
+                configuration.isMemoryMappingEnabled(),
+                configuration.isStreamingExtractionEnabled() ? configuration.getStreamingBufferBytes() : 0,
+                configuration.isStreamingHtmlExtractionEnabled(), configuration.getFastHtmlThresholdBytes(),
+                new IndexingRuleEngine(configuration.getIndexingRules(),
+                        configuration.isParallelTokenizationEnabled() ? ForkJoinPool.commonPool() : null,
+                        configuration.isConcurrentRulesEnabled() ? configuration.getRuleTimeout() : null));
+    }
+
+    private FileProcessor(ContentExtractorRegistry extractorRegistry, List<IndexingRule> indexingRules,
+                          boolean enableMemoryMapping, int streamingBufferBytes, boolean enableStreamingHtml,
+                          long fastHtmlThresholdBytes, IndexingRuleEngine ruleEngine) {
         this.extractorRegistry = extractorRegistry;
         this.indexingRules = List.copyOf(indexingRules);
+        this.enableMemoryMapping = enableMemoryMapping;
+        this.streamingBufferBytes = streamingBufferBytes;
+        this.fastHtmlThresholdBytes = fastHtmlThresholdBytes;
+        this.htmlScanner = enableStreamingHtml ? new HtmlContentExtractor(true) : null;
+        this.ruleEngine = ruleEngine;
     }
 
     public FileProcessingResult processFile(Path filePath) {
@@ -46,13 +78,22 @@ public class FileProcessor {
             var extractor = extractorRegistry instanceof ContentExtractorRegistry contentExtractorRegistry
                     ? contentExtractorRegistry.findExtractor(filePath)
                     : extractorRegistry.findExtractor(filePath);
+            if (htmlScanner != null && extractor instanceof HtmlContentExtractor) {
+                extractor = htmlScanner;
+            }
 
-            TextContent textContent = extractor.extract(filePath, null);
-
-            logger.debug("Extracted {} characters from {}", textContent.length(), fileName);
-
-            // Apply all indexing rules
-            Map<String, IndexingRuleResult> results = applyIndexingRules(textContent);
+            long size = fileSize;
+            Map<String, IndexingRuleResult> results = switch (extractor) {
+                case TextContentExtractor textExtractor when canTokenizeWindows(size) ->
+                        applyIndexingRulesToMappedSegment(textExtractor, filePath, size);
+                case TextContentExtractor textExtractor when canTokenizeBytes(textExtractor, size) ->
+                        applyIndexingRulesToMappedFile(textExtractor, filePath, size);
+                case HtmlContentExtractor htmlExtractor when canStripHtmlBytes(size) ->
+                        applyIndexingRulesToStrippedHtml(htmlExtractor, filePath, size);
+                case ContentExtractor streamingExtractor when canStream(streamingExtractor) ->
+                        applyIndexingRulesToStream(streamingExtractor, filePath, size);
+                default -> extractAndApplyIndexingRules(extractor, filePath);
+            };
 
             long processingTime = System.currentTimeMillis() - startTime;
             logger.debug("Successfully processed {} in {} ms", fileName, processingTime);
@@ -72,29 +113,102 @@ public class FileProcessor {
             return createFailureResult(fileName, "Unexpected error: " + e.getMessage(), startTime, fileSize);
         }
     }
-    private Map<String, IndexingRuleResult> applyIndexingRules(TextContent content) {
-        Map<String, IndexingRuleResult> results = new LinkedHashMap<>();
+    private Map<String, IndexingRuleResult> extractAndApplyIndexingRules(ContentExtractor extractor, Path filePath)
+            throws IOException {
+        TextContent textContent = extractor.extract(filePath, null);
+        logger.debug("Extracted {} characters from {}", textContent.length(), filePath.getFileName());
+        return ruleEngine.apply(textContent, textContent.content());
+    }
 
-        for (IndexingRule rule : indexingRules) {
-            try {
-                long ruleStartTime = System.currentTimeMillis();
-                IndexingRuleResult result = rule.apply(content);
-                long ruleProcessingTime = System.currentTimeMillis() - ruleStartTime;
+    /**
+     * Large text file and only token visitors: tokenize the mapped bytes without decoding them.
+     */
+    private Map<String, IndexingRuleResult> applyIndexingRulesToMappedFile(TextContentExtractor extractor,
+                                                                            Path filePath, long fileSize)
+            throws IOException {
+        Utf8Text text;
+        try {
+            text = new Utf8Text(extractor.map(filePath));
+        } catch (IOException e) {
+            logger.warn("Memory mapping failed for {}, falling back to regular extraction: {}",
+                    filePath, e.getMessage());
+            return extractAndApplyIndexingRules(extractor, filePath);
+        }
 
-                results.put(rule.getName(), result);
+        var metadata = ContentMetadata.of(null, "UTF-8", fileSize);
+        var textContent = TextContent.undecoded(filePath.getFileName().toString(),
+                extractor.getFileType(), "text/plain", metadata);
+        return ruleEngine.apply(textContent, text);
+    }
 
-                logger.debug("Applied rule '{}' in {} ms", rule.getName(), ruleProcessingTime);
+    /**
+     * Extractor that streams and only token visitors: feed the rules chunk by chunk.
+     */
+    private Map<String, IndexingRuleResult> applyIndexingRulesToStream(ContentExtractor extractor, Path filePath,
+                                                                       long fileSize) throws IOException {
+        var metadata = ContentMetadata.of(null, "UTF-8", fileSize);
+        var textContent = TextContent.undecoded(filePath.getFileName().toString(),
+                extractor.getFileType(), null, metadata);
+        // Byte buffer, char buffer and a session buffer per config, at two bytes a char
+        int chunkSize = streamingBufferBytes / 8;
+        return ruleEngine.applyToChunks(textContent, sink -> extractor.extract(filePath, null, sink, chunkSize));
+    }
 
-            } catch (Exception e) {
-                logger.error("Error applying rule '{}' to file {}: {}",
-                        rule.getName(), content.originalFileName(), e.getMessage());
+    /**
+     * Large HTML file and only token visitors: strip the tags from the mapped bytes
+     * and feed the text to the rules chunk by chunk.
+     */
+    private Map<String, IndexingRuleResult> applyIndexingRulesToStrippedHtml(HtmlContentExtractor extractor,
+                                                                             Path filePath, long fileSize)
+            throws IOException {
+        var metadata = ContentMetadata.of(null, "UTF-8", fileSize);
+        var textContent = TextContent.undecoded(filePath.getFileName().toString(),
+                extractor.getFileType(), "text/html", metadata);
+        try (Arena arena = Arena.ofConfined()) {
+            var stripper = new HtmlTagStripper(TextContentExtractor.map(filePath, arena));
+            return ruleEngine.applyToChunks(textContent, sink -> stripper.pushTo(sink, STRIPPED_HTML_CHUNK));
+        }
+    }
 
-                // Continue with other rules even if one fails
-                results.put(rule.getName(), new CountResult(0));
-            }
+    private boolean canStripHtmlBytes(long fileSize) {
+        return enableMemoryMapping
+                && fastHtmlThresholdBytes > 0
+                && fileSize >= fastHtmlThresholdBytes
+                && ruleEngine.visitsTokensOnly();
+    }
+
+    private boolean canStream(ContentExtractor extractor) {
+        return streamingBufferBytes > 0
+                && extractor.streamsInBoundedMemory()
+                && ruleEngine.visitsTokensOnly();
+    }
+
+    /**
+     * Text file too large for one buffer: tokenize a mapped segment of it a window at a time.
+     */
+    private Map<String, IndexingRuleResult> applyIndexingRulesToMappedSegment(TextContentExtractor extractor,
+                                                                               Path filePath, long fileSize)
+            throws IOException {
+        var metadata = ContentMetadata.of(null, "UTF-8", fileSize);
+        var textContent = TextContent.undecoded(filePath.getFileName().toString(),
+                extractor.getFileType(), "text/plain", metadata);
+        try (Arena arena = Arena.ofConfined()) {
+            return ruleEngine.applyToWindows(textContent, TextContentExtractor.map(filePath, arena),
+                    MAPPED_WINDOW_BYTES);
         }
+    }
+
+    private boolean canTokenizeWindows(long fileSize) {
+        return enableMemoryMapping
+                && fileSize > Integer.MAX_VALUE
+                && ruleEngine.visitsTokensOnly();
+    }
 
-        return results;
+    private boolean canTokenizeBytes(TextContentExtractor extractor, long fileSize) {
+        return enableMemoryMapping
+                && extractor.usesMemoryMapping(fileSize)
+                && fileSize <= Integer.MAX_VALUE
+                && ruleEngine.visitsTokensOnly();
     }
 
     /**
@@ -106,6 +220,22 @@ public class FileProcessor {
         return FileProcessingResult.failure(fileName, errorMessage, processingTime, fileSize);
     }
 
+    /**
+     * Combines the rule results of successfully processed files into corpus totals,
+     * for the rules whose results can be combined. The per-file results are closed
+     * once merged, deleting any files they spilled, so read them before aggregating.
+     */
+    public Map<String, IndexingRuleResult> aggregateResults(List<FileProcessingResult> results) {
+        try {
+            return ruleEngine.merge(results.stream()
+                    .filter(FileProcessingResult::isSuccess)
+                    .map(FileProcessingResult::indexingResults)
+                    .toList());
+        } finally {
+            results.forEach(FileProcessingResult::close);
+        }
+    }
+
     /**
      * Gets the list of supported file types from the extractor registry.
      */
@@ -2,10 +2,12 @@ package io.github.bluething.textflow.domain;
 
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Entities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.CharBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Set;
@@ -18,6 +20,50 @@ class HtmlContentExtractor implements ContentExtractor {
             "application/xhtml+xml"
     );
 
+    private static final int CHUNK_SIZE = 64 * 1024;
+    // Longest title or meta tag value kept while scanning
+    private static final int MAX_TITLE_LENGTH = 64 * 1024;
+    // Image alt text held back to go after the body text while scanning
+    private static final int MAX_ALT_TEXT_LENGTH = 256 * 1024;
+    // Longest tag, attribute or entity name told apart while scanning
+    private static final int MAX_NAME_LENGTH = 32;
+    private static final String CDATA_OPENING = "[CDATA[";
+    // Elements that jsoup's text() does not separate from their neighbours with a
+    // space, and script and style, which the document path removes
+    private static final Set<String> INLINE_TAGS = Set.of(
+            "a", "abbr", "acronym", "area", "b", "base", "basefont", "bdi", "bdo", "bgsound", "big", "cite",
+            "code", "command", "data", "datalist", "device", "dfn", "em", "embed", "font", "i", "iframe", "img",
+            "input", "kbd", "keygen", "label", "legend", "map", "mark", "menuitem", "meter", "nobr", "object",
+            "optgroup", "option", "output", "param", "progress", "q", "rb", "rp", "rt", "rtc", "ruby", "s",
+            "samp", "script", "select", "small", "source", "span", "strike", "strong", "style", "sub",
+            "summary", "sup", "textarea", "time", "track", "tt", "u", "var", "wbr");
+    // Elements that jsoup keeps in the head rather than starting the body
+    private static final Set<String> HEAD_TAGS = Set.of(
+            "html", "head", "base", "basefont", "bgsound", "command", "link", "meta", "title", "noframes",
+            "style", "script", "noscript", "template");
+    // Characters that numeric references to 0x80-0x9F stand for, as in windows-1252
+    private static final char[] WINDOWS_1252 = {
+            '\u20AC', '\u0081', '\u201A', '\u0192', '\u201E', '\u2026', '\u2020', '\u2021',
+            '\u02C6', '\u2030', '\u0160', '\u2039', '\u0152', '\u008D', '\u017D', '\u008F',
+            '\u0090', '\u2018', '\u2019', '\u201C', '\u201D', '\u2022', '\u2013', '\u2014',
+            '\u02DC', '\u2122', '\u0161', '\u203A', '\u0153', '\u009D', '\u017E', '\u0178'};
+
+    private final boolean streaming;
+
+    HtmlContentExtractor() {
+        this(false);
+    }
+
+    /**
+     * With {@code streaming} set the file is scanned in one pass, holding only fixed
+     * buffers, instead of being parsed into a jsoup {@code Document}. Well-formed
+     * documents give the same text; the scanner does not apply all of the HTML5
+     * tree building rules to broken markup.
+     */
+    HtmlContentExtractor(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     @Override
     public boolean canHandle(Path filePath, String detectedMimeType) {
         return switch (detectedMimeType) {
@@ -33,11 +79,9 @@ class HtmlContentExtractor implements ContentExtractor {
     @Override
     public TextContent extract(Path filePath, String detectedMimeType) throws IOException {
         try {
-            String htmlContent = Files.readString(filePath);
-            var doc = Jsoup.parse(htmlContent);
-
-            // Enhanced extraction using pattern matching
-            var extractionResult = extractContentFromDocument(doc);
+            var extractionResult = streaming
+                    ? scanDocument(filePath)
+                    : extractContentFromDocument(Jsoup.parse(Files.readString(filePath)));
 
             long fileSize = Files.size(filePath);
             ContentMetadata metadata = ContentMetadata.of(
@@ -56,6 +100,37 @@ class HtmlContentExtractor implements ContentExtractor {
         }
     }
 
+    /**
+     * Pushes the text {@link #extract(Path, String)} would return in chunks. In
+     * streaming mode the title and meta tags, which go to the metadata, are skipped.
+     */
+    @Override
+    public void extract(Path filePath, String detectedMimeType, TextChunkSink sink, int chunkSize)
+            throws IOException {
+        if (!streaming) {
+            ContentExtractor.super.extract(filePath, detectedMimeType, sink, chunkSize);
+            return;
+        }
+        var scanner = new Scanner(sink, chunkSize);
+        TextContentExtractor.decodeUtf8(filePath, chunkSize, scanner::scan);
+        scanner.finish();
+    }
+
+    @Override
+    public boolean streamsInBoundedMemory() {
+        return streaming;
+    }
+
+    private HtmlExtractionResult scanDocument(Path filePath) throws IOException {
+        var text = new StringBuilder();
+        var scanner = new Scanner(text::append, CHUNK_SIZE);
+        TextContentExtractor.decodeUtf8(filePath, CHUNK_SIZE, scanner::scan);
+        scanner.finish();
+        String title = scanner.title.toString().strip();
+        return new HtmlExtractionResult(text.toString(), title.isEmpty() ? null : title,
+                scanner.description.toString(), scanner.keywords.toString());
+    }
+
     private HtmlExtractionResult extractContentFromDocument(Document doc) {
         String title = doc.title().isBlank() ? null : doc.title();
 
@@ -127,6 +202,511 @@ class HtmlContentExtractor implements ContentExtractor {
             String keywords
     ) {}
 
+    /**
+     * Push scanner over the decoded characters of one document. Body text, with
+     * entities decoded and whitespace collapsed as jsoup's {@code text()} does, goes
+     * to a fixed output buffer, followed by image alt text. Script and style bodies,
+     * comments and other markup are skipped; the first title in the head and the
+     * description and keywords meta tags are collected, up to a fixed length, as is
+     * the alt text. Alt text past that length stays where its image is.
+     */
+    private static final class Scanner {
+        private enum State {
+            TEXT, TAG_OPEN, TAG_NAME, ATTRIBUTES, ATTRIBUTE_NAME, AFTER_ATTRIBUTE_NAME, BEFORE_VALUE,
+            QUOTED_VALUE, UNQUOTED_VALUE, MARKUP, COMMENT_START, COMMENT, BOGUS_COMMENT, CDATA_START, CDATA,
+            RAW_TEXT, ENTITY
+        }
+
+        private final TextChunkSink sink;
+        private final CharBuffer out;
+        final StringBuilder title = new StringBuilder();
+        final StringBuilder description = new StringBuilder();
+        final StringBuilder keywords = new StringBuilder();
+        private final StringBuilder altText = new StringBuilder();
+
+        private State state = State.TEXT;
+        private State entityReturn;
+        private final StringBuilder entity = new StringBuilder(MAX_NAME_LENGTH);
+        private final StringBuilder tagName = new StringBuilder(MAX_NAME_LENGTH);
+        private final StringBuilder attributeName = new StringBuilder(MAX_NAME_LENGTH);
+        private final StringBuilder metaName = new StringBuilder(MAX_NAME_LENGTH);
+        private final StringBuilder metaContent = new StringBuilder();
+        private boolean closing;
+        private char quote;
+        private int dashes; // also the brackets seen, in a CDATA section
+        private boolean inAlt;
+        private boolean altInline;
+        private boolean inMetaName;
+        private boolean inMetaContent;
+
+        // Element whose body is raw text (script, style, title, textarea, or noscript
+        // and noframes in the head), and how much of its end tag has been seen
+        private String rawTag;
+        private int rawMatched;
+        private boolean inTitle;
+        private boolean titleSeen;
+        private boolean inBody;
+
+        private boolean pendingSpace;
+        private boolean emittedAny;
+
+        Scanner(TextChunkSink sink, int chunkSize) {
+            this.sink = sink;
+            this.out = CharBuffer.allocate(chunkSize);
+        }
+
+        void scan(CharBuffer chars) throws IOException {
+            while (chars.hasRemaining()) {
+                next(chars.get());
+            }
+        }
+
+        void finish() throws IOException {
+            if (state == State.ENTITY) {
+                resolveEntity(false);
+            }
+            pendingSpace = true;
+            for (int i = 0; i < altText.length(); i++) {
+                text(altText.charAt(i));
+            }
+            flush();
+        }
+
+        private void next(char c) throws IOException {
+            switch (state) {
+                case TEXT -> {
+                    if (c == '<') {
+                        state = State.TAG_OPEN;
+                    } else if (c == '&') {
+                        startEntity(State.TEXT);
+                    } else {
+                        text(c);
+                    }
+                }
+                case TAG_OPEN -> {
+                    if (c == '/') {
+                        closing = true;
+                        tagName.setLength(0);
+                        state = State.TAG_NAME;
+                    } else if (c == '!') {
+                        state = State.MARKUP;
+                    } else if (c == '?') {
+                        state = State.BOGUS_COMMENT;
+                    } else if (isAsciiLetter(c)) {
+                        closing = false;
+                        tagName.setLength(0);
+                        appendName(tagName, c);
+                        state = State.TAG_NAME;
+                    } else {
+                        state = State.TEXT;
+                        text('<');
+                        next(c);
+                    }
+                }
+                case TAG_NAME -> {
+                    if (isWhitespace(c) || c == '/') {
+                        state = State.ATTRIBUTES;
+                    } else if (c == '>') {
+                        endTag();
+                    } else {
+                        appendName(tagName, c);
+                    }
+                }
+                case ATTRIBUTES -> {
+                    if (c == '>') {
+                        endTag();
+                    } else if (!isWhitespace(c) && c != '/') {
+                        attributeName.setLength(0);
+                        appendName(attributeName, c);
+                        state = State.ATTRIBUTE_NAME;
+                    }
+                }
+                case ATTRIBUTE_NAME -> {
+                    if (c == '=') {
+                        state = State.BEFORE_VALUE;
+                    } else if (isWhitespace(c)) {
+                        state = State.AFTER_ATTRIBUTE_NAME;
+                    } else if (c == '>') {
+                        endTag();
+                    } else if (c == '/') {
+                        state = State.ATTRIBUTES;
+                    } else {
+                        appendName(attributeName, c);
+                    }
+                }
+                case AFTER_ATTRIBUTE_NAME -> {
+                    if (c == '=') {
+                        state = State.BEFORE_VALUE;
+                    } else if (!isWhitespace(c)) {
+                        state = State.ATTRIBUTES;
+                        next(c);
+                    }
+                }
+                case BEFORE_VALUE -> {
+                    if (c == '"' || c == '\'') {
+                        quote = c;
+                        startValue();
+                        state = State.QUOTED_VALUE;
+                    } else if (c == '>') {
+                        endTag();
+                    } else if (!isWhitespace(c)) {
+                        startValue();
+                        state = State.UNQUOTED_VALUE;
+                        next(c);
+                    }
+                }
+                case QUOTED_VALUE -> {
+                    if (c == quote) {
+                        endValue();
+                        state = State.ATTRIBUTES;
+                    } else if (c == '&') {
+                        startEntity(State.QUOTED_VALUE);
+                    } else {
+                        value(c);
+                    }
+                }
+                case UNQUOTED_VALUE -> {
+                    if (isWhitespace(c)) {
+                        endValue();
+                        state = State.ATTRIBUTES;
+                    } else if (c == '>') {
+                        endValue();
+                        endTag();
+                    } else if (c == '&') {
+                        startEntity(State.UNQUOTED_VALUE);
+                    } else {
+                        value(c);
+                    }
+                }
+                case MARKUP -> {
+                    dashes = 1;
+                    state = switch (c) {
+                        case '-' -> State.COMMENT_START;
+                        case '[' -> State.CDATA_START;
+                        case '>' -> State.TEXT;
+                        default -> State.BOGUS_COMMENT;
+                    };
+                }
+                case CDATA_START -> {
+                    // dashes counts the characters of "[CDATA[" matched so far
+                    if (c == CDATA_OPENING.charAt(dashes)) {
+                        if (++dashes == CDATA_OPENING.length()) {
+                            dashes = 0;
+                            state = State.CDATA;
+                        }
+                    } else {
+                        state = c == '>' ? State.TEXT : State.BOGUS_COMMENT;
+                    }
+                }
+                case CDATA -> {
+                    if (c == ']') {
+                        dashes++;
+                    } else {
+                        boolean end = c == '>' && dashes >= 2;
+                        for (int i = end ? 2 : 0; i < dashes; i++) {
+                            text(']');
+                        }
+                        dashes = 0;
+                        if (end) {
+                            state = State.TEXT;
+                        } else {
+                            text(c);
+                        }
+                    }
+                }
+                case COMMENT_START -> {
+                    // Count the opening dashes, so that <!--> and <!---> end at once
+                    dashes = 2;
+                    state = c == '-' ? State.COMMENT : c == '>' ? State.TEXT : State.BOGUS_COMMENT;
+                }
+                case COMMENT -> {
+                    if (c == '>' && dashes >= 2) {
+                        state = State.TEXT;
+                    }
+                    dashes = c == '-' ? dashes + 1 : 0;
+                }
+                case BOGUS_COMMENT -> {
+                    if (c == '>') {
+                        state = State.TEXT;
+                    }
+                }
+                case RAW_TEXT -> rawText(c);
+                case ENTITY -> {
+                    if (c == ';') {
+                        resolveEntity(true);
+                    } else if ((Character.isLetterOrDigit(c) || c == '#') && entity.length() < MAX_NAME_LENGTH) {
+                        entity.append(c);
+                    } else {
+                        resolveEntity(false);
+                        next(c);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Handles a start or end tag once its name and attributes are read.
+         */
+        private void endTag() throws IOException {
+            state = State.TEXT;
+            String name = tagName.toString();
+            if (!closing) {
+                inBody |= !HEAD_TAGS.contains(name);
+                switch (name) {
+                    case "script", "style", "textarea" -> startRawText(name);
+                    case "noscript", "noframes" -> {
+                        if (!inBody) {
+                            startRawText(name);
+                        }
+                    }
+                    case "title" -> {
+                        startRawText(name);
+                        inTitle = !inBody && !titleSeen;
+                        titleSeen |= inTitle;
+                    }
+                    case "meta" -> endMeta();
+                    default -> { }
+                }
+            } else {
+                inBody |= name.equals("body") || name.equals("html") || name.equals("br");
+            }
+            if (name.equals("br") || !INLINE_TAGS.contains(name)) {
+                pendingSpace = true;
+            }
+            metaName.setLength(0);
+            metaContent.setLength(0);
+        }
+
+        private void startRawText(String name) {
+            rawTag = name;
+            rawMatched = 0;
+            state = State.RAW_TEXT;
+        }
+
+        /**
+         * Skips or passes on raw text, watching for the element's end tag.
+         */
+        private void rawText(char c) throws IOException {
+            int endTagLength = rawTag.length() + 2;
+            if (rawMatched == endTagLength) {
+                if (isWhitespace(c) || c == '/' || c == '>') {
+                    closing = true;
+                    tagName.setLength(0);
+                    tagName.append(rawTag);
+                    inTitle = false;
+                    state = State.TAG_NAME;
+                    next(c);
+                    return;
+                }
+                replayRaw(rawMatched);
+                rawMatched = 0;
+            }
+            if (rawMatched == 1 && rawTag.equals("title") && isAsciiLetter(c)) {
+                // Like jsoup, end a title left open at the next start tag
+                rawMatched = 0;
+                inTitle = false;
+                state = State.TAG_OPEN;
+                next(c);
+                return;
+            }
+            char expected = rawMatched == 0 ? '<' : rawMatched == 1 ? '/' : rawTag.charAt(rawMatched - 2);
+            if (Character.toLowerCase(c) == expected) {
+                rawMatched++;
+                return;
+            }
+            if (rawMatched > 0) {
+                replayRaw(rawMatched);
+                rawMatched = 0;
+                if (c == '<') {
+                    rawMatched = 1;
+                    return;
+                }
+            }
+            if (c == '&' && (rawTag.equals("title") || rawTag.equals("textarea"))) {
+                startEntity(State.RAW_TEXT);
+            } else {
+                rawChar(c);
+            }
+        }
+
+        private void replayRaw(int length) throws IOException {
+            rawChar('<');
+            if (length > 1) {
+                rawChar('/');
+            }
+            for (int i = 2; i < length; i++) {
+                rawChar(rawTag.charAt(i - 2));
+            }
+        }
+
+        private void rawChar(char c) throws IOException {
+            if (inTitle) {
+                if (title.length() < MAX_TITLE_LENGTH) {
+                    if (!isWhitespace(c)) {
+                        title.append(c);
+                    } else if (!title.isEmpty() && title.charAt(title.length() - 1) != ' ') {
+                        title.append(' ');
+                    }
+                }
+            } else if (rawTag.equals("textarea") || (rawTag.equals("title") && inBody)) {
+                text(c);
+            }
+        }
+
+        private void startValue() {
+            boolean meta = "meta".contentEquals(tagName);
+            inAlt = "alt".contentEquals(attributeName) && "img".contentEquals(tagName);
+            inMetaName = meta && "name".contentEquals(attributeName);
+            inMetaContent = meta && "content".contentEquals(attributeName);
+            if (inAlt) {
+                altInline = altText.length() >= MAX_ALT_TEXT_LENGTH;
+                if (altInline) {
+                    pendingSpace = true;
+                } else {
+                    altText.append(' ');
+                }
+            }
+        }
+
+        private void value(char c) throws IOException {
+            if (inAlt) {
+                if (altInline) {
+                    text(c);
+                } else {
+                    altText.append(c);
+                }
+            } else if (inMetaName && metaName.length() < MAX_NAME_LENGTH) {
+                metaName.append(c);
+            } else if (inMetaContent && metaContent.length() < MAX_TITLE_LENGTH) {
+                metaContent.append(c);
+            }
+        }
+
+        private void endValue() {
+            if (inAlt && altInline) {
+                pendingSpace = true;
+            }
+            inAlt = false;
+            inMetaName = false;
+            inMetaContent = false;
+        }
+
+        private void endMeta() {
+            String name = metaName.toString().strip();
+            if (name.equalsIgnoreCase("description") && description.isEmpty()) {
+                description.append(metaContent);
+            } else if (name.equalsIgnoreCase("keywords") && keywords.isEmpty()) {
+                keywords.append(metaContent);
+            }
+        }
+
+        private void startEntity(State returnTo) {
+            entityReturn = returnTo;
+            entity.setLength(0);
+            state = State.ENTITY;
+        }
+
+        /**
+         * Decodes the entity just read, or passes it on as written if it is not one.
+         */
+        private void resolveEntity(boolean terminated) throws IOException {
+            state = entityReturn;
+            String name = entity.toString();
+            boolean inAttribute = state != State.TEXT && state != State.RAW_TEXT;
+            String decoded = decodeEntity(name, terminated, inAttribute);
+            String passOn = decoded != null ? decoded : "&" + name + (terminated ? ";" : "");
+            for (int i = 0; i < passOn.length(); i++) {
+                char c = passOn.charAt(i);
+                switch (state) {
+                    case TEXT -> text(c);
+                    case RAW_TEXT -> rawChar(c);
+                    default -> value(c);
+                }
+            }
+        }
+
+        private void text(char c) throws IOException {
+            if (isWhitespace(c) || c == '\u00A0') {
+                pendingSpace = true;
+                return;
+            }
+            inBody = true;
+            if (pendingSpace && emittedAny) {
+                put(' ');
+            }
+            pendingSpace = false;
+            emittedAny = true;
+            put(c);
+        }
+
+        private void put(char c) throws IOException {
+            if (!out.hasRemaining()) {
+                flush();
+            }
+            out.put(c);
+        }
+
+        private void flush() throws IOException {
+            out.flip();
+            if (out.hasRemaining()) {
+                sink.accept(out);
+            }
+            out.clear();
+        }
+
+        private static void appendName(StringBuilder name, char c) {
+            if (name.length() < MAX_NAME_LENGTH) {
+                name.append(Character.toLowerCase(c));
+            }
+        }
+
+        private static boolean isAsciiLetter(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+        }
+
+        private static boolean isWhitespace(char c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+        }
+    }
+
+    /**
+     * The text that replaces a character reference, given what follows its
+     * {@code &} (such as {@code amp} or {@code #x41}) and whether a {@code ;} ended
+     * it, or null if it stays as written. As in jsoup, a reference may decode only
+     * its leading digits or legacy entity name, with the rest passed on as text,
+     * though not in an attribute value.
+     */
+    static String decodeEntity(String name, boolean terminated, boolean inAttribute) {
+        String semicolon = terminated ? ";" : "";
+        if (name.startsWith("#")) {
+            boolean hex = name.length() > 1 && (name.charAt(1) == 'x' || name.charAt(1) == 'X');
+            int start = hex ? 2 : 1;
+            int end = start;
+            long codePoint = 0;
+            for (; end < name.length() && Character.digit(name.charAt(end), hex ? 16 : 10) >= 0; end++) {
+                codePoint = Math.min(codePoint * (hex ? 16 : 10) + Character.digit(name.charAt(end), hex ? 16 : 10),
+                        Character.MAX_CODE_POINT + 1L);
+            }
+            if (end == start) {
+                return null;
+            }
+            String decoded = codePoint > Character.MAX_CODE_POINT ? "\uFFFD"
+                    : codePoint >= 0x80 && codePoint <= 0x9F ? String.valueOf(WINDOWS_1252[(int) codePoint - 0x80])
+                    : Character.toString((int) codePoint);
+            return end == name.length() ? decoded : decoded + name.substring(end) + semicolon;
+        }
+        if (Entities.isNamedEntity(name) && (terminated || Entities.isBaseNamedEntity(name))) {
+            return Entities.getByName(name);
+        }
+        for (int length = name.length() - 1; length > 1 && !inAttribute; length--) {
+            String prefix = name.substring(0, length);
+            if (Entities.isBaseNamedEntity(prefix)) {
+                return Entities.getByName(prefix) + name.substring(length) + semicolon;
+            }
+        }
+        return null;
+    }
+
     @Override
     public String getFileType() {
         return "HTML";
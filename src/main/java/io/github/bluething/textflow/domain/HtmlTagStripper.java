@@ -0,0 +1,335 @@
+package io.github.bluething.textflow.domain;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Strips the markup from UTF-8 encoded HTML, such as a mapped file, working on its
+ * bytes. Tags, comments and declarations are dropped, as are the bodies of script,
+ * style and title elements. Text is decoded straight into a fixed buffer, with
+ * entities decoded where they are met, and pushed out a chunk at a time.
+ * <p>
+ * Unlike {@link HtmlContentExtractor} there are no HTML5 recovery rules: every tag
+ * but a few inline ones separates words, a quote in a tag runs to the matching
+ * quote, and alt text and meta tags are not extracted. It suits large,
+ * machine-generated markup. Not thread-safe.
+ */
+final class HtmlTagStripper {
+    private static final char REPLACEMENT = '\uFFFD';
+    private static final int MAX_ENTITY_LENGTH = 32;
+    private static final byte[] SCRIPT = ascii("script");
+    private static final byte[] STYLE = ascii("style");
+    private static final byte[] TITLE = ascii("title");
+    // Formatting elements that do not separate the words around them
+    private static final byte[][] INLINE_TAGS = Stream.of(
+                    "a", "abbr", "b", "bdi", "bdo", "big", "cite", "code", "data", "dfn", "em", "font", "i",
+                    "kbd", "mark", "nobr", "q", "s", "samp", "small", "span", "strike", "strong", "sub", "sup",
+                    "time", "tt", "u", "var")
+            .map(HtmlTagStripper::ascii)
+            .toArray(byte[][]::new);
+
+    private final MemorySegment html;
+    private final long length;
+    private final byte[] tagName = new byte[16];
+    private int tagNameLength;
+    private final char[] entity = new char[MAX_ENTITY_LENGTH];
+    private TextChunkSink sink;
+    private CharBuffer out;
+
+    HtmlTagStripper(MemorySegment html) {
+        this.html = html;
+        this.length = html.byteSize();
+    }
+
+    /**
+     * Pushes the text of the whole document to {@code sink} in chunks of at most
+     * {@code chunkSize} characters.
+     */
+    void pushTo(TextChunkSink sink, int chunkSize) throws IOException {
+        this.sink = sink;
+        this.out = CharBuffer.allocate(chunkSize);
+        long position = 0;
+        while (position < length) {
+            position = switch (at(position)) {
+                case '<' -> markup(position);
+                case '&' -> entity(position);
+                default -> text(position, length, true);
+            };
+        }
+        flush();
+    }
+
+    /**
+     * Decodes text from {@code start} up to {@code end}, or up to the next tag or
+     * entity when {@code markup} is set.
+     */
+    private long text(long start, long end, boolean markup) throws IOException {
+        long position = start;
+        while (position < end) {
+            byte b = at(position);
+            if (markup && (b == '<' || b == '&')) {
+                break;
+            }
+            if (b >= 0) {
+                put((char) b);
+                position++;
+            } else {
+                position = decode(position);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Skips the tag, comment or declaration at {@code start}, and the body of a
+     * script, style or title element.
+     */
+    private long markup(long start) throws IOException {
+        if (startsWith(start, "<!--")) {
+            // <!--> and <!---> are empty comments
+            if (startsWith(start + 4, ">")) {
+                return start + 5;
+            }
+            if (startsWith(start + 4, "->")) {
+                return start + 6;
+            }
+            return skipPast(start + 4, "-->");
+        }
+        if (startsWith(start, "<![CDATA[")) {
+            long end = indexOf(start + 9, "]]>");
+            text(start + 9, end, false);
+            return Math.min(length, end + 3);
+        }
+        if (startsWith(start, "<!") || startsWith(start, "<?")) {
+            return skipPast(start + 2, ">");
+        }
+
+        boolean closing = start + 1 < length && at(start + 1) == '/';
+        long position = closing ? start + 2 : start + 1;
+        if (position >= length || !isAsciiLetter(at(position))) {
+            put('<');
+            return start + 1;
+        }
+        tagNameLength = 0;
+        for (; position < length && isNameByte(at(position)); position++) {
+            if (tagNameLength < tagName.length) {
+                tagName[tagNameLength++] = toLowerCase(at(position));
+            }
+        }
+        position = tagEnd(position);
+
+        if (!isInlineTag()) {
+            put(' ');
+        }
+        if (!closing && (tagNameIs(SCRIPT) || tagNameIs(STYLE) || tagNameIs(TITLE))) {
+            return skipRawText(position);
+        }
+        return position;
+    }
+
+    /**
+     * The position after the {@code >} that ends a tag, skipping quoted values.
+     */
+    private long tagEnd(long position) {
+        while (position < length) {
+            byte b = at(position);
+            if (b == '>') {
+                return position + 1;
+            }
+            if (b == '"' || b == '\'') {
+                position = indexOf(position + 1, b);
+            }
+            position++;
+        }
+        return length;
+    }
+
+    /**
+     * Skips to the end tag of the element named in {@link #tagName}.
+     */
+    private long skipRawText(long position) {
+        while ((position = indexOf(position, (byte) '<')) < length) {
+            long name = position + 2;
+            if (name + tagNameLength <= length && at(position + 1) == '/' && nameMatches(name)) {
+                long after = name + tagNameLength;
+                if (after == length || isTagNameEnd(at(after))) {
+                    return tagEnd(after);
+                }
+            }
+            position++;
+        }
+        return length;
+    }
+
+    /**
+     * Decodes the entity at {@code start}, or passes the {@code &} on as text if
+     * there is none.
+     */
+    private long entity(long start) throws IOException {
+        long position = start + 1;
+        int nameLength = 0;
+        while (position < length && nameLength < MAX_ENTITY_LENGTH && isEntityByte(at(position))) {
+            entity[nameLength++] = (char) at(position++);
+        }
+        boolean terminated = position < length && at(position) == ';';
+        String decoded = nameLength == 0 ? null
+                : HtmlContentExtractor.decodeEntity(new String(entity, 0, nameLength), terminated, false);
+        if (decoded == null) {
+            put('&');
+            return start + 1;
+        }
+        for (int i = 0; i < decoded.length(); i++) {
+            put(decoded.charAt(i));
+        }
+        return terminated ? position + 1 : position;
+    }
+
+    /**
+     * Decodes the multibyte sequence at {@code position}, or one replacement
+     * character for a malformed one, and returns the position after it.
+     */
+    private long decode(long position) throws IOException {
+        int lead = at(position) & 0xFF;
+        int sequenceLength;
+        int codePoint;
+        int min;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            sequenceLength = 2;
+            codePoint = lead & 0x1F;
+            min = 0x80;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            sequenceLength = 3;
+            codePoint = lead & 0x0F;
+            min = 0x800;
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            sequenceLength = 4;
+            codePoint = lead & 0x07;
+            min = 0x10000;
+        } else {
+            put(REPLACEMENT);
+            return position + 1;
+        }
+
+        for (int i = 1; i < sequenceLength; i++) {
+            if (position + i >= length || (at(position + i) & 0xC0) != 0x80) {
+                put(REPLACEMENT);
+                return position + i;
+            }
+            codePoint = (codePoint << 6) | (at(position + i) & 0x3F);
+        }
+        boolean surrogate = codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE;
+        if (codePoint < min || surrogate || codePoint > Character.MAX_CODE_POINT) {
+            put(REPLACEMENT);
+        } else if (codePoint < 0x10000) {
+            put((char) codePoint);
+        } else {
+            put(Character.highSurrogate(codePoint));
+            put(Character.lowSurrogate(codePoint));
+        }
+        return position + sequenceLength;
+    }
+
+    private void put(char c) throws IOException {
+        if (!out.hasRemaining()) {
+            flush();
+        }
+        out.put(c);
+    }
+
+    private void flush() throws IOException {
+        out.flip();
+        if (out.hasRemaining()) {
+            sink.accept(out);
+        }
+        out.clear();
+    }
+
+    private byte at(long position) {
+        return html.get(ValueLayout.JAVA_BYTE, position);
+    }
+
+    private boolean startsWith(long position, String prefix) {
+        if (position + prefix.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (at(position + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The position of {@code b} at or after {@code position}, or the length.
+     */
+    private long indexOf(long position, byte b) {
+        while (position < length && at(position) != b) {
+            position++;
+        }
+        return position;
+    }
+
+    private long indexOf(long position, String terminator) {
+        while ((position = indexOf(position, (byte) terminator.charAt(0))) < length
+                && !startsWith(position, terminator)) {
+            position++;
+        }
+        return position;
+    }
+
+    private long skipPast(long position, String terminator) {
+        return Math.min(length, indexOf(position, terminator) + terminator.length());
+    }
+
+    private boolean nameMatches(long position) {
+        for (int i = 0; i < tagNameLength; i++) {
+            if (toLowerCase(at(position + i)) != tagName[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean tagNameIs(byte[] name) {
+        return Arrays.equals(tagName, 0, tagNameLength, name, 0, name.length);
+    }
+
+    private boolean isInlineTag() {
+        for (byte[] inline : INLINE_TAGS) {
+            if (tagNameIs(inline)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTagNameEnd(byte b) {
+        return b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+    }
+
+    private static boolean isNameByte(byte b) {
+        return isAsciiLetter(b) || (b >= '0' && b <= '9') || b == '-' || b == ':';
+    }
+
+    private static boolean isEntityByte(byte b) {
+        return isAsciiLetter(b) || (b >= '0' && b <= '9') || b == '#';
+    }
+
+    private static boolean isAsciiLetter(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+
+    private static byte toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static byte[] ascii(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -5,6 +5,7 @@ import io.github.bluething.textflow.domain.rules.LongWordsRule;
 import io.github.bluething.textflow.domain.rules.UppercaseWordCountRule;
 import io.github.bluething.textflow.domain.tokenization.TokenizationConfig;
 
+import java.time.Duration;
 import java.util.List;
 
 public class IndexerConfiguration {
@@ -15,6 +16,13 @@ public class IndexerConfiguration {
     private final TokenizationConfig tokenizationConfig;
     private final boolean enableVirtualThreads;
     private final boolean enableMemoryMapping;
+    private final boolean enableParallelTokenization;
+    private final boolean enableConcurrentRules;
+    private final Duration ruleTimeout;
+    private final boolean enableStreamingExtraction;
+    private final int streamingBufferBytes;
+    private final boolean enableStreamingHtmlExtraction;
+    private final long fastHtmlThresholdBytes;
 
     public static IndexerConfiguration defaultConfiguration() {
         return new Builder()
@@ -24,6 +32,7 @@ public class IndexerConfiguration {
                 .withTokenizationConfig(TokenizationConfig.defaultConfig())
                 .withVirtualThreads(true)
                 .withMemoryMapping(true)
+                .withParallelTokenization(true)
                 .withMaxConcurrentFiles(0) // Unlimited with virtual threads
                 .withMaxFileSizeBytes(1024L * 1024L * 1024L) // 1GB max file size
                 .build();
@@ -37,6 +46,13 @@ public class IndexerConfiguration {
         this.tokenizationConfig = builder.tokenizationConfig;
         this.enableVirtualThreads = builder.enableVirtualThreads;
         this.enableMemoryMapping = builder.enableMemoryMapping;
+        this.enableParallelTokenization = builder.enableParallelTokenization;
+        this.enableConcurrentRules = builder.enableConcurrentRules;
+        this.ruleTimeout = builder.ruleTimeout;
+        this.enableStreamingExtraction = builder.enableStreamingExtraction;
+        this.streamingBufferBytes = builder.streamingBufferBytes;
+        this.enableStreamingHtmlExtraction = builder.enableStreamingHtmlExtraction;
+        this.fastHtmlThresholdBytes = builder.fastHtmlThresholdBytes;
 
         // Apply tokenization config to all rules that support it
         this.indexingRules.forEach(rule -> rule.setTokenizationConfig(this.tokenizationConfig));
@@ -50,6 +66,13 @@ public class IndexerConfiguration {
         private TokenizationConfig tokenizationConfig = TokenizationConfig.defaultConfig();
         private boolean enableVirtualThreads = true;
         private boolean enableMemoryMapping = true;
+        private boolean enableParallelTokenization = true;
+        private boolean enableConcurrentRules = false;
+        private Duration ruleTimeout = Duration.ofMinutes(5);
+        private boolean enableStreamingExtraction = false;
+        private int streamingBufferBytes = 1024 * 1024; // 1MB
+        private boolean enableStreamingHtmlExtraction = false;
+        private long fastHtmlThresholdBytes = 0; // Off
 
         public Builder addIndexingRule(IndexingRule rule) {
             this.indexingRules = new java.util.ArrayList<>(this.indexingRules);
@@ -82,6 +105,78 @@ public class IndexerConfiguration {
             return this;
         }
 
+        /**
+         * Lets a single large file be tokenized in chunks on the common ForkJoinPool.
+         */
+        public Builder withParallelTokenization(boolean enable) {
+            this.enableParallelTokenization = enable;
+            return this;
+        }
+
+        /**
+         * Runs the rules for one file concurrently, each on its own virtual thread,
+         * instead of one after another.
+         */
+        public Builder withConcurrentRules(boolean enable) {
+            this.enableConcurrentRules = enable;
+            return this;
+        }
+
+        /**
+         * How long concurrent rules may take on one file before their results are
+         * given up on and replaced by a zero count.
+         */
+        public Builder withRuleTimeout(Duration ruleTimeout) {
+            if (ruleTimeout.isNegative() || ruleTimeout.isZero()) {
+                throw new IllegalArgumentException("Rule timeout must be positive");
+            }
+            this.ruleTimeout = ruleTimeout;
+            return this;
+        }
+
+        /**
+         * Decodes and tokenizes files a chunk at a time instead of reading them whole,
+         * for extractors that support it and rules that all visit tokens.
+         */
+        public Builder withStreamingExtraction(boolean enable) {
+            this.enableStreamingExtraction = enable;
+            return this;
+        }
+
+        /**
+         * Heap for the decoding and tokenizing buffers of one streamed file. Rule
+         * state, such as the words a rule collects, comes on top.
+         */
+        public Builder withStreamingBufferBytes(int streamingBufferBytes) {
+            if (streamingBufferBytes < 8 * 1024) {
+                throw new IllegalArgumentException("Streaming buffer must be at least 8 KB");
+            }
+            this.streamingBufferBytes = streamingBufferBytes;
+            return this;
+        }
+
+        /**
+         * Scans HTML files in one pass with fixed buffers instead of parsing them into
+         * a jsoup document. Broken markup may give slightly different text.
+         */
+        public Builder withStreamingHtmlExtraction(boolean enable) {
+            this.enableStreamingHtmlExtraction = enable;
+            return this;
+        }
+
+        /**
+         * HTML files of at least this size have their tags stripped straight from the
+         * mapped bytes, without HTML5 parsing, when every rule works on tokens.
+         * Smaller files are parsed as usual. 0 turns the fast path off.
+         */
+        public Builder withFastHtmlThresholdBytes(long fastHtmlThresholdBytes) {
+            if (fastHtmlThresholdBytes < 0) {
+                throw new IllegalArgumentException("Fast HTML threshold cannot be negative");
+            }
+            this.fastHtmlThresholdBytes = fastHtmlThresholdBytes;
+            return this;
+        }
+
         public Builder withMaxConcurrentFiles(int maxConcurrentFiles) {
             if (maxConcurrentFiles < 0) {
                 throw new IllegalArgumentException("Max concurrent files cannot be negative");
@@ -114,4 +209,12 @@ public class IndexerConfiguration {
     public ContentExtractorRegistry getExtractorRegistry() { return extractorRegistry; }
 
     public long getMaxFileSizeBytes() { return maxFileSizeBytes; }
+    public boolean isMemoryMappingEnabled() { return enableMemoryMapping; }
+    public boolean isParallelTokenizationEnabled() { return enableParallelTokenization; }
+    public boolean isConcurrentRulesEnabled() { return enableConcurrentRules; }
+    public Duration getRuleTimeout() { return ruleTimeout; }
+    public boolean isStreamingExtractionEnabled() { return enableStreamingExtraction; }
+    public int getStreamingBufferBytes() { return streamingBufferBytes; }
+    public boolean isStreamingHtmlExtractionEnabled() { return enableStreamingHtmlExtraction; }
+    public long getFastHtmlThresholdBytes() { return fastHtmlThresholdBytes; }
 }
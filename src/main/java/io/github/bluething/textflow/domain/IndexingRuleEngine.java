@@ -0,0 +1,523 @@
+package io.github.bluething.textflow.domain;
+
+import io.github.bluething.textflow.domain.rules.CountResult;
+import io.github.bluething.textflow.domain.rules.IndexingRule;
+import io.github.bluething.textflow.domain.rules.IndexingRuleResult;
+import io.github.bluething.textflow.domain.rules.MergeableRule;
+import io.github.bluething.textflow.domain.rules.TokenVisitingRule;
+import io.github.bluething.textflow.domain.rules.TokenVisitor;
+import io.github.bluething.textflow.domain.tokenization.SmartTokenizer;
+import io.github.bluething.textflow.domain.tokenization.TokenKind;
+import io.github.bluething.textflow.domain.tokenization.TokenSink;
+import io.github.bluething.textflow.domain.tokenization.TokenizationConfig;
+import io.github.bluething.textflow.domain.tokenization.TokenizedText;
+import io.github.bluething.textflow.domain.tokenization.TokenizerSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Applies a fixed list of rules to documents, walking each document's tokens once
+ * per distinct tokenization config and feeding every rule that uses it in that
+ * same pass.
+ * <p>
+ * {@link TokenVisitingRule}s get a visitor per document. Other rules go through
+ * adapters: rules with a tokenization config get the shared {@link TokenizedText},
+ * and rules without one are applied to the content directly. A rule that throws
+ * gets a zero count and does not affect the others.
+ * <p>
+ * With a rule timeout, each rule instead runs in its own subtask of a
+ * {@link StructuredTaskScope}; rules sharing a config still share one tokenization.
+ * A rule that has not finished when the timeout runs out is interrupted and gets a
+ * zero count too.
+ */
+final class IndexingRuleEngine {
+    private static final Logger logger = LoggerFactory.getLogger(IndexingRuleEngine.class);
+    // Smallest slice worth handing to another core when tokenizing one file in parallel
+    private static final int MIN_TOKENIZATION_CHUNK = 1024 * 1024;
+
+    private final List<IndexingRule> rules;
+    private final ForkJoinPool tokenizationPool;
+    private final Duration ruleTimeout;
+    private final Map<TokenizationConfig, SmartTokenizer> tokenizers = new ConcurrentHashMap<>();
+
+    /**
+     * @param tokenizationPool where large texts are tokenized in chunks, or null to tokenize on the caller
+     * @param ruleTimeout how long the rules may run concurrently on one document, or null to run them in turn
+     */
+    IndexingRuleEngine(List<IndexingRule> rules, ForkJoinPool tokenizationPool, Duration ruleTimeout) {
+        this.rules = List.copyOf(rules);
+        this.tokenizationPool = tokenizationPool;
+        this.ruleTimeout = ruleTimeout;
+    }
+
+    /**
+     * Whether every rule is a {@link TokenVisitingRule}, so the rules never need
+     * the content or the whole of its tokens at once.
+     */
+    boolean visitsTokensOnly() {
+        return rules.stream().allMatch(rule -> rule instanceof TokenVisitingRule);
+    }
+
+    /**
+     * Applies every rule to UTF-8 text of any length, such as a file mapped as one
+     * segment, tokenizing it a window at a time. Every rule must be a
+     * {@link TokenVisitingRule}; see {@link #visitsTokensOnly()}.
+     *
+     * @return results by rule name, in rule order
+     */
+    Map<String, IndexingRuleResult> applyToWindows(TextContent content, MemorySegment utf8, int windowSize) {
+        IndexingRuleResult[] results = new IndexingRuleResult[rules.size()];
+        for (VisitorGroup group : visitorGroups(content, results)) {
+            long startTime = System.currentTimeMillis();
+            group.tokenizer().tokenizeDistinct(utf8, windowSize, group.visitors(), group.occurrencesOrNull());
+            group.finish(content, results);
+            logger.debug("Applied {} rules to the tokens of {} in windows of {} bytes in {} ms",
+                    group.size(), content.originalFileName(), windowSize, System.currentTimeMillis() - startTime);
+        }
+        return byName(results);
+    }
+
+    /**
+     * Applies every rule to text {@code source} pushes in chunks, feeding each
+     * tokenization config's {@link TokenizerSession} as the chunks arrive, so the
+     * text is never held whole. Tokens are deduped per segment a session lexes,
+     * not per file; see {@link TokenVisitor}. Every rule must be a
+     * {@link TokenVisitingRule}.
+     *
+     * @return results by rule name, in rule order
+     */
+    Map<String, IndexingRuleResult> applyToChunks(TextContent content, ChunkSource source) throws IOException {
+        long startTime = System.currentTimeMillis();
+        IndexingRuleResult[] results = new IndexingRuleResult[rules.size()];
+        List<VisitorGroup> groups = visitorGroups(content, results);
+        List<TokenizerSession> sessions = groups.stream()
+                .map(group -> group.tokenizer().openDistinctSession(group.visitors(), group.occurrencesOrNull()))
+                .toList();
+
+        source.pushTo(chunk -> {
+            for (TokenizerSession session : sessions) {
+                session.feed(chunk.duplicate());
+            }
+        });
+        for (int i = 0; i < groups.size(); i++) {
+            sessions.get(i).finish();
+            groups.get(i).finish(content, results);
+        }
+
+        logger.debug("Applied {} rules to the streamed tokens of {} in {} ms",
+                rules.size(), content.originalFileName(), System.currentTimeMillis() - startTime);
+        return byName(results);
+    }
+
+    /**
+     * Sets up a visitor per rule, grouped by tokenization config, for text tokenized
+     * a window or a segment at a time, so each is a
+     * {@linkplain TokenVisitingRule#newRepeatingVisitor() repeating visitor}. Every
+     * rule must be a {@link TokenVisitingRule}; a rule whose visitor cannot be made fails.
+     */
+    private List<VisitorGroup> visitorGroups(TextContent content, IndexingRuleResult[] results) {
+        Map<TokenizationConfig, List<Integer>> members = new LinkedHashMap<>();
+        for (int i = 0; i < rules.size(); i++) {
+            members.computeIfAbsent(rules.get(i).getTokenizationConfig(), key -> new ArrayList<>()).add(i);
+        }
+        List<VisitorGroup> groups = new ArrayList<>(members.size());
+        members.forEach((config, group) -> {
+            var visitors = new VisitorFanOut(group.size());
+            var occurrenceVisitors = new VisitorFanOut(group.size());
+            for (int member : group) {
+                var rule = (TokenVisitingRule) rules.get(member);
+                try {
+                    (rule.visitsOccurrences() ? occurrenceVisitors : visitors).add(member, rule.newRepeatingVisitor());
+                } catch (Exception e) {
+                    results[member] = failed(rule, content, e);
+                }
+            }
+            SmartTokenizer tokenizer = tokenizers.computeIfAbsent(config, key -> new SmartTokenizer(key));
+            groups.add(new VisitorGroup(tokenizer, group.size(), visitors, occurrenceVisitors));
+        });
+        return groups;
+    }
+
+    /**
+     * Applies every rule to the content. {@code text} is what tokens are read from:
+     * the decoded content, or the raw bytes of an undecoded file.
+     *
+     * @return results by rule name, in rule order
+     */
+    Map<String, IndexingRuleResult> apply(TextContent content, CharSequence text) {
+        return byName(ruleTimeout != null
+                ? applyConcurrently(content, text)
+                : applyInTurn(content, text));
+    }
+
+    private Map<String, IndexingRuleResult> byName(IndexingRuleResult[] results) {
+        Map<String, IndexingRuleResult> byName = new LinkedHashMap<>();
+        for (int i = 0; i < results.length; i++) {
+            byName.put(rules.get(i).getName(), results[i]);
+        }
+        return byName;
+    }
+
+    private IndexingRuleResult[] applyInTurn(TextContent content, CharSequence text) {
+        IndexingRuleResult[] results = new IndexingRuleResult[rules.size()];
+        Map<TokenizationConfig, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < rules.size(); i++) {
+            IndexingRule rule = rules.get(i);
+            TokenizationConfig config = rule.getTokenizationConfig();
+            if (config == null) {
+                results[i] = applyToContent(rule, content);
+            } else {
+                groups.computeIfAbsent(config, key -> new ArrayList<>()).add(i);
+            }
+        }
+        groups.forEach((config, members) -> applyToTokens(config, members, content, text, results));
+        return results;
+    }
+
+    /**
+     * Forks a subtask per rule and waits for them until the rule timeout runs out.
+     * The first subtask of a config to need its tokens tokenizes the text; the
+     * others wait for it.
+     */
+    private IndexingRuleResult[] applyConcurrently(TextContent content, CharSequence text) {
+        Map<TokenizationConfig, FutureTask<TokenizedText>> tokensByConfig = new HashMap<>();
+        List<StructuredTaskScope.Subtask<IndexingRuleResult>> subtasks = new ArrayList<>(rules.size());
+        Instant deadline = Instant.now().plus(ruleTimeout);
+        boolean interrupted = false;
+
+        try (var scope = new StructuredTaskScope<IndexingRuleResult>()) {
+            for (IndexingRule rule : rules) {
+                TokenizationConfig config = rule.getTokenizationConfig();
+                if (config == null) {
+                    subtasks.add(scope.fork(() -> rule.apply(content)));
+                    continue;
+                }
+                SmartTokenizer tokenizer = tokenizers.computeIfAbsent(config, key -> new SmartTokenizer(key));
+                FutureTask<TokenizedText> tokens = tokensByConfig.computeIfAbsent(config,
+                        key -> new FutureTask<>(() -> tokenizeText(tokenizer, text)));
+                subtasks.add(scope.fork(() -> applyToTokens(rule, tokenizer, text, tokens, content)));
+            }
+
+            try {
+                scope.joinUntil(deadline);
+            } catch (TimeoutException | InterruptedException e) {
+                // Rules still running are interrupted and fall back to a zero count
+                interrupted = e instanceof InterruptedException;
+                scope.shutdown();
+                interrupted |= joinAfterShutdown(scope);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        IndexingRuleResult[] results = new IndexingRuleResult[rules.size()];
+        for (int i = 0; i < results.length; i++) {
+            var subtask = subtasks.get(i);
+            IndexingRule rule = rules.get(i);
+            results[i] = switch (subtask.state()) {
+                case SUCCESS -> subtask.get();
+                case FAILED -> {
+                    if (subtask.exception() instanceof Error error) {
+                        throw error;
+                    }
+                    yield failed(rule, content, (Exception) subtask.exception());
+                }
+                case UNAVAILABLE -> {
+                    logger.warn("Rule '{}' did not finish on file {} {}", rule.getName(), content.originalFileName(),
+                            interrupted ? "before being interrupted" : "within " + ruleTimeout);
+                    yield new CountResult(0);
+                }
+            };
+        }
+        return results;
+    }
+
+    /**
+     * Joins a scope that has been shut down, which returns without waiting, so its
+     * subtasks can be read.
+     *
+     * @return true if the thread was interrupted meanwhile
+     */
+    private static boolean joinAfterShutdown(StructuredTaskScope<?> scope) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                scope.join();
+                return interrupted;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+    }
+
+    /**
+     * Applies one rule to the shared tokens of its config, running {@code tokens}
+     * first if no other rule has. Visitors stop early once the scope is shut down.
+     */
+    private IndexingRuleResult applyToTokens(IndexingRule rule, SmartTokenizer tokenizer, CharSequence text,
+                                             FutureTask<TokenizedText> tokens, TextContent content) throws Exception {
+        if (rule instanceof TokenVisitingRule visitingRule && visitingRule.visitsOccurrences()) {
+            TokenVisitor visitor = visitingRule.newVisitor();
+            tokenizer.tokenize(text, interruptible(visitor));
+            return visitor.finish();
+        }
+
+        tokens.run();
+        TokenizedText tokenizedText;
+        try {
+            tokenizedText = tokens.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+        if (rule instanceof TokenVisitingRule visitingRule) {
+            TokenVisitor visitor = visitingRule.newVisitor();
+            tokenizedText.forEach(interruptible(visitor));
+            return visitor.finish();
+        }
+        return rule.apply(content, tokenizedText);
+    }
+
+    private static TokenSink interruptible(TokenVisitor visitor) {
+        return new TokenSink() {
+            private int tokens;
+
+            @Override
+            public void accept(CharSequence text, int start, int end, TokenKind kind) {
+                if ((++tokens & 0xFFF) == 0 && Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Rule interrupted");
+                }
+                visitor.onToken(text, start, end, kind);
+            }
+        };
+    }
+
+    /**
+     * Combines the results of separate {@link #apply} calls, in the order given,
+     * for every rule that is a {@link MergeableRule}. Other rules, and rules
+     * whose results cannot be combined because one of them failed, are left out.
+     *
+     * @return combined results by rule name, in rule order
+     */
+    Map<String, IndexingRuleResult> merge(List<Map<String, IndexingRuleResult>> resultsByFile) {
+        Map<String, IndexingRuleResult> merged = new LinkedHashMap<>();
+        for (IndexingRule rule : rules) {
+            if (!(rule instanceof MergeableRule mergeableRule)) {
+                continue;
+            }
+            List<IndexingRuleResult> results = resultsByFile.stream()
+                    .map(byName -> byName.get(rule.getName()))
+                    .filter(Objects::nonNull)
+                    .toList();
+            try {
+                merged.put(rule.getName(), mergeableRule.merge(results));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Cannot combine the results of rule '{}': {}", rule.getName(), e.getMessage());
+            }
+        }
+        return merged;
+    }
+
+    private IndexingRuleResult applyToContent(IndexingRule rule, TextContent content) {
+        try {
+            long startTime = System.currentTimeMillis();
+            IndexingRuleResult result = rule.apply(content);
+            logger.debug("Applied rule '{}' in {} ms", rule.getName(), System.currentTimeMillis() - startTime);
+            return result;
+        } catch (Exception e) {
+            return failed(rule, content, e);
+        }
+    }
+
+    /**
+     * Runs the rules at {@code members}, which share {@code config}, over one
+     * tokenization of {@code text}.
+     */
+    private void applyToTokens(TokenizationConfig config, List<Integer> members, TextContent content,
+                               CharSequence text, IndexingRuleResult[] results) {
+        long startTime = System.currentTimeMillis();
+        var visitors = new VisitorFanOut(members.size());
+        var occurrenceVisitors = new VisitorFanOut(members.size());
+        List<Integer> tokenTextRules = new ArrayList<>();
+        for (int member : members) {
+            IndexingRule rule = rules.get(member);
+            if (rule instanceof TokenVisitingRule visitingRule) {
+                try {
+                    (visitingRule.visitsOccurrences() ? occurrenceVisitors : visitors)
+                            .add(member, visitingRule.newVisitor());
+                } catch (Exception e) {
+                    results[member] = failed(rule, content, e);
+                }
+            } else {
+                tokenTextRules.add(member);
+            }
+        }
+
+        try {
+            SmartTokenizer tokenizer = tokenizers.computeIfAbsent(config, key -> new SmartTokenizer(key));
+            if (!occurrenceVisitors.isEmpty() && tokenTextRules.isEmpty()) {
+                // Occurrences must arrive in order, so this pass is not split across threads
+                tokenizer.tokenizeDistinct(text, visitors, occurrenceVisitors);
+            } else if (tokenTextRules.isEmpty()) {
+                tokenize(tokenizer, text, visitors);
+            } else {
+                // Rules written against TokenizedText need it materialised; visitors replay it
+                TokenizedText tokens = tokenizeText(tokenizer, text);
+                for (int member : tokenTextRules) {
+                    IndexingRule rule = rules.get(member);
+                    try {
+                        results[member] = rule.apply(content, tokens);
+                    } catch (Exception e) {
+                        results[member] = failed(rule, content, e);
+                    }
+                }
+                tokens.forEach(visitors);
+                if (!occurrenceVisitors.isEmpty()) {
+                    tokenizer.tokenize(text, occurrenceVisitors);
+                }
+            }
+        } catch (Exception e) {
+            // Every rule still waiting on the tokens fails with them, as when run concurrently
+            for (int member : members) {
+                if (results[member] == null) {
+                    results[member] = failed(rules.get(member), content, e);
+                }
+            }
+            return;
+        }
+        visitors.finish(content, results);
+        occurrenceVisitors.finish(content, results);
+
+        logger.debug("Applied {} rules to the tokens of {} in {} ms",
+                members.size(), content.originalFileName(), System.currentTimeMillis() - startTime);
+    }
+
+    private void tokenize(SmartTokenizer tokenizer, CharSequence text, TokenSink sink) {
+        int chunks = chunks(text);
+        if (chunks > 1) {
+            tokenizer.tokenizeDistinct(text, chunks, tokenizationPool, sink);
+        } else {
+            tokenizer.tokenizeDistinct(text, sink);
+        }
+    }
+
+    private TokenizedText tokenizeText(SmartTokenizer tokenizer, CharSequence text) {
+        int chunks = chunks(text);
+        return chunks > 1
+                ? tokenizer.tokenizeText(text, chunks, tokenizationPool)
+                : tokenizer.tokenizeText(text);
+    }
+
+    private int chunks(CharSequence text) {
+        return tokenizationPool != null
+                ? Math.min(tokenizationPool.getParallelism(), text.length() / MIN_TOKENIZATION_CHUNK)
+                : 1;
+    }
+
+    private IndexingRuleResult failed(IndexingRule rule, TextContent content, Exception e) {
+        logger.error("Error applying rule '{}' to file {}: {}",
+                rule.getName(), content.originalFileName(), e.getMessage());
+        // Continue with other rules even if one fails
+        return new CountResult(0);
+    }
+
+    /**
+     * Pushes a document's text in chunks to a sink.
+     */
+    @FunctionalInterface
+    interface ChunkSource {
+        void pushTo(TextChunkSink sink) throws IOException;
+    }
+
+    /**
+     * The visitors of the rules that share a tokenizer.
+     */
+    private record VisitorGroup(SmartTokenizer tokenizer, int size,
+                                VisitorFanOut visitors, VisitorFanOut occurrenceVisitors) {
+
+        TokenSink occurrencesOrNull() {
+            return occurrenceVisitors.isEmpty() ? null : occurrenceVisitors;
+        }
+
+        void finish(TextContent content, IndexingRuleResult[] results) {
+            visitors.finish(content, results);
+            occurrenceVisitors.finish(content, results);
+        }
+    }
+
+    /**
+     * Feeds each token to every visitor of a group. A visitor that throws is
+     * dropped and its rule fails; the others carry on.
+     */
+    private final class VisitorFanOut implements TokenSink {
+        private final int[] members;
+        private final TokenVisitor[] visitors;
+        private final Exception[] failures;
+        private int size;
+
+        VisitorFanOut(int capacity) {
+            this.members = new int[capacity];
+            this.visitors = new TokenVisitor[capacity];
+            this.failures = new Exception[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(int member, TokenVisitor visitor) {
+            members[size] = member;
+            visitors[size] = visitor;
+            size++;
+        }
+
+        @Override
+        public void accept(CharSequence text, int start, int end, TokenKind kind) {
+            for (int i = 0; i < size; i++) {
+                TokenVisitor visitor = visitors[i];
+                if (visitor == null) {
+                    continue;
+                }
+                try {
+                    visitor.onToken(text, start, end, kind);
+                } catch (Exception e) {
+                    visitors[i] = null;
+                    failures[i] = e;
+                }
+            }
+        }
+
+        void finish(TextContent content, IndexingRuleResult[] results) {
+            for (int i = 0; i < size; i++) {
+                IndexingRule rule = rules.get(members[i]);
+                if (failures[i] != null) {
+                    results[members[i]] = failed(rule, content, failures[i]);
+                    continue;
+                }
+                try {
+                    results[members[i]] = visitors[i].finish();
+                } catch (Exception e) {
+                    results[members[i]] = failed(rule, content, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package io.github.bluething.textflow.domain;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Extracts the field names and string values of a JSON file, separated by spaces,
+ * in document order. Numbers, booleans and nulls are skipped.
+ * <p>
+ * The file is scanned as a stream of characters without building a tree. The
+ * scanner's state is a bit per open container, up to {@link #MAX_DEPTH}, and the
+ * field name being read, up to {@link #MAX_NAME_LENGTH} characters; deeper
+ * documents and longer names are rejected rather than let memory grow with them.
+ * <p>
+ * What is extracted can be narrowed with included keys, excluded keys and
+ * projected paths; see {@link Builder}.
+ */
+public class JsonContentExtractor implements ContentExtractor {
+    private static final Logger logger = LoggerFactory.getLogger(JsonContentExtractor.class);
+    private static final Set<String> SUPPORTED_MIME_TYPES = Set.of(
+            "application/json",
+            "text/json"
+    );
+
+    static final int MAX_DEPTH = 1000;
+    static final int MAX_NAME_LENGTH = 50_000;
+    private static final int MAX_PROJECTED_PATHS = 64;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final char[][] includedKeys;
+    private final char[][] excludedKeys;
+    private final char[][][] projectedPaths;
+    private final int longestPath;
+
+    public JsonContentExtractor() {
+        this(new Builder());
+    }
+
+    private JsonContentExtractor(Builder builder) {
+        this.includedKeys = toChars(builder.includedKeys);
+        this.excludedKeys = toChars(builder.excludedKeys);
+        this.projectedPaths = builder.projectedPaths.stream().map(JsonContentExtractor::toChars).toArray(char[][][]::new);
+        this.longestPath = Arrays.stream(projectedPaths).mapToInt(path -> path.length).max().orElse(0);
+    }
+
+    @Override
+    public boolean canHandle(Path filePath, String detectedMimeType) {
+        return switch (detectedMimeType) {
+            case String mime when SUPPORTED_MIME_TYPES.contains(mime) -> true;
+            case null -> filePath.getFileName().toString().toLowerCase().endsWith(".json");
+            default -> false;
+        };
+    }
+
+    @Override
+    public TextContent extract(Path filePath, String detectedMimeType) throws IOException {
+        var text = new StringBuilder();
+        extract(filePath, detectedMimeType, text::append, CHUNK_SIZE);
+
+        long fileSize = Files.size(filePath);
+        logger.debug("Extracted {} characters from JSON file: {}", text.length(), filePath.getFileName());
+
+        return TextContent.of(text.toString(), filePath.getFileName().toString(), getFileType(),
+                detectedMimeType != null ? detectedMimeType : "application/json",
+                ContentMetadata.of(null, "UTF-8", fileSize));
+    }
+
+    /**
+     * Decodes the file through fixed byte and char buffers and scans it as it goes,
+     * pushing the extracted text in chunks of at most {@code chunkSize} characters.
+     */
+    @Override
+    public void extract(Path filePath, String detectedMimeType, TextChunkSink sink, int chunkSize)
+            throws IOException {
+        var scanner = new Scanner(sink, chunkSize);
+        try {
+            TextContentExtractor.decodeUtf8(filePath, chunkSize, scanner::scan);
+            scanner.finish();
+        } catch (MalformedJsonException e) {
+            throw new IOException("Failed to parse JSON file: " + filePath, e);
+        }
+    }
+
+    @Override
+    public boolean streamsInBoundedMemory() {
+        return true;
+    }
+
+    @Override
+    public String getFileType() {
+        return "JSON";
+    }
+
+    @Override
+    public Set<String> getSupportedMimeTypes() {
+        return SUPPORTED_MIME_TYPES;
+    }
+
+    private static char[][] toChars(List<String> strings) {
+        return strings.stream().map(String::toCharArray).toArray(char[][]::new);
+    }
+
+    private static boolean containsName(char[][] names, char[] name, int length) {
+        for (char[] candidate : names) {
+            if (Arrays.equals(candidate, 0, candidate.length, name, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Narrows what is extracted. Each option selects whole fields: a field's name
+     * together with everything in its value.
+     * <ul>
+     *   <li>Included keys: only fields with one of these names, at any depth.</li>
+     *   <li>Excluded keys: every field except those with one of these names.</li>
+     *   <li>Projected paths: only the fields at these paths, written as field names
+     *   separated by dots, optionally after {@code $.}. A {@code *} segment matches
+     *   any name. Arrays do not add a segment, so {@code items.title} selects the
+     *   title of every element of an {@code items} array.</li>
+     * </ul>
+     * A field is extracted when it passes all the options given.
+     */
+    public static class Builder {
+        private List<String> includedKeys = List.of();
+        private List<String> excludedKeys = List.of();
+        private List<List<String>> projectedPaths = List.of();
+
+        public Builder withIncludedKeys(List<String> keys) {
+            this.includedKeys = validKeys(keys);
+            return this;
+        }
+
+        public Builder withExcludedKeys(List<String> keys) {
+            this.excludedKeys = validKeys(keys);
+            return this;
+        }
+
+        public Builder withProjectedPaths(List<String> paths) {
+            List<List<String>> segments = new ArrayList<>();
+            for (String path : paths) {
+                String fields = path.startsWith("$.") ? path.substring(2) : path;
+                List<String> pathSegments = List.of(fields.split("\\.", -1));
+                if (pathSegments.stream().anyMatch(String::isEmpty)) {
+                    throw new IllegalArgumentException("Invalid JSON path: " + path);
+                }
+                segments.add(pathSegments);
+            }
+            this.projectedPaths = List.copyOf(segments);
+            return this;
+        }
+
+        public JsonContentExtractor build() {
+            if (projectedPaths.size() > MAX_PROJECTED_PATHS) {
+                throw new IllegalStateException("At most " + MAX_PROJECTED_PATHS + " JSON paths can be projected");
+            }
+            return new JsonContentExtractor(this);
+        }
+
+        private static List<String> validKeys(List<String> keys) {
+            for (String key : keys) {
+                if (key == null || key.isEmpty()) {
+                    throw new IllegalArgumentException("JSON keys cannot be null or empty");
+                }
+            }
+            return List.copyOf(keys);
+        }
+    }
+
+    /**
+     * Push scanner over the decoded characters of one document, writing the
+     * selected names and strings to a fixed output buffer.
+     */
+    private final class Scanner {
+        private static final int BETWEEN = 0;
+        private static final int STRING = 1;
+        private static final int ESCAPE = 2;
+        private static final int UNICODE = 3;
+
+        private final TextChunkSink sink;
+        private final CharBuffer out;
+        private final long[] objectAt = new long[(MAX_DEPTH + 64) / 64]; // bit d set when depth d is an object
+        private final long[] candidates = new long[longestPath + 1]; // paths matching the keys above each key depth
+        private char[] name = new char[64];
+        private int nameLength;
+
+        private int state = BETWEEN;
+        private boolean inName;
+        private boolean emitting;
+        private boolean stringStarted;
+        private boolean emittedAny;
+        private int unicode;
+        private int unicodeDigits;
+        private long offset;
+
+        private int depth;
+        private int keyDepth;
+        private boolean expectName;
+        private boolean afterOpen;
+        // Object depth of the outermost field each option selected, or -1
+        private int includedAt = -1;
+        private int excludedAt = -1;
+        private int projectedAt = -1;
+
+        Scanner(TextChunkSink sink, int chunkSize) {
+            this.sink = sink;
+            this.out = CharBuffer.allocate(chunkSize);
+            this.candidates[0] = projectedPaths.length == 64 ? -1L : (1L << projectedPaths.length) - 1;
+        }
+
+        void scan(CharBuffer chars) throws IOException {
+            while (chars.hasRemaining()) {
+                char c = chars.get();
+                switch (state) {
+                    case BETWEEN -> structural(c);
+                    case STRING -> {
+                        if (c == '"') {
+                            endString();
+                        } else if (c == '\\') {
+                            state = ESCAPE;
+                        } else if (c < 0x20) {
+                            throw malformed("control character in string");
+                        } else {
+                            stringChar(c);
+                        }
+                    }
+                    case ESCAPE -> escape(c);
+                    default -> {
+                        int digit = Character.digit(c, 16);
+                        if (digit < 0) {
+                            throw malformed("invalid unicode escape");
+                        }
+                        unicode = unicode * 16 + digit;
+                        if (++unicodeDigits == 4) {
+                            state = STRING;
+                            stringChar((char) unicode);
+                        }
+                    }
+                }
+                offset++;
+            }
+        }
+
+        void finish() throws IOException {
+            if (state != BETWEEN) {
+                throw malformed("unterminated string");
+            }
+            if (depth != 0) {
+                throw malformed("unclosed object or array");
+            }
+            flush();
+        }
+
+        private void structural(char c) throws IOException {
+            switch (c) {
+                case ' ', '\t', '\n', '\r' -> {
+                    return;
+                }
+                case '{' -> {
+                    open(true);
+                    expectName = true;
+                    afterOpen = true;
+                    return;
+                }
+                case '[' -> open(false);
+                case '}' -> {
+                    if (depth == 0 || !isObject()) {
+                        throw malformed("unexpected '}'");
+                    }
+                    if (!afterOpen) {
+                        closeField();
+                    }
+                    depth--;
+                    expectName = false;
+                }
+                case ']' -> {
+                    if (depth == 0 || isObject()) {
+                        throw malformed("unexpected ']'");
+                    }
+                    depth--;
+                }
+                case ',' -> {
+                    if (depth > 0 && isObject()) {
+                        closeField();
+                        expectName = true;
+                    }
+                }
+                case ':' -> expectName = false;
+                case '"' -> {
+                    state = STRING;
+                    inName = expectName;
+                    expectName = false;
+                    stringStarted = false;
+                    nameLength = 0;
+                    emitting = !inName && selected();
+                }
+                default -> {
+                    // Numbers, true, false and null
+                }
+            }
+            afterOpen = false;
+        }
+
+        private void escape(char c) throws IOException {
+            state = STRING;
+            switch (c) {
+                case '"', '\\', '/' -> stringChar(c);
+                case 'b' -> stringChar('\b');
+                case 'f' -> stringChar('\f');
+                case 'n' -> stringChar('\n');
+                case 'r' -> stringChar('\r');
+                case 't' -> stringChar('\t');
+                case 'u' -> {
+                    state = UNICODE;
+                    unicode = 0;
+                    unicodeDigits = 0;
+                }
+                default -> throw malformed("invalid escape '\\" + c + "'");
+            }
+        }
+
+        private void stringChar(char c) throws IOException {
+            if (inName) {
+                if (nameLength == name.length) {
+                    if (nameLength == MAX_NAME_LENGTH) {
+                        throw malformed("field name longer than " + MAX_NAME_LENGTH + " characters");
+                    }
+                    name = Arrays.copyOf(name, Math.min(MAX_NAME_LENGTH, nameLength * 2));
+                }
+                name[nameLength++] = c;
+            } else if (emitting) {
+                emit(c);
+            }
+        }
+
+        private void endString() throws IOException {
+            state = BETWEEN;
+            if (!inName) {
+                return;
+            }
+            int level = keyDepth++;
+            if (excludedAt < 0 && containsName(excludedKeys, name, nameLength)) {
+                excludedAt = depth;
+            }
+            if (includedAt < 0 && containsName(includedKeys, name, nameLength)) {
+                includedAt = depth;
+            }
+            if (projectedAt < 0 && level < longestPath) {
+                matchProjections(level);
+            }
+            if (selected()) {
+                for (int i = 0; i < nameLength; i++) {
+                    emit(name[i]);
+                }
+            }
+        }
+
+        /**
+         * Narrows the paths still matching above {@code level} to those whose
+         * segment there matches the name, noting a field at the end of any of them.
+         */
+        private void matchProjections(int level) {
+            long matching = 0;
+            for (long paths = candidates[level]; paths != 0; paths &= paths - 1) {
+                int path = Long.numberOfTrailingZeros(paths);
+                char[] segment = projectedPaths[path][level];
+                boolean wildcard = segment.length == 1 && segment[0] == '*';
+                if (wildcard || Arrays.equals(segment, 0, segment.length, name, 0, nameLength)) {
+                    if (projectedPaths[path].length == level + 1) {
+                        projectedAt = depth;
+                    } else {
+                        matching |= 1L << path;
+                    }
+                }
+            }
+            candidates[level + 1] = matching;
+        }
+
+        private boolean selected() {
+            return excludedAt < 0
+                    && (includedKeys.length == 0 || includedAt >= 0)
+                    && (projectedPaths.length == 0 || projectedAt >= 0);
+        }
+
+        private void open(boolean object) throws MalformedJsonException {
+            if (depth == MAX_DEPTH) {
+                throw malformed("nested deeper than " + MAX_DEPTH + " levels");
+            }
+            depth++;
+            if (object) {
+                objectAt[depth >>> 6] |= 1L << depth;
+            } else {
+                objectAt[depth >>> 6] &= ~(1L << depth);
+            }
+        }
+
+        private boolean isObject() {
+            return (objectAt[depth >>> 6] & (1L << depth)) != 0;
+        }
+
+        /**
+         * Ends the field open in the object at the current depth.
+         */
+        private void closeField() {
+            keyDepth = Math.max(0, keyDepth - 1);
+            if (includedAt == depth) {
+                includedAt = -1;
+            }
+            if (excludedAt == depth) {
+                excludedAt = -1;
+            }
+            if (projectedAt == depth) {
+                projectedAt = -1;
+            }
+        }
+
+        private void emit(char c) throws IOException {
+            if (!stringStarted) {
+                stringStarted = true;
+                if (emittedAny) {
+                    put(' ');
+                }
+                emittedAny = true;
+            }
+            put(c);
+        }
+
+        private void put(char c) throws IOException {
+            if (!out.hasRemaining()) {
+                flush();
+            }
+            out.put(c);
+        }
+
+        private void flush() throws IOException {
+            out.flip();
+            if (out.hasRemaining()) {
+                sink.accept(out);
+            }
+            out.clear();
+        }
+
+        private MalformedJsonException malformed(String reason) {
+            return new MalformedJsonException("Malformed JSON at character " + offset + ": " + reason);
+        }
+    }
+
+    private static final class MalformedJsonException extends IOException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        MalformedJsonException(String message) {
+            super(message);
+        }
+    }
+}
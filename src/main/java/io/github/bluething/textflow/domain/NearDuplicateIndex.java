@@ -0,0 +1,206 @@
+package io.github.bluething.textflow.domain;
+
+import io.github.bluething.textflow.domain.rules.IndexingRuleResult;
+import io.github.bluething.textflow.domain.rules.MinHashResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds near-duplicate files by locality-sensitive hashing of the MinHash
+ * signatures a {@link io.github.bluething.textflow.domain.rules.ShingleFingerprintRule}
+ * produced for them.
+ * <p>
+ * Each signature is cut into {@code bands} bands of {@code rows} values, and files
+ * whose signatures agree on a whole band share a bucket. Only files sharing a
+ * bucket are compared, so a lookup costs about the number of bands rather than
+ * the number of files. Files with Jaccard similarity {@code s} share a bucket
+ * with probability {@code 1 - (1 - s^rows)^bands}, which rises steeply around
+ * {@code (1 / bands)^(1 / rows)}.
+ */
+public final class NearDuplicateIndex {
+    private final String ruleName;
+    private final int bands;
+    private final int rows;
+    private final List<String> fileNames = new ArrayList<>();
+    private final List<MinHashResult> signatures = new ArrayList<>();
+    private final List<Map<Long, List<Integer>>> buckets;
+
+    /**
+     * @param ruleName the name of the rule whose results hold the signatures
+     */
+    public NearDuplicateIndex(String ruleName, int bands, int rows) {
+        if (bands < 1 || rows < 1) {
+            throw new IllegalArgumentException("Need at least one band of one row, got "
+                    + bands + " bands of " + rows + " rows");
+        }
+        this.ruleName = ruleName;
+        this.bands = bands;
+        this.rows = rows;
+        this.buckets = new ArrayList<>(bands);
+        for (int band = 0; band < bands; band++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Creates an index over signatures of {@code signatureSize} values, banded so
+     * the collision probability rises steepest as near to {@code threshold} as
+     * the signature size allows.
+     */
+    public static NearDuplicateIndex forThreshold(String ruleName, int signatureSize, double threshold) {
+        if (threshold <= 0 || threshold >= 1) {
+            throw new IllegalArgumentException("Threshold must be between 0 and 1, got " + threshold);
+        }
+        int bestBands = 1;
+        int bestRows = signatureSize;
+        double bestDistance = Double.MAX_VALUE;
+        for (int rows = 1; rows <= signatureSize; rows++) {
+            int bands = signatureSize / rows;
+            double distance = Math.abs(Math.pow(1.0 / bands, 1.0 / rows) - threshold);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestBands = bands;
+                bestRows = rows;
+            }
+        }
+        return new NearDuplicateIndex(ruleName, bestBands, bestRows);
+    }
+
+    /**
+     * Adds a file to the index.
+     *
+     * @return false, leaving the index unchanged, if the file failed or has no
+     * signature under the rule name
+     * @throws IllegalArgumentException if the signature is shorter than the bands
+     */
+    public boolean add(FileProcessingResult result) {
+        MinHashResult signature = signatureOf(result);
+        if (signature == null) {
+            return false;
+        }
+        int file = signatures.size();
+        fileNames.add(result.fileName());
+        signatures.add(signature);
+        for (int band = 0; band < bands; band++) {
+            buckets.get(band).computeIfAbsent(bandKey(signature, band), key -> new ArrayList<>(2)).add(file);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the indexed files whose estimated similarity to {@code result} is
+     * at least {@code minSimilarity}, in the order they were added.
+     */
+    public List<String> nearDuplicatesOf(FileProcessingResult result, double minSimilarity) {
+        MinHashResult signature = signatureOf(result);
+        if (signature == null) {
+            return List.of();
+        }
+        boolean[] seen = new boolean[signatures.size()];
+        List<Integer> matches = new ArrayList<>();
+        for (int band = 0; band < bands; band++) {
+            for (int file : buckets.get(band).getOrDefault(bandKey(signature, band), List.of())) {
+                if (!seen[file]) {
+                    seen[file] = true;
+                    if (signature.similarity(signatures.get(file)) >= minSimilarity) {
+                        matches.add(file);
+                    }
+                }
+            }
+        }
+        return matches.stream().sorted().map(fileNames::get).toList();
+    }
+
+    /**
+     * Groups the indexed files that are near-duplicates of each other, directly or
+     * through other files, at an estimated similarity of at least
+     * {@code minSimilarity}. Files without near-duplicates are left out; groups
+     * and their files are in the order the files were added.
+     * <p>
+     * Within a bucket, a file is compared with one representative of each group
+     * found there so far, so a bucket of {@code k} near-duplicates costs about
+     * {@code k} comparisons rather than {@code k^2}. A file similar enough to some
+     * member of a group but not to its representative may therefore be left out
+     * of it, unless another band brings them together.
+     */
+    public List<List<String>> groups(double minSimilarity) {
+        int[] parents = new int[signatures.size()];
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = i;
+        }
+        for (Map<Long, List<Integer>> band : buckets) {
+            for (List<Integer> bucket : band.values()) {
+                // Each file is compared with one member of every set met in the bucket so far,
+                // rather than with every file before it
+                List<Integer> representatives = new ArrayList<>();
+                for (int file : bucket) {
+                    boolean joined = false;
+                    for (int representative : representatives) {
+                        int first = find(parents, representative);
+                        int second = find(parents, file);
+                        if (first == second) {
+                            joined = true;
+                        } else if (signatures.get(file).similarity(signatures.get(representative)) >= minSimilarity) {
+                            parents[Math.max(first, second)] = Math.min(first, second);
+                            joined = true;
+                        }
+                    }
+                    if (!joined) {
+                        representatives.add(file);
+                    }
+                }
+            }
+        }
+
+        Map<Integer, List<String>> groups = new LinkedHashMap<>();
+        for (int file = 0; file < parents.length; file++) {
+            groups.computeIfAbsent(find(parents, file), key -> new ArrayList<>()).add(fileNames.get(file));
+        }
+        return groups.values().stream().filter(group -> group.size() > 1).toList();
+    }
+
+    public int size() {
+        return signatures.size();
+    }
+
+    public int getBands() { return bands; }
+    public int getRows() { return rows; }
+
+    private MinHashResult signatureOf(FileProcessingResult result) {
+        if (!result.isSuccess()) {
+            return null;
+        }
+        IndexingRuleResult ruleResult = result.indexingResults().get(ruleName);
+        if (!(ruleResult instanceof MinHashResult signature)) {
+            return null;
+        }
+        if (signature.size() < bands * rows) {
+            throw new IllegalArgumentException("Signature of " + signature.size() + " values is too short for "
+                    + bands + " bands of " + rows + " rows");
+        }
+        return signature;
+    }
+
+    private long bandKey(MinHashResult signature, int band) {
+        long key = band;
+        for (int row = band * rows, end = row + rows; row < end; row++) {
+            key = Long.rotateLeft(key * 0x9E3779B97F4A7C15L, 31) ^ signature.valueAt(row);
+        }
+        return key;
+    }
+
+    /**
+     * The root of {@code file}'s set, halving the path to it on the way.
+     */
+    private static int find(int[] parents, int file) {
+        while (parents[file] != file) {
+            parents[file] = parents[parents[file]];
+            file = parents[file];
+        }
+        return file;
+    }
+}
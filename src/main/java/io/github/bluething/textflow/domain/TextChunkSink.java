@@ -0,0 +1,16 @@
+package io.github.bluething.textflow.domain;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * Receives a document's text in decoded chunks, in order.
+ */
+@FunctionalInterface
+public interface TextChunkSink {
+    /**
+     * Takes the remaining characters of {@code chunk}. The buffer is reused for the
+     * next chunk, so it is only valid during the call.
+     */
+    void accept(CharBuffer chunk) throws IOException;
+}
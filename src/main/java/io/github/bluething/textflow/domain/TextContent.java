@@ -31,11 +31,27 @@ public record TextContent(String content,
                 mimeType != null ? mimeType : "unknown", metadata);
     }
 
+    /**
+     * Creates TextContent for a file whose text is tokenized straight from its bytes
+     * and never decoded. {@link #content()} is empty; rules see the text through the
+     * tokens passed to {@code IndexingRule.apply(TextContent, TokenizedText)}.
+     */
+    public static TextContent undecoded(String fileName, String fileType,
+                                        String mimeType, ContentMetadata metadata) {
+        return of("", fileName, fileType, mimeType, metadata);
+    }
+
     /**
      * Checks if the content is empty or contains only whitespace.
      */
     public boolean isEmpty() {
-        return content.trim().isEmpty();
+        // Same test as trim().isEmpty() without copying the content
+        for (int i = 0; i < content.length(); i++) {
+            if (content.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
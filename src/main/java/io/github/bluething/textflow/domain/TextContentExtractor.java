@@ -4,7 +4,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -21,6 +27,8 @@ class TextContentExtractor implements ContentExtractor {
 
     // File size threshold for memory mapping (10MB)
     private static final long MEMORY_MAP_THRESHOLD = 10 * 1024 * 1024;
+    // Largest file whose content fits in one String, which cannot exceed Integer.MAX_VALUE chars
+    private static final long MAX_DECODED_SIZE = Integer.MAX_VALUE - 8;
 
     @Override
     public boolean canHandle(Path filePath, String detectedMimeType) {
@@ -37,6 +45,9 @@ class TextContentExtractor implements ContentExtractor {
     @Override
     public TextContent extract(Path filePath, String detectedMimeType) throws IOException {
         long fileSize = Files.size(filePath);
+        if (fileSize > MAX_DECODED_SIZE) {
+            throw new IOException("File of " + fileSize + " bytes is too large to decode into one string");
+        }
 
         // Use memory mapping for large files, regular I/O for small files
         String content = switch (Long.compare(fileSize, MEMORY_MAP_THRESHOLD)) {
@@ -76,6 +87,85 @@ class TextContentExtractor implements ContentExtractor {
         }
     }
 
+    @Override
+    public void extract(Path filePath, String detectedMimeType, TextChunkSink sink, int chunkSize)
+            throws IOException {
+        decodeUtf8(filePath, chunkSize, sink);
+    }
+
+    @Override
+    public boolean streamsInBoundedMemory() {
+        return true;
+    }
+
+    /**
+     * Reads the file through fixed byte and char buffers, decoding it with one
+     * decoder as it goes. Malformed input is replaced, as in the mapped path.
+     */
+    static void decodeUtf8(Path filePath, int chunkSize, TextChunkSink sink) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(chunkSize);
+        CharBuffer chars = CharBuffer.allocate(chunkSize);
+
+        try (var fileChannel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                endOfInput = fileChannel.read(bytes) < 0;
+                bytes.flip();
+                while (decoder.decode(bytes, chars, endOfInput).isOverflow()) {
+                    push(chars, sink);
+                }
+                bytes.compact();
+            }
+            while (decoder.flush(chars).isOverflow()) {
+                push(chars, sink);
+            }
+            push(chars, sink);
+        }
+    }
+
+    private static void push(CharBuffer chars, TextChunkSink sink) throws IOException {
+        chars.flip();
+        if (chars.hasRemaining()) {
+            sink.accept(chars);
+        }
+        chars.clear();
+    }
+
+    /**
+     * Whether a file of this size is read through a memory mapping.
+     */
+    boolean usesMemoryMapping(long fileSize) {
+        return fileSize > MEMORY_MAP_THRESHOLD;
+    }
+
+    /**
+     * Maps the file for byte-level tokenization. Unlike {@link #extract(Path, String)}
+     * the content is never decoded into a {@code String}, so heap use does not grow
+     * with the file.
+     */
+    ByteBuffer map(Path filePath) throws IOException {
+        try (var fileChannel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            logger.debug("Mapping {} ({} bytes) for byte-level tokenization",
+                    filePath.getFileName(), fileChannel.size());
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        }
+    }
+
+    /**
+     * Maps the whole file as one segment, which unlike a {@code ByteBuffer} may
+     * exceed 2 GB. The mapping lasts until {@code arena} is closed.
+     */
+    static MemorySegment map(Path filePath, Arena arena) throws IOException {
+        try (var fileChannel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            logger.debug("Mapping {} ({} bytes) as a memory segment",
+                    filePath.getFileName(), fileChannel.size());
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size(), arena);
+        }
+    }
+
     @Override
     public String getFileType() {
         return "TEXT";
@@ -0,0 +1,81 @@
+package io.github.bluething.textflow.domain.rules;
+
+import io.github.bluething.textflow.domain.tokenization.TokenKind;
+
+import java.util.List;
+
+/**
+ * A token rule whose results can be combined: per document, per shard or over a
+ * whole corpus.
+ */
+public interface AccumulatingRule extends TokenVisitingRule, MergeableRule {
+
+    /**
+     * Returns the fold this rule computes.
+     */
+    RuleAccumulator<?> accumulator();
+
+    /**
+     * Returns the fold for a document whose distinct tokens may be reported more
+     * than once; see {@link #newRepeatingVisitor()}. Its results must merge with
+     * those of {@link #accumulator()}, which it is by default.
+     */
+    default RuleAccumulator<?> repeatingAccumulator() {
+        return accumulator();
+    }
+
+    @Override
+    default TokenVisitor newVisitor() {
+        return visitor(accumulator());
+    }
+
+    @Override
+    default TokenVisitor newRepeatingVisitor() {
+        return visitor(repeatingAccumulator());
+    }
+
+    @Override
+    default IndexingRuleResult merge(List<IndexingRuleResult> results) {
+        return merge(accumulator(), results);
+    }
+
+    private static <A> TokenVisitor visitor(RuleAccumulator<A> accumulator) {
+        return new TokenVisitor() {
+            private A state = accumulator.empty();
+
+            @Override
+            public void onToken(CharSequence text, int start, int end, TokenKind kind) {
+                state = accumulator.accumulate(state, text, start, end, kind);
+            }
+
+            @Override
+            public IndexingRuleResult finish() {
+                try {
+                    return accumulator.finish(state);
+                } finally {
+                    accumulator.release(state);
+                }
+            }
+        };
+    }
+
+    private static <A> IndexingRuleResult merge(RuleAccumulator<A> accumulator, List<IndexingRuleResult> results) {
+        A total = accumulator.empty();
+        try {
+            for (IndexingRuleResult result : results) {
+                A state = accumulator.fromResult(result);
+                A merged = accumulator.merge(total, state);
+                if (total != merged) {
+                    accumulator.release(total);
+                }
+                if (state != merged) {
+                    accumulator.release(state);
+                }
+                total = merged;
+            }
+            return accumulator.finish(total);
+        } finally {
+            accumulator.release(total);
+        }
+    }
+}
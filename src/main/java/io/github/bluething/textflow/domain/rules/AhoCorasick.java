@@ -0,0 +1,146 @@
+package io.github.bluething.textflow.domain.rules;
+
+import io.github.bluething.textflow.domain.tokenization.SpanHash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton over a fixed set of keywords, reporting every occurrence
+ * of every keyword in one left-to-right pass over a text.
+ * <p>
+ * The goto function is stored as sorted edge arrays indexed by state, with a
+ * dense table for the root's Latin-1 edges, which most characters of a text
+ * take; the fail and output links are plain {@code int} arrays.
+ */
+final class AhoCorasick {
+    private final boolean ignoreCase;
+    private final int[] edgeStart; // edges of state s are [edgeStart[s], edgeStart[s + 1])
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] rootLatin1;
+    private final int[] fail;
+    private final int[] keywordAt; // keyword ending at each state, or -1
+    private final int[] outputLink; // nearest state on the fail chain with a keyword, or 0
+    private final int[] keywordLengths;
+
+    /**
+     * Compiles {@code keywords}, which must be distinct after case folding when
+     * {@code ignoreCase} is set. Keyword IDs are indexes into the list.
+     */
+    AhoCorasick(List<String> keywords, boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        this.keywordLengths = keywords.stream().mapToInt(String::length).toArray();
+
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<Integer> terminals = new ArrayList<>();
+        children.add(new TreeMap<>());
+        terminals.add(-1);
+        for (int id = 0; id < keywords.size(); id++) {
+            String keyword = keywords.get(id);
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = fold(keyword.charAt(i));
+                Integer next = children.get(state).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.get(state).put(c, next);
+                    children.add(new TreeMap<>());
+                    terminals.add(-1);
+                }
+                state = next;
+            }
+            terminals.set(state, id);
+        }
+
+        int states = children.size();
+        edgeStart = new int[states + 1];
+        for (int s = 0; s < states; s++) {
+            edgeStart[s + 1] = edgeStart[s] + children.get(s).size();
+        }
+        edgeChars = new char[edgeStart[states]];
+        edgeTargets = new int[edgeStart[states]];
+        for (int s = 0; s < states; s++) {
+            int edge = edgeStart[s];
+            for (Map.Entry<Character, Integer> child : children.get(s).entrySet()) {
+                edgeChars[edge] = child.getKey();
+                edgeTargets[edge++] = child.getValue();
+            }
+        }
+        rootLatin1 = new int[256];
+        for (int edge = edgeStart[0]; edge < edgeStart[1] && edgeChars[edge] < 256; edge++) {
+            rootLatin1[edgeChars[edge]] = edgeTargets[edge];
+        }
+        keywordAt = terminals.stream().mapToInt(Integer::intValue).toArray();
+
+        // Breadth first, so a state's fail target is finished before the state
+        fail = new int[states];
+        outputLink = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int edge = edgeStart[0]; edge < edgeStart[1]; edge++) {
+            queue[tail++] = edgeTargets[edge];
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int edge = edgeStart[state]; edge < edgeStart[state + 1]; edge++) {
+                int child = edgeTargets[edge];
+                char c = edgeChars[edge];
+                int target = fail[state];
+                int next;
+                while ((next = step(target, c)) < 0 && target != 0) {
+                    target = fail[target];
+                }
+                fail[child] = Math.max(next, 0);
+                outputLink[child] = keywordAt[fail[child]] >= 0 ? fail[child] : outputLink[fail[child]];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    /**
+     * Reports every keyword occurrence in {@code text}, in order of its end.
+     */
+    void match(CharSequence text, MatchSink sink) {
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = fold(text.charAt(i));
+            int next;
+            while ((next = step(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = Math.max(next, 0);
+            for (int out = keywordAt[state] >= 0 ? state : outputLink[state]; out != 0; out = outputLink[out]) {
+                int keyword = keywordAt[out];
+                sink.accept(keyword, i + 1 - keywordLengths[keyword], i + 1);
+            }
+        }
+    }
+
+    /**
+     * The goto function: the state reached from {@code state} on {@code c}, or -1.
+     */
+    private int step(int state, char c) {
+        if (state == 0 && c < 256) {
+            int next = rootLatin1[c];
+            return next != 0 ? next : -1;
+        }
+        int from = edgeStart[state];
+        int to = edgeStart[state + 1];
+        int index = Arrays.binarySearch(edgeChars, from, to, c);
+        return index >= 0 ? edgeTargets[index] : -1;
+    }
+
+    private char fold(char c) {
+        return ignoreCase ? SpanHash.fold(c) : c;
+    }
+
+    @FunctionalInterface
+    interface MatchSink {
+        void accept(int keyword, int start, int end);
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.bluething.textflow.domain.rules;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * An estimated number of distinct items, with the sketch it was read from so
+ * results for separate inputs can be merged.
+ *
+ * @param estimate      the estimated distinct count
+ * @param standardError the relative standard error of the estimate
+ * @param sketch        a copy of the sketch behind the estimate
+ */
+public record DistinctCountResult(long estimate, double standardError, HyperLogLog sketch)
+        implements IndexingRuleResult, Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public DistinctCountResult {
+        sketch = sketch.copy();
+    }
+
+    public static DistinctCountResult of(HyperLogLog sketch) {
+        return new DistinctCountResult(sketch.estimate(), sketch.standardError(), sketch);
+    }
+
+    @Override
+    public HyperLogLog sketch() {
+        return sketch.copy();
+    }
+
+    @Override
+    public String getDisplayValue() {
+        return String.format("~%d (±%.1f%%)", estimate, standardError * 100);
+    }
+
+    @Override
+    public Object getValue() {
+        return estimate;
+    }
+}
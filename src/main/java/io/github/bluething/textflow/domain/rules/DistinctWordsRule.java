@@ -0,0 +1,85 @@
+package io.github.bluething.textflow.domain.rules;
+
+import io.github.bluething.textflow.domain.TextContent;
+import io.github.bluething.textflow.domain.tokenization.SpanHash;
+import io.github.bluething.textflow.domain.tokenization.TokenKind;
+import io.github.bluething.textflow.domain.tokenization.TokenizationConfig;
+
+/**
+ * Estimates how many distinct words, ignoring case, are at least a given length,
+ * in a fixed-size {@link HyperLogLog} sketch instead of a set of the words.
+ */
+public class DistinctWordsRule extends SmartTokenizingRule implements AccumulatingRule {
+    private final int minLength;
+    private final int precision;
+
+    public DistinctWordsRule() {
+        this(1, HyperLogLog.DEFAULT_PRECISION);
+    }
+
+    public DistinctWordsRule(int minLength, int precision) {
+        super();
+        this.minLength = minLength;
+        this.precision = HyperLogLog.checkPrecision(precision);
+    }
+
+    public DistinctWordsRule(TokenizationConfig config, int minLength, int precision) {
+        super(config);
+        this.minLength = minLength;
+        this.precision = HyperLogLog.checkPrecision(precision);
+    }
+
+    @Override
+    public String getName() {
+        return minLength <= 1
+                ? "Distinct words (estimated)"
+                : "Distinct words longer than " + (minLength - 1) + " characters (estimated)";
+    }
+
+    @Override
+    public IndexingRuleResult apply(TextContent content) {
+        TokenVisitor visitor = newVisitor();
+        if (!content.isEmpty()) {
+            tokenize(content.content(), visitor::onToken);
+        }
+        return visitor.finish();
+    }
+
+    @Override
+    public RuleAccumulator<?> accumulator() {
+        return new RuleAccumulator<HyperLogLog>() {
+            @Override
+            public HyperLogLog empty() {
+                return new HyperLogLog(precision);
+            }
+
+            @Override
+            public HyperLogLog accumulate(HyperLogLog state, CharSequence text, int start, int end,
+                                          TokenKind kind) {
+                if (end - start >= minLength) {
+                    state.add(SpanHash.foldedHash64(text, start, end));
+                }
+                return state;
+            }
+
+            @Override
+            public HyperLogLog merge(HyperLogLog first, HyperLogLog second) {
+                first.merge(second);
+                return first;
+            }
+
+            @Override
+            public IndexingRuleResult finish(HyperLogLog state) {
+                return DistinctCountResult.of(state);
+            }
+
+            @Override
+            public HyperLogLog fromResult(IndexingRuleResult result) {
+                if (!(result instanceof DistinctCountResult distinct)) {
+                    throw new IllegalArgumentException("Expected a DistinctCountResult, got " + result);
+                }
+                return distinct.sketch();
+            }
+        };
+    }
+}
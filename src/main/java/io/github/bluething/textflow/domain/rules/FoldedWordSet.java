@@ -0,0 +1,147 @@
+package io.github.bluething.textflow.domain.rules;
+
+import io.github.bluething.textflow.domain.tokenization.SpanHash;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Insertion-ordered set of lower-cased words, looked up by spans of a text. A set
+ * made not to fold case keeps words as they are instead.
+ * <p>
+ * Spans are hashed and compared with the stored words one folded character at a
+ * time, so a word already in the set costs no allocation; a {@code String} is
+ * made only the first time a word is added. The set is an open-addressing table
+ * of indexes into the insertion-ordered word array, kept at most half full.
+ */
+final class FoldedWordSet {
+    // Header plus hash, coder and value fields of a String, and its char array header
+    private static final int STRING_OVERHEAD = 56;
+
+    private final boolean foldCase;
+    private int[] table = new int[32]; // index + 1, 0 marks a free slot
+    private int[] hashes = new int[16];
+    private String[] words = new String[16];
+    private int size;
+    private long wordBytes;
+
+    FoldedWordSet() {
+        this(true);
+    }
+
+    FoldedWordSet(boolean foldCase) {
+        this.foldCase = foldCase;
+    }
+
+    /**
+     * Adds the lower-cased span {@code [start, end)} of {@code text}.
+     *
+     * @return true if the word was not present before
+     */
+    boolean add(CharSequence text, int start, int end) {
+        int hash = hash(text, start, end);
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int index = table[slot] - 1;
+            if (index < 0) {
+                table[slot] = size + 1;
+                append(hash, fold(text, start, end));
+                return true;
+            }
+            if (hashes[index] == hash && matches(words[index], text, start, end)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Adds {@code word}, which must already be folded, without copying it.
+     */
+    boolean add(String word) {
+        int hash = hash(word, 0, word.length());
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int index = table[slot] - 1;
+            if (index < 0) {
+                table[slot] = size + 1;
+                append(hash, word);
+                return true;
+            }
+            if (hashes[index] == hash && words[index].equals(word)) {
+                return false;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The word added {@code index}-th.
+     */
+    String get(int index) {
+        return words[index];
+    }
+
+    List<String> toList() {
+        return List.of(Arrays.copyOf(words, size));
+    }
+
+    /**
+     * Approximate heap bytes held by the set: its arrays plus the words it made.
+     */
+    long footprintBytes() {
+        return 4L * table.length + 4L * hashes.length + 8L * words.length + wordBytes;
+    }
+
+    private void append(int hash, String word) {
+        if (size == words.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            words = Arrays.copyOf(words, size * 2);
+        }
+        hashes[size] = hash;
+        words[size] = word;
+        wordBytes += STRING_OVERHEAD + 2L * word.length();
+        size++;
+        if (size * 2 > table.length) {
+            table = new int[table.length * 2];
+            int mask = table.length - 1;
+            for (int i = 0; i < size; i++) {
+                int slot = hashes[i] & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = i + 1;
+            }
+        }
+    }
+
+    private String fold(CharSequence text, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = key(text.charAt(i));
+        }
+        return new String(chars);
+    }
+
+    private boolean matches(String word, CharSequence text, int start, int end) {
+        if (word.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (word.charAt(i - start) != key(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hash(CharSequence text, int start, int end) {
+        return foldCase ? SpanHash.foldedHash(text, start, end) : SpanHash.hash(text, start, end);
+    }
+
+    private char key(char c) {
+        return foldCase ? SpanHash.fold(c) : c;
+    }
+}
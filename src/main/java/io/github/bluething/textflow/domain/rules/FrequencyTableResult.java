@@ -0,0 +1,269 @@
+package io.github.bluething.textflow.domain.rules;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * A table of terms and their counts, held in parallel arrays sorted by term so
+ * counts are never boxed. Accessors read the arrays in place; only
+ * {@link #terms()} and {@link #counts()} copy them.
+ * <p>
+ * A class rather than a record, so the tables this class builds itself are kept
+ * without the copy the public constructor makes of arrays it is given.
+ */
+public final class FrequencyTableResult implements IndexingRuleResult {
+    private static final int FORMAT_VERSION = 1;
+    // Arrays read from a stream grow toward the size it claims, so a corrupt size hits the end of input first
+    private static final int READ_CHUNK = 8192;
+
+    private final String[] terms;
+    private final long[] counts;
+
+    /**
+     * @param terms  the distinct terms, in ascending order
+     * @param counts the count of the term at the same index
+     */
+    public FrequencyTableResult(String[] terms, long[] counts) {
+        if (terms.length != counts.length) {
+            throw new IllegalArgumentException("Got " + terms.length + " terms but " + counts.length + " counts");
+        }
+        for (int i = 1; i < terms.length; i++) {
+            if (terms[i - 1].compareTo(terms[i]) >= 0) {
+                throw new IllegalArgumentException("Terms must be distinct and ascending, got '"
+                        + terms[i - 1] + "' before '" + terms[i] + "'");
+            }
+        }
+        this.terms = terms.clone();
+        this.counts = counts.clone();
+    }
+
+    /**
+     * Keeps the first {@code size} entries of arrays built here, already sorted,
+     * copying them only to trim them.
+     */
+    private FrequencyTableResult(String[] terms, long[] counts, int size) {
+        this.terms = size == terms.length ? terms : Arrays.copyOf(terms, size);
+        this.counts = size == counts.length ? counts : Arrays.copyOf(counts, size);
+    }
+
+    /**
+     * Builds a table from terms in any order, adding up the counts of repeated terms.
+     */
+    public static FrequencyTableResult of(String[] terms, long[] counts) {
+        if (terms.length != counts.length) {
+            throw new IllegalArgumentException("Got " + terms.length + " terms but " + counts.length + " counts");
+        }
+        Integer[] order = new Integer[terms.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (first, second) -> terms[first].compareTo(terms[second]));
+
+        String[] sortedTerms = new String[terms.length];
+        long[] sortedCounts = new long[terms.length];
+        int size = 0;
+        for (int index : order) {
+            if (size > 0 && sortedTerms[size - 1].equals(terms[index])) {
+                sortedCounts[size - 1] += counts[index];
+            } else {
+                sortedTerms[size] = terms[index];
+                sortedCounts[size++] = counts[index];
+            }
+        }
+        return new FrequencyTableResult(sortedTerms, sortedCounts, size);
+    }
+
+    public static FrequencyTableResult of(Map<String, Long> counts) {
+        return of(counts.keySet().toArray(String[]::new),
+                counts.values().stream().mapToLong(Long::longValue).toArray());
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    public String termAt(int index) {
+        return terms[index];
+    }
+
+    public long countAt(int index) {
+        return counts[index];
+    }
+
+    /**
+     * The count of {@code term}, or 0 if the table does not hold it.
+     */
+    public long countOf(String term) {
+        int index = Arrays.binarySearch(terms, term);
+        return index >= 0 ? counts[index] : 0;
+    }
+
+    public long total() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * A read-only view of the counts, in term order.
+     */
+    public LongBuffer countBuffer() {
+        return LongBuffer.wrap(counts).asReadOnlyBuffer();
+    }
+
+    public void forEach(TermCountConsumer consumer) {
+        for (int i = 0; i < terms.length; i++) {
+            consumer.accept(terms[i], counts[i]);
+        }
+    }
+
+    /**
+     * Adds up this table and {@code other} in one pass over both.
+     */
+    public FrequencyTableResult merge(FrequencyTableResult other) {
+        String[] mergedTerms = new String[terms.length + other.terms.length];
+        long[] mergedCounts = new long[mergedTerms.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < terms.length || j < other.terms.length) {
+            int order = i == terms.length ? 1
+                    : j == other.terms.length ? -1
+                    : terms[i].compareTo(other.terms[j]);
+            if (order <= 0) {
+                mergedTerms[size] = terms[i];
+                mergedCounts[size] = counts[i++];
+                if (order == 0) {
+                    mergedCounts[size] += other.counts[j++];
+                }
+            } else {
+                mergedTerms[size] = other.terms[j];
+                mergedCounts[size] = other.counts[j++];
+            }
+            size++;
+        }
+        return new FrequencyTableResult(mergedTerms, mergedCounts, size);
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        out.writeInt(terms.length);
+        for (int i = 0; i < terms.length; i++) {
+            // Not writeUTF, which cannot write terms over 64 KB
+            byte[] term = terms[i].getBytes(StandardCharsets.UTF_8);
+            out.writeInt(term.length);
+            out.write(term);
+            out.writeLong(counts[i]);
+        }
+    }
+
+    /**
+     * Reads a table {@link #writeTo(DataOutput)} wrote.
+     *
+     * @throws IOException if the input ends early or is not a table
+     */
+    public static FrequencyTableResult readFrom(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported frequency table format " + version);
+        }
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Negative frequency table size " + size);
+        }
+        String[] terms = new String[Math.min(size, READ_CHUNK)];
+        long[] counts = new long[terms.length];
+        for (int i = 0; i < size; i++) {
+            if (i == terms.length) {
+                terms = Arrays.copyOf(terms, (int) Math.min(size, 2L * i));
+                counts = Arrays.copyOf(counts, terms.length);
+            }
+            terms[i] = new String(readTerm(in), StandardCharsets.UTF_8);
+            counts[i] = in.readLong();
+            if (i > 0 && terms[i - 1].compareTo(terms[i]) >= 0) {
+                throw new IOException("Frequency table terms out of order: '"
+                        + terms[i - 1] + "' before '" + terms[i] + "'");
+            }
+        }
+        return new FrequencyTableResult(terms, counts, size);
+    }
+
+    private static byte[] readTerm(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative frequency table term length " + length);
+        }
+        byte[] term = new byte[Math.min(length, READ_CHUNK)];
+        in.readFully(term);
+        while (term.length < length) {
+            int read = term.length;
+            term = Arrays.copyOf(term, (int) Math.min(length, 2L * read));
+            in.readFully(term, read, term.length - read);
+        }
+        return term;
+    }
+
+    /**
+     * A copy of the terms, in ascending order.
+     */
+    public String[] terms() {
+        return terms.clone();
+    }
+
+    /**
+     * A copy of the counts, in term order.
+     */
+    public long[] counts() {
+        return counts.clone();
+    }
+
+    @Override
+    public String getDisplayValue() {
+        var display = new StringJoiner(", ", "{", "}");
+        for (int i = 0; i < Math.min(terms.length, 10); i++) {
+            display.add(terms[i] + "=" + counts[i]);
+        }
+        // For large tables, show the first 10 entries and indicate there are more
+        return terms.length <= 10
+                ? display.toString()
+                : display + " ... (and " + (terms.length - 10) + " more)";
+    }
+
+    /**
+     * The counts, as {@link #countBuffer()} returns them.
+     */
+    @Override
+    public Object getValue() {
+        return countBuffer();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FrequencyTableResult other
+                && Arrays.equals(terms, other.terms)
+                && Arrays.equals(counts, other.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(terms) + Arrays.hashCode(counts);
+    }
+
+    @Override
+    public String toString() {
+        return "FrequencyTableResult" + getDisplayValue();
+    }
+
+    @FunctionalInterface
+    public interface TermCountConsumer {
+        void accept(String term, long count);
+    }
+}
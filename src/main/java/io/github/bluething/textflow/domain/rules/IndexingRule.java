@@ -2,6 +2,7 @@ package io.github.bluething.textflow.domain.rules;
 
 import io.github.bluething.textflow.domain.TextContent;
 import io.github.bluething.textflow.domain.tokenization.TokenizationConfig;
+import io.github.bluething.textflow.domain.tokenization.TokenizedText;
 
 public interface IndexingRule {
     /**
@@ -17,6 +18,26 @@ public interface IndexingRule {
      */
     IndexingRuleResult apply(TextContent content);
 
+    /**
+     * Applies this rule to content that has already been tokenized with
+     * {@link #getTokenizationConfig()}, so rules sharing a config share one tokenization.
+     *
+     * @param content The text content to analyze
+     * @param tokens  The tokens of {@code content}
+     * @return The result of applying this rule
+     */
+    default IndexingRuleResult apply(TextContent content, TokenizedText tokens) {
+        return apply(content);
+    }
+
+    /**
+     * Gets the tokenization this rule expects in {@link #apply(TextContent, TokenizedText)},
+     * or null if the rule does not work on tokens.
+     */
+    default TokenizationConfig getTokenizationConfig() {
+        return null;
+    }
+
     default void setTokenizationConfig(TokenizationConfig config) {
         // Default: no-op
     }
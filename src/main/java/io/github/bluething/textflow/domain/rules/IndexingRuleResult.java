@@ -1,6 +1,9 @@
 package io.github.bluething.textflow.domain.rules;
 
-public sealed interface IndexingRuleResult permits CountResult, ListResult {
+import java.util.Collection;
+
+public sealed interface IndexingRuleResult permits CountResult, ListResult, DistinctCountResult, TopTermsResult,
+        MinHashResult, FrequencyTableResult, OffsetListResult {
     /**
      * Gets a human-readable display representation of the result.
      */
@@ -10,4 +13,16 @@ public sealed interface IndexingRuleResult permits CountResult, ListResult {
      * Gets the raw result value for programmatic access.
      */
     Object getValue();
+
+    /**
+     * Frees what the results hold beyond the heap, such as the file behind a
+     * spilled {@link ListResult}. They must not be read afterwards.
+     */
+    static void closeAll(Collection<IndexingRuleResult> results) {
+        for (IndexingRuleResult result : results) {
+            if (result instanceof ListResult list) {
+                list.close();
+            }
+        }
+    }
 }
@@ -0,0 +1,164 @@
+package io.github.bluething.textflow.domain.rules;
+
+import io.github.bluething.textflow.domain.TextContent;
+import io.github.bluething.textflow.domain.tokenization.SmartTokenizer;
+import io.github.bluething.textflow.domain.tokenization.SpanHash;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Counts the occurrences of every keyword of a watch list in one pass over the
+ * content, however many keywords there are, with an {@link AhoCorasick} automaton.
+ * Keywords may span several words. Counts come as a {@link FrequencyTableResult} of
+ * the keywords that occur, summed over documents when results are merged.
+ */
+public class KeywordMatchRule implements MergeableRule {
+    private final List<String> keywords;
+    private final boolean ignoreCase;
+    private final boolean wholeWords;
+    private final AhoCorasick automaton;
+    private final boolean[] startsWithWord;
+    private final boolean[] endsWithWord;
+
+    private KeywordMatchRule(Builder builder) {
+        this.ignoreCase = builder.ignoreCase;
+        this.wholeWords = builder.wholeWords;
+        // Keywords equal after case folding are one keyword, under its first spelling
+        Map<String, String> distinct = new LinkedHashMap<>();
+        for (String keyword : builder.keywords) {
+            distinct.putIfAbsent(ignoreCase ? fold(keyword) : keyword, keyword);
+        }
+        this.keywords = List.copyOf(distinct.values());
+        this.automaton = new AhoCorasick(keywords, ignoreCase);
+        this.startsWithWord = new boolean[keywords.size()];
+        this.endsWithWord = new boolean[keywords.size()];
+        for (int i = 0; i < keywords.size(); i++) {
+            String keyword = keywords.get(i);
+            startsWithWord[i] = SmartTokenizer.isWordChar(keyword.charAt(0));
+            endsWithWord[i] = SmartTokenizer.isWordChar(keyword.charAt(keyword.length() - 1));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Keyword hits";
+    }
+
+    @Override
+    public IndexingRuleResult apply(TextContent content) {
+        long[] hits = new long[keywords.size()];
+        if (!content.isEmpty()) {
+            String text = content.content();
+            automaton.match(text, (keyword, start, end) -> {
+                if (!wholeWords || isWholeWord(text, keyword, start, end)) {
+                    hits[keyword]++;
+                }
+            });
+        }
+
+        String[] found = new String[hits.length];
+        long[] counts = new long[hits.length];
+        int size = 0;
+        for (int i = 0; i < hits.length; i++) {
+            if (hits[i] > 0) {
+                found[size] = keywords.get(i);
+                counts[size++] = hits[i];
+            }
+        }
+        return FrequencyTableResult.of(Arrays.copyOf(found, size), Arrays.copyOf(counts, size));
+    }
+
+    @Override
+    public IndexingRuleResult merge(List<IndexingRuleResult> results) {
+        var total = FrequencyTableResult.of(new String[0], new long[0]);
+        for (IndexingRuleResult result : results) {
+            if (!(result instanceof FrequencyTableResult table)) {
+                throw new IllegalArgumentException("Expected a FrequencyTableResult, got " + result);
+            }
+            total = total.merge(table);
+        }
+        return total;
+    }
+
+    public List<String> getKeywords() {
+        return keywords;
+    }
+
+    /**
+     * Whether the match neither starts nor ends inside a word, by the tokenizer's
+     * word boundaries. Edges of the keyword that are not word characters match anywhere.
+     */
+    private boolean isWholeWord(CharSequence text, int keyword, int start, int end) {
+        return (!startsWithWord[keyword] || SmartTokenizer.isWordBoundary(text, start))
+                && (!endsWithWord[keyword] || SmartTokenizer.isWordBoundary(text, end));
+    }
+
+    private static String fold(String keyword) {
+        char[] chars = keyword.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = SpanHash.fold(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    public static class Builder {
+        private final Set<String> keywords = new LinkedHashSet<>();
+        private boolean ignoreCase = true;
+        private boolean wholeWords = true;
+
+        public Builder addKeyword(String keyword) {
+            String trimmed = keyword.strip();
+            if (!trimmed.isEmpty()) {
+                keywords.add(trimmed);
+            }
+            return this;
+        }
+
+        public Builder withKeywords(Collection<String> keywords) {
+            keywords.forEach(this::addKeyword);
+            return this;
+        }
+
+        /**
+         * Adds the keywords of a UTF-8 file, one per line. Blank lines and lines
+         * starting with {@code #} are skipped.
+         */
+        public Builder withKeywordFile(Path file) throws IOException {
+            List<String> lines = new ArrayList<>(Files.readAllLines(file, StandardCharsets.UTF_8));
+            lines.removeIf(line -> line.isBlank() || line.strip().startsWith("#"));
+            return withKeywords(lines);
+        }
+
+        public Builder withIgnoreCase(boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+            return this;
+        }
+
+        /**
+         * Whether a keyword only counts where it starts and ends at word boundaries,
+         * so "cat" does not match in "concatenate".
+         */
+        public Builder withWholeWords(boolean wholeWords) {
+            this.wholeWords = wholeWords;
+            return this;
+        }
+
+        public KeywordMatchRule build() {
+            if (keywords.isEmpty()) {
+                throw new IllegalStateException("At least one keyword must be configured");
+            }
+            return new KeywordMatchRule(this);
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package io.github.bluething.textflow.domain.rules;
 
 import java.util.List;
+import java.util.stream.Stream;
 
-public record ListResult(List<String> items) implements IndexingRuleResult {
+/**
+ * A list of words. The list may be backed by a temporary file rather than the
+ * heap, as when {@link LongWordsRule} spills; prefer iterating or {@link #stream()}
+ * over indexing such a list, and {@link #close()} it once done with.
+ */
+public record ListResult(List<String> items) implements IndexingRuleResult, AutoCloseable {
     @Override
     public String getDisplayValue() {
         if (items.isEmpty()) {
@@ -18,8 +24,27 @@ public record ListResult(List<String> items) implements IndexingRuleResult {
         return preview + " ... (and " + (items.size() - 10) + " more)";
     }
 
+    /**
+     * Streams the items in order, reading a file-backed list as it goes.
+     * Close the stream to release the file if it is not read to the end.
+     */
+    public Stream<String> stream() {
+        return items.stream();
+    }
+
     @Override
     public Object getValue() {
         return items;
     }
+
+    /**
+     * Deletes the file behind a file-backed list, which must not be read afterwards.
+     * Does nothing for a list on the heap.
+     */
+    @Override
+    public void close() {
+        if (items instanceof SpilledWordList spilled) {
+            spilled.close();
+        }
+    }
 }
@@ -1,15 +1,30 @@
 package io.github.bluething.textflow.domain.rules;
 
 import io.github.bluething.textflow.domain.TextContent;
+import io.github.bluething.textflow.domain.tokenization.TokenKind;
 import io.github.bluething.textflow.domain.tokenization.TokenizationConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.LinkedHashSet;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.SequencedSet;
-import java.util.stream.Collectors;
 
-public class LongWordsRule extends SmartTokenizingRule {
+/**
+ * Lists the distinct words of at least a given length, lower-cased, in the order
+ * they first occur. For a document tokenized a window or a chunk at a time, that
+ * is the order of the windows, each in the order the tokenizer reports it.
+ * <p>
+ * With a memory cap, a document whose words outgrow the cap has them spilled to
+ * sorted runs in temporary files, merged back when the document is done; the
+ * resulting {@link ListResult} is then read from a file as it is iterated, until
+ * it is closed.
+ */
+public class LongWordsRule extends SmartTokenizingRule implements AccumulatingRule {
+    private static final Logger logger = LoggerFactory.getLogger(LongWordsRule.class);
+
     private final int minLength;
+    private final long memoryCapBytes;
+    private final Path spillDirectory;
 
     public LongWordsRule() {
         this(6); // Longer than 5 means 6 or more
@@ -18,11 +33,33 @@ public class LongWordsRule extends SmartTokenizingRule {
     public LongWordsRule(int minLength) {
         super();
         this.minLength = minLength;
+        this.memoryCapBytes = Long.MAX_VALUE;
+        this.spillDirectory = SpillingWordSet.defaultSpillDirectory();
     }
 
     public LongWordsRule(TokenizationConfig config, int minLength) {
         super(config);
         this.minLength = minLength;
+        this.memoryCapBytes = Long.MAX_VALUE;
+        this.spillDirectory = SpillingWordSet.defaultSpillDirectory();
+    }
+
+    /**
+     * @param memoryCapBytes heap the words of one document may take before they are
+     *                       spilled to the default temporary directory
+     */
+    public LongWordsRule(int minLength, long memoryCapBytes) {
+        super();
+        this.minLength = minLength;
+        this.memoryCapBytes = SpillingWordSet.checkMemoryCap(memoryCapBytes);
+        this.spillDirectory = SpillingWordSet.defaultSpillDirectory();
+    }
+
+    public LongWordsRule(TokenizationConfig config, int minLength, long memoryCapBytes, Path spillDirectory) {
+        super(config);
+        this.minLength = minLength;
+        this.memoryCapBytes = SpillingWordSet.checkMemoryCap(memoryCapBytes);
+        this.spillDirectory = spillDirectory;
     }
 
     @Override
@@ -35,15 +72,62 @@ public class LongWordsRule extends SmartTokenizingRule {
         if (content.isEmpty()) {
             return new ListResult(List.of());
         }
+        return apply(content, tokenizeText(content.content()));
+    }
+
+    @Override
+    public RuleAccumulator<?> accumulator() {
+        // Lower-cased words in first-seen order, each copied out of the text once
+        return new RuleAccumulator<SpillingWordSet>() {
+            @Override
+            public SpillingWordSet empty() {
+                return new SpillingWordSet(memoryCapBytes, spillDirectory);
+            }
+
+            @Override
+            public SpillingWordSet accumulate(SpillingWordSet state, CharSequence text, int start, int end,
+                                              TokenKind kind) {
+                if (end - start >= minLength) {
+                    state.add(text, start, end);
+                }
+                return state;
+            }
+
+            @Override
+            public SpillingWordSet merge(SpillingWordSet first, SpillingWordSet second) {
+                List<String> words = second.toList();
+                try {
+                    words.forEach(first::add);
+                } finally {
+                    // The file of a spilled list goes now, not when the list is collected
+                    if (words instanceof SpilledWordList spilled) {
+                        spilled.close();
+                    }
+                }
+                return first;
+            }
 
-        List<String> tokens = tokenize(content.content());
+            @Override
+            public IndexingRuleResult finish(SpillingWordSet state) {
+                logger.debug("'{}' holds words in about {} bytes{}", getName(), state.footprintBytes(),
+                        state.hasSpilled() ? " and has spilled the rest" : "");
+                return new ListResult(state.toList());
+            }
 
-        // Use SequencedSet for better performance with ordered operations
-        SequencedSet<String> longWords = tokens.stream()
-                .filter(word -> word.length() >= minLength)
-                .map(String::toLowerCase)
-                .collect(Collectors.toCollection(LinkedHashSet::new));
+            @Override
+            public SpillingWordSet fromResult(IndexingRuleResult result) {
+                if (!(result instanceof ListResult(List<String> items))) {
+                    throw new IllegalArgumentException("Expected a ListResult, got " + result);
+                }
+                var state = empty();
+                items.forEach(state::add);
+                return state;
+            }
 
-        return new ListResult(longWords.stream().toList());
+            @Override
+            public void release(SpillingWordSet state) {
+                state.close();
+            }
+        };
     }
 }
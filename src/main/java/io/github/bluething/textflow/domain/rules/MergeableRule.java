@@ -0,0 +1,18 @@
+package io.github.bluething.textflow.domain.rules;
+
+import java.util.List;
+
+/**
+ * A rule whose results for separate inputs can be combined into one, as
+ * {@link io.github.bluething.textflow.domain.FileProcessor#aggregateResults} does
+ * over the files of a run.
+ */
+public interface MergeableRule extends IndexingRule {
+
+    /**
+     * Combines results this rule produced for separate inputs, in input order.
+     *
+     * @throws IllegalArgumentException if a result is not one this rule produces
+     */
+    IndexingRuleResult merge(List<IndexingRuleResult> results);
+}
@@ -0,0 +1,93 @@
+package io.github.bluething.textflow.domain.rules;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A MinHash signature of a document's word shingles. The fraction of positions
+ * at which two signatures agree estimates the Jaccard similarity of the two
+ * documents' shingle sets.
+ *
+ * @param shingleSize the number of words per shingle
+ * @param shingles    the number of shingles hashed, counting repeats
+ * @param signature   the smallest value of each hash function over the shingles
+ */
+public record MinHashResult(int shingleSize, long shingles, long[] signature)
+        implements IndexingRuleResult, Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public MinHashResult {
+        signature = signature.clone();
+    }
+
+    @Override
+    public long[] signature() {
+        return signature.clone();
+    }
+
+    /**
+     * Estimated Jaccard similarity of the shingle sets behind this signature and
+     * {@code other}, from 0 to 1.
+     *
+     * @throws IllegalArgumentException if the signatures were not computed alike
+     */
+    public double similarity(MinHashResult other) {
+        if (other.shingleSize != shingleSize || other.signature.length != signature.length) {
+            throw new IllegalArgumentException("Signatures of " + signature.length + " " + shingleSize
+                    + "-word shingles and " + other.signature.length + " " + other.shingleSize
+                    + "-word shingles cannot be compared");
+        }
+        if (shingles == 0 || other.shingles == 0) {
+            return shingles == other.shingles ? 1 : 0;
+        }
+        int agreeing = 0;
+        for (int i = 0; i < signature.length; i++) {
+            if (signature[i] == other.signature[i]) {
+                agreeing++;
+            }
+        }
+        return (double) agreeing / signature.length;
+    }
+
+    /**
+     * The signature value at {@code index}, without copying the signature.
+     */
+    public long valueAt(int index) {
+        return signature[index];
+    }
+
+    public int size() {
+        return signature.length;
+    }
+
+    @Override
+    public String getDisplayValue() {
+        return String.format("%d-value signature of %d shingles", signature.length, shingles);
+    }
+
+    @Override
+    public Object getValue() {
+        return signature();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof MinHashResult other
+                && shingleSize == other.shingleSize
+                && shingles == other.shingles
+                && Arrays.equals(signature, other.signature);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * shingleSize + Long.hashCode(shingles)) + Arrays.hashCode(signature);
+    }
+
+    @Override
+    public String toString() {
+        return "MinHashResult[shingleSize=" + shingleSize + ", shingles=" + shingles
+                + ", signature=" + Arrays.toString(signature) + "]";
+    }
+}
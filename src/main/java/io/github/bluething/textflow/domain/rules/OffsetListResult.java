@@ -0,0 +1,135 @@
+package io.github.bluething.textflow.domain.rules;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.StringJoiner;
+import java.util.stream.IntStream;
+
+/**
+ * A list of character offsets, such as where a term occurs, held in an
+ * {@code int} array. Accessors read the array in place; only {@link #offsets()}
+ * copies it.
+ * <p>
+ * A class rather than a record for the same reason as {@link FrequencyTableResult}.
+ */
+public final class OffsetListResult implements IndexingRuleResult {
+    private static final int FORMAT_VERSION = 1;
+    // As in FrequencyTableResult, a corrupt size hits the end of input before it is allocated
+    private static final int READ_CHUNK = 8192;
+
+    private final int[] offsets;
+
+    /**
+     * @param offsets the offsets, in the order the rule reported them
+     */
+    public OffsetListResult(int[] offsets) {
+        this(offsets.clone(), offsets.length);
+    }
+
+    /**
+     * Keeps the first {@code size} offsets of an array built here.
+     */
+    private OffsetListResult(int[] offsets, int size) {
+        this.offsets = size == offsets.length ? offsets : Arrays.copyOf(offsets, size);
+    }
+
+    public static OffsetListResult of(int... offsets) {
+        return new OffsetListResult(offsets);
+    }
+
+    public int size() {
+        return offsets.length;
+    }
+
+    public int offsetAt(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * A read-only view of the offsets.
+     */
+    public IntBuffer offsetBuffer() {
+        return IntBuffer.wrap(offsets).asReadOnlyBuffer();
+    }
+
+    public IntStream stream() {
+        return Arrays.stream(offsets);
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        out.writeInt(offsets.length);
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+    }
+
+    /**
+     * Reads a list {@link #writeTo(DataOutput)} wrote.
+     *
+     * @throws IOException if the input ends early or is not an offset list
+     */
+    public static OffsetListResult readFrom(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported offset list format " + version);
+        }
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Negative offset list size " + size);
+        }
+        int[] offsets = new int[Math.min(size, READ_CHUNK)];
+        for (int i = 0; i < size; i++) {
+            if (i == offsets.length) {
+                offsets = Arrays.copyOf(offsets, (int) Math.min(size, 2L * i));
+            }
+            offsets[i] = in.readInt();
+        }
+        return new OffsetListResult(offsets, size);
+    }
+
+    /**
+     * A copy of the offsets.
+     */
+    public int[] offsets() {
+        return offsets.clone();
+    }
+
+    @Override
+    public String getDisplayValue() {
+        var display = new StringJoiner(", ", "[", "]");
+        for (int i = 0; i < Math.min(offsets.length, 10); i++) {
+            display.add(Integer.toString(offsets[i]));
+        }
+        // For long lists, show the first 10 offsets and indicate there are more
+        return offsets.length <= 10
+                ? display.toString()
+                : display + " ... (and " + (offsets.length - 10) + " more)";
+    }
+
+    /**
+     * The offsets, as {@link #offsetBuffer()} returns them.
+     */
+    @Override
+    public Object getValue() {
+        return offsetBuffer();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof OffsetListResult other && Arrays.equals(offsets, other.offsets);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(offsets);
+    }
+
+    @Override
+    public String toString() {
+        return "OffsetListResult" + getDisplayValue();
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.bluething.textflow.domain.rules;
+
+import io.github.bluething.textflow.domain.tokenization.TokenKind;
+
+/**
+ * An associative fold of a rule over token streams, in the spirit of
+ * {@link java.util.stream.Collector}. Partial states built over separate
+ * documents, shards or workers can be merged into one total without reading
+ * the text again.
+ * <p>
+ * {@link #merge(Object, Object)} must be associative with {@link #empty()} as its
+ * identity, and treats the tokens of its first argument as coming before those
+ * of its second. {@link #accumulate} and {@code merge} may modify and return
+ * their first argument; {@link #finish(Object)} must leave its argument intact.
+ * A state no longer needed is passed to {@link #release(Object)}.
+ * <p>
+ * A state covers whole documents: merging two states adds up documents, it does
+ * not join two parts of one. Chunks of a document are therefore not accumulated
+ * apart and merged. The chunks do not overlap; the obstacle is that rules such as
+ * {@link UppercaseWordCountRule} count distinct words per document, so merging
+ * two chunks' states would count twice a word found in both, and chunk merges
+ * would not agree with document merges. Parallel lexing of one document is
+ * merged at the level of distinct tokens instead, before any rule sees them.
+ *
+ * @param <A> the mutable state of the fold
+ */
+public interface RuleAccumulator<A> {
+
+    A empty();
+
+    A accumulate(A state, CharSequence text, int start, int end, TokenKind kind);
+
+    A merge(A first, A second);
+
+    IndexingRuleResult finish(A state);
+
+    /**
+     * Recovers a state from a result {@link #finish(Object)} produced, so results
+     * computed elsewhere, such as by other workers, can be merged.
+     *
+     * @throws IllegalArgumentException if {@code result} is not of this rule's type
+     */
+    A fromResult(IndexingRuleResult result);
+
+    /**
+     * Frees what {@code state} holds beyond the heap, such as temporary files,
+     * once it has been finished or merged into another state.
+     */
+    default void release(A state) {
+    }
+}
@@ -0,0 +1,158 @@
+package io.github.bluething.textflow.domain.rules;
+
+import io.github.bluething.textflow.domain.TextContent;
+import io.github.bluething.textflow.domain.tokenization.SpanHash;
+import io.github.bluething.textflow.domain.tokenization.TokenKind;
+import io.github.bluething.textflow.domain.tokenization.TokenizationConfig;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Fingerprints a document by the MinHash signature of its shingles: every run of
+ * {@code shingleSize} consecutive tokens, ignoring case. Near-duplicate documents
+ * share most shingles and so most signature values; see {@link MinHashResult}.
+ * <p>
+ * Shingles are hashed with a polynomial rolling hash over per-token hashes, so
+ * each token costs one hash plus one update per signature value, whatever the
+ * shingle size. A document shorter than one shingle is hashed as a single shingle.
+ */
+public class ShingleFingerprintRule extends SmartTokenizingRule implements TokenVisitingRule {
+    public static final int DEFAULT_SHINGLE_SIZE = 5;
+    public static final int DEFAULT_SIGNATURE_SIZE = 128;
+
+    private static final long ROLLING_BASE = 0x9E3779B97F4A7C15L;
+    // Fixed so signatures computed in separate runs can be compared
+    private static final long SEED = 0x5F3759DF_6A09E667L;
+
+    private final int shingleSize;
+    private final long basePower; // ROLLING_BASE^(shingleSize - 1), to drop a token from the window
+    private final long[] multipliers;
+    private final long[] increments;
+
+    public ShingleFingerprintRule() {
+        this(DEFAULT_SHINGLE_SIZE, DEFAULT_SIGNATURE_SIZE);
+    }
+
+    public ShingleFingerprintRule(int shingleSize, int signatureSize) {
+        super();
+        this.shingleSize = checkShingleSize(shingleSize);
+        this.basePower = power(shingleSize - 1);
+        this.multipliers = new long[checkSignatureSize(signatureSize)];
+        this.increments = new long[signatureSize];
+        initHashFunctions();
+    }
+
+    public ShingleFingerprintRule(TokenizationConfig config, int shingleSize, int signatureSize) {
+        super(config);
+        this.shingleSize = checkShingleSize(shingleSize);
+        this.basePower = power(shingleSize - 1);
+        this.multipliers = new long[checkSignatureSize(signatureSize)];
+        this.increments = new long[signatureSize];
+        initHashFunctions();
+    }
+
+    @Override
+    public String getName() {
+        return "MinHash of " + shingleSize + "-word shingles";
+    }
+
+    @Override
+    public boolean visitsOccurrences() {
+        return true;
+    }
+
+    @Override
+    public IndexingRuleResult apply(TextContent content) {
+        TokenVisitor visitor = newVisitor();
+        if (!content.isEmpty()) {
+            tokenizer.tokenize(content.content(), visitor::onToken);
+        }
+        return visitor.finish();
+    }
+
+    @Override
+    public TokenVisitor newVisitor() {
+        return new TokenVisitor() {
+            private final long[] window = new long[shingleSize];
+            private final long[] signature = emptySignature();
+            private long tokens;
+            private long rollingHash;
+            private long shingles;
+
+            @Override
+            public void onToken(CharSequence text, int start, int end, TokenKind kind) {
+                int slot = (int) (tokens % shingleSize);
+                long tokenHash = SpanHash.foldedHash64(text, start, end);
+                if (tokens >= shingleSize) {
+                    rollingHash -= window[slot] * basePower;
+                }
+                rollingHash = rollingHash * ROLLING_BASE + tokenHash;
+                window[slot] = tokenHash;
+                if (++tokens >= shingleSize) {
+                    addShingle(signature, rollingHash);
+                    shingles++;
+                }
+            }
+
+            @Override
+            public IndexingRuleResult finish() {
+                if (tokens > 0 && tokens < shingleSize) {
+                    addShingle(signature, rollingHash);
+                    shingles++;
+                }
+                return new MinHashResult(shingleSize, shingles, signature);
+            }
+        };
+    }
+
+    private long[] emptySignature() {
+        long[] signature = new long[multipliers.length];
+        Arrays.fill(signature, -1L); // the largest unsigned value
+        return signature;
+    }
+
+    /**
+     * Lowers each signature value to the shingle's value under that hash function,
+     * {@code a * x + b} over a well-mixed {@code x}, compared unsigned.
+     */
+    private void addShingle(long[] signature, long shingleHash) {
+        long x = SpanHash.mix64(shingleHash);
+        for (int i = 0; i < signature.length; i++) {
+            long value = multipliers[i] * x + increments[i];
+            if (Long.compareUnsigned(value, signature[i]) < 0) {
+                signature[i] = value;
+            }
+        }
+    }
+
+    private void initHashFunctions() {
+        var random = new SplittableRandom(SEED);
+        for (int i = 0; i < multipliers.length; i++) {
+            multipliers[i] = random.nextLong() | 1; // odd, so the function is a permutation
+            increments[i] = random.nextLong();
+        }
+    }
+
+    private static long power(int exponent) {
+        long power = 1;
+        for (int i = 0; i < exponent; i++) {
+            power *= ROLLING_BASE;
+        }
+        return power;
+    }
+
+    private static int checkShingleSize(int shingleSize) {
+        if (shingleSize < 1) {
+            throw new IllegalArgumentException("Shingle size must be at least 1, got " + shingleSize);
+        }
+        return shingleSize;
+    }
+
+    private static int checkSignatureSize(int signatureSize) {
+        if (signatureSize < 1) {
+            throw new IllegalArgumentException("Signature size must be at least 1, got " + signatureSize);
+        }
+        return signatureSize;
+    }
+}
@@ -1,7 +1,10 @@
 package io.github.bluething.textflow.domain.rules;
 
+import io.github.bluething.textflow.domain.TextContent;
 import io.github.bluething.textflow.domain.tokenization.SmartTokenizer;
+import io.github.bluething.textflow.domain.tokenization.TokenSink;
 import io.github.bluething.textflow.domain.tokenization.TokenizationConfig;
+import io.github.bluething.textflow.domain.tokenization.TokenizedText;
 
 import java.util.List;
 
@@ -18,10 +21,33 @@ public abstract class SmartTokenizingRule implements IndexingRule {
 
     @Override
     public void setTokenizationConfig(TokenizationConfig config) {
+        if (config.equals(tokenizer.getConfig())) {
+            return;
+        }
         this.tokenizer = new SmartTokenizer(config);
     }
 
+    @Override
+    public TokenizationConfig getTokenizationConfig() {
+        return tokenizer.getConfig();
+    }
+
     protected List<String> tokenize(String text) {
         return tokenizer.tokenize(text);
     }
+
+    /**
+     * Reports the tokens {@link #tokenize(String)} would return as spans over
+     * {@code text}, leaving it to the rule to build strings for the ones it keeps.
+     */
+    protected void tokenize(String text, TokenSink sink) {
+        tokenizer.tokenizeDistinct(text, sink);
+    }
+
+    /**
+     * Tokenizes {@code text} for rules that implement {@link #apply(TextContent, TokenizedText)}.
+     */
+    protected TokenizedText tokenizeText(String text) {
+        return tokenizer.tokenizeText(text);
+    }
 }
@@ -0,0 +1,289 @@
+package io.github.bluething.textflow.domain.rules;
+
+import io.github.bluething.textflow.domain.tokenization.SpanHash;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SpaceSaving summary of the most frequent lower-cased terms of a stream, in a
+ * fixed number of counters (Metwally, Agrawal and El Abbadi, 2005).
+ * <p>
+ * A term that is not tracked takes over the counter with the smallest count and
+ * inherits that count as its error. Every count is therefore at least the term's
+ * true frequency and overestimates it by at most its error, which is at most
+ * {@code total / capacity}; every term more frequent than that is tracked.
+ * <p>
+ * Counters sit in a min-heap by count, and terms are found through an
+ * open-addressing table that hashes token spans in place, so counting a tracked
+ * term allocates nothing.
+ */
+final class SpaceSaving {
+    private final int capacity;
+    private final String[] terms;
+    private final int[] hashes;
+    private final long[] counts;
+    private final long[] errors;
+    private final int[] heap; // counters, least count first
+    private final int[] heapIndex; // position of each counter in the heap
+    private final int[] table; // counter + 1, 0 marks a free slot
+    private int size;
+    private long total;
+
+    SpaceSaving(int capacity) {
+        this.capacity = capacity;
+        this.terms = new String[capacity];
+        this.hashes = new int[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.heap = new int[capacity];
+        this.heapIndex = new int[capacity];
+        this.table = new int[Integer.highestOneBit(capacity) * 4];
+    }
+
+    /**
+     * Counts one occurrence of the lower-cased span {@code [start, end)} of {@code text}.
+     */
+    void add(CharSequence text, int start, int end) {
+        total++;
+        int hash = SpanHash.foldedHash(text, start, end);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        for (; table[slot] != 0; slot = (slot + 1) & mask) {
+            int counter = table[slot] - 1;
+            if (hashes[counter] == hash && matches(terms[counter], text, start, end)) {
+                counts[counter]++;
+                siftDown(heapIndex[counter]);
+                return;
+            }
+        }
+
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = SpanHash.fold(text.charAt(i));
+        }
+        if (size < capacity) {
+            addCounter(new String(chars), hash, 1, 0, slot);
+        } else {
+            replaceMin(new String(chars), hash);
+        }
+    }
+
+    /**
+     * Combines two summaries of equal capacity into a summary of both streams
+     * (Cafaro et al., 2016): a term missing from a full summary may have been
+     * evicted there, so it is charged that summary's least count as error.
+     * Then the {@code capacity} largest counts are kept.
+     */
+    static SpaceSaving merge(SpaceSaving first, SpaceSaving second) {
+        if (first.capacity != second.capacity) {
+            throw new IllegalArgumentException("Cannot merge summaries of " + first.capacity
+                    + " and " + second.capacity + " counters");
+        }
+        Map<String, long[]> combined = new HashMap<>();
+        first.forEachCounter((term, count, error) -> combined.put(term, new long[]{count, error}));
+        long firstMin = first.minCount();
+        long secondMin = second.minCount();
+        second.forEachCounter((term, count, error) -> {
+            long[] entry = combined.get(term);
+            if (entry != null) {
+                entry[0] += count;
+                entry[1] += error;
+            } else {
+                combined.put(term, new long[]{count + firstMin, error + firstMin});
+            }
+        });
+        first.forEachCounter((term, count, error) -> {
+            if (!second.contains(term)) {
+                long[] entry = combined.get(term);
+                entry[0] += secondMin;
+                entry[1] += secondMin;
+            }
+        });
+        List<TermCount> counters = new ArrayList<>(combined.size());
+        combined.forEach((term, entry) -> counters.add(new TermCount(term, entry[0], entry[1])));
+
+        var merged = new SpaceSaving(first.capacity);
+        counters.sort(TermCount.BY_COUNT);
+        for (TermCount counter : counters.subList(0, Math.min(first.capacity, counters.size()))) {
+            merged.track(counter.term(), counter.count(), counter.error());
+        }
+        merged.total = first.total + second.total;
+        return merged;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * The number of occurrences counted.
+     */
+    long total() {
+        return total;
+    }
+
+    /**
+     * The tracked terms, most frequent first.
+     */
+    List<TermCount> counters() {
+        List<TermCount> counters = new ArrayList<>(size);
+        forEachCounter((term, count, error) -> counters.add(new TermCount(term, count, error)));
+        counters.sort(TermCount.BY_COUNT);
+        return counters;
+    }
+
+    /**
+     * Rebuilds a summary from {@link #counters()} and {@link #total()}.
+     */
+    static SpaceSaving of(int capacity, long total, List<TermCount> counters) {
+        if (counters.size() > capacity) {
+            throw new IllegalArgumentException(counters.size() + " counters exceed the capacity of " + capacity);
+        }
+        var summary = new SpaceSaving(capacity);
+        for (TermCount counter : counters) {
+            summary.track(counter.term(), counter.count(), counter.error());
+        }
+        summary.total = total;
+        return summary;
+    }
+
+    private long minCount() {
+        return size < capacity ? 0 : counts[heap[0]];
+    }
+
+    private boolean contains(String term) {
+        int hash = SpanHash.foldedHash(term, 0, term.length());
+        int mask = table.length - 1;
+        for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int counter = table[slot] - 1;
+            if (hashes[counter] == hash && terms[counter].equals(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void forEachCounter(CounterConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(terms[i], counts[i], errors[i]);
+        }
+    }
+
+    /**
+     * Adds a counter for a term known not to be tracked, without counting it in the total.
+     */
+    private void track(String term, long count, long error) {
+        int hash = SpanHash.foldedHash(term, 0, term.length());
+        addCounter(term, hash, count, error, freeSlot(hash));
+    }
+
+    private void addCounter(String term, int hash, long count, long error, int slot) {
+        int counter = size++;
+        set(counter, term, hash, count, error, slot);
+        place(counter, counter);
+        siftUp(counter);
+    }
+
+    /**
+     * Gives the counter with the least count to {@code term}, which inherits that
+     * count as its error.
+     */
+    private void replaceMin(String term, int hash) {
+        int counter = heap[0];
+        removeFromTable(counter);
+        long min = counts[counter];
+        set(counter, term, hash, min + 1, min, freeSlot(hash));
+        siftDown(0);
+    }
+
+    private void set(int counter, String term, int hash, long count, long error, int slot) {
+        terms[counter] = term;
+        hashes[counter] = hash;
+        counts[counter] = count;
+        errors[counter] = error;
+        table[slot] = counter + 1;
+    }
+
+    private int freeSlot(int hash) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void removeFromTable(int counter) {
+        int mask = table.length - 1;
+        int slot = hashes[counter] & mask;
+        while (table[slot] != counter + 1) {
+            slot = (slot + 1) & mask;
+        }
+        // Backward-shift deletion keeps every probe sequence unbroken
+        for (int next = (slot + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+            int home = hashes[table[next] - 1] & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                table[slot] = table[next];
+                slot = next;
+            }
+        }
+        table[slot] = 0;
+    }
+
+    private void siftUp(int index) {
+        int counter = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[counter]) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(counter, index);
+    }
+
+    private void siftDown(int index) {
+        int counter = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[heap[child]] >= counts[counter]) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(counter, index);
+    }
+
+    private void place(int counter, int index) {
+        heap[index] = counter;
+        heapIndex[counter] = index;
+    }
+
+    private static boolean matches(String term, CharSequence text, int start, int end) {
+        if (term.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (term.charAt(i - start) != SpanHash.fold(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @FunctionalInterface
+    private interface CounterConsumer {
+        void accept(String term, long count, long error);
+    }
+}
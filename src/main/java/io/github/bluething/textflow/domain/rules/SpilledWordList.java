@@ -0,0 +1,179 @@
+package io.github.bluething.textflow.domain.rules;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An unmodifiable list of words stored in a temporary file, read back as it is
+ * iterated. Only the file offset of every {@value #CHECKPOINT_INTERVAL}th word is
+ * held in memory, so {@link #get(int)} reads at most that many words.
+ * <p>
+ * {@link #close()} deletes the file. Should a list not be closed, the file is
+ * deleted once it is no longer reachable, or at the latest when the JVM exits.
+ */
+final class SpilledWordList extends AbstractList<String> implements AutoCloseable {
+    private static final int CHECKPOINT_INTERVAL = 1024;
+
+    private final Path file;
+    private final int size;
+    private final long[] checkpoints;
+    private final Cleaner.Cleanable cleanable;
+
+    private SpilledWordList(Path file, int size, long[] checkpoints) {
+        this.file = file;
+        this.size = size;
+        this.checkpoints = checkpoints;
+        this.cleanable = SpillingWordSet.CLEANER.register(this, () -> SpillingWordSet.deleteQuietly(file));
+    }
+
+    /**
+     * Deletes the file. The list must not be read afterwards.
+     */
+    @Override
+    public void close() {
+        cleanable.clean();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        int checkpoint = index / CHECKPOINT_INTERVAL;
+        try (var in = open(checkpoints[checkpoint])) {
+            String word = null;
+            for (int i = checkpoint * CHECKPOINT_INTERVAL; i <= index; i++) {
+                word = SpillingWordSet.readWord(in);
+            }
+            return word;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read spilled words from " + file, e);
+        }
+    }
+
+    /**
+     * Reads the words in order, closing the file after the last one.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new WordIterator();
+    }
+
+    /**
+     * Streams the words in order; closing the stream releases the file early.
+     */
+    @Override
+    public Stream<String> stream() {
+        var words = new WordIterator();
+        return StreamSupport.stream(Spliterators.spliterator(words, size,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(words::close);
+    }
+
+    private DataInputStream open(long offset) throws IOException {
+        FileChannel channel = FileChannel.open(file);
+        channel.position(offset);
+        InputStream in = Channels.newInputStream(channel);
+        return new DataInputStream(new BufferedInputStream(in, 1 << 16));
+    }
+
+    private final class WordIterator implements Iterator<String> {
+        private DataInputStream in;
+        private int next;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                if (in == null) {
+                    in = open(0);
+                }
+                String word = SpillingWordSet.readWord(in);
+                if (++next == size) {
+                    close();
+                }
+                return word;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read spilled words from " + file, e);
+            }
+        }
+
+        void close() {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Appends words to the file of a new list.
+     */
+    static final class Writer {
+        private final Path file;
+        private final DataOutputStream out;
+        private long[] checkpoints = new long[16];
+        private long offset;
+        private int size;
+
+        Writer(Path file) throws IOException {
+            this.file = file;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        }
+
+        void add(String word) throws IOException {
+            if (size % CHECKPOINT_INTERVAL == 0) {
+                int checkpoint = size / CHECKPOINT_INTERVAL;
+                if (checkpoint == checkpoints.length) {
+                    checkpoints = Arrays.copyOf(checkpoints, checkpoint * 2);
+                }
+                checkpoints[checkpoint] = offset;
+            }
+            offset += SpillingWordSet.writeWord(out, word);
+            size++;
+        }
+
+        SpilledWordList finish() throws IOException {
+            out.close();
+            return new SpilledWordList(file, size,
+                    Arrays.copyOf(checkpoints, (size + CHECKPOINT_INTERVAL - 1) / CHECKPOINT_INTERVAL));
+        }
+
+        void close() throws IOException {
+            out.close();
+        }
+    }
+}
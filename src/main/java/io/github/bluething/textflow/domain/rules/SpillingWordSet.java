@@ -0,0 +1,417 @@
+package io.github.bluething.textflow.domain.rules;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A {@link FoldedWordSet} with a cap on the heap it may use. Past the cap, the
+ * words in memory are written to a temporary file as a run sorted by word, each
+ * with its first-occurrence position, and the set starts over.
+ * <p>
+ * {@link #toList()} k-way merges the runs by word, keeping the first position
+ * of every word, then sorts the distinct words back into position order in a
+ * second set of runs, and writes them to a file read by a {@link SpilledWordList}.
+ * Both passes hold at most about the cap in memory, and a merge reads at most
+ * {@value #MAX_FAN_IN} runs at once, merging them in rounds past that. Without
+ * spilling, it is a plain in-memory list.
+ * <p>
+ * {@link #close()} deletes the runs. Should a set not be closed, they are deleted
+ * once it is no longer reachable, or at the latest when the JVM exits.
+ */
+final class SpillingWordSet implements AutoCloseable {
+    // Deletes the files of sets and lists that are no longer reachable
+    static final Cleaner CLEANER = Cleaner.create();
+
+    // Each run being merged holds an open file and a 64 KB buffer
+    private static final int MAX_FAN_IN = 64;
+    private static final Comparator<Entry> BY_WORD = Comparator.comparing(Entry::word);
+    private static final Comparator<Entry> BY_POSITION = Comparator.comparingLong(Entry::position);
+
+    private final long memoryCapBytes;
+    private final Path spillDirectory;
+    private final boolean foldCase;
+    private final List<Path> runs = new CopyOnWriteArrayList<>();
+    private FoldedWordSet words;
+    private long firstPosition; // position of the first word in memory
+    private Cleaner.Cleanable cleanable;
+
+    SpillingWordSet(long memoryCapBytes, Path spillDirectory) {
+        this(memoryCapBytes, spillDirectory, true);
+    }
+
+    /**
+     * @param foldCase whether words are lower-cased, as by {@link FoldedWordSet}
+     */
+    SpillingWordSet(long memoryCapBytes, Path spillDirectory, boolean foldCase) {
+        this.memoryCapBytes = memoryCapBytes;
+        this.spillDirectory = spillDirectory;
+        this.foldCase = foldCase;
+        this.words = new FoldedWordSet(foldCase);
+    }
+
+    /**
+     * Adds the span {@code [start, end)} of {@code text}, lower-cased if the set folds case.
+     */
+    void add(CharSequence text, int start, int end) {
+        if (words.add(text, start, end)) {
+            spillIfFull();
+        }
+    }
+
+    /**
+     * Adds {@code word}, which must already be lower-cased if the set folds case.
+     */
+    void add(String word) {
+        if (words.add(word)) {
+            spillIfFull();
+        }
+    }
+
+    boolean hasSpilled() {
+        return !runs.isEmpty();
+    }
+
+    /**
+     * Approximate heap bytes held by the words in memory.
+     */
+    long footprintBytes() {
+        return words.footprintBytes();
+    }
+
+    /**
+     * The distinct words in first-occurrence order. The set is left as it was, so
+     * more may be added after; the list is independent of it and outlives
+     * {@link #close()}.
+     */
+    List<String> toList() {
+        if (runs.isEmpty()) {
+            return words.toList();
+        }
+        Path inMemory = writeRun(sortedEntries());
+        List<Path> temporary = new ArrayList<>(List.of(inMemory));
+        try {
+            List<Path> byWord = new ArrayList<>(runs);
+            byWord.add(inMemory);
+            List<Path> byPosition = mergeByWord(reduceFanIn(byWord, BY_WORD, temporary), temporary);
+            return writeInPositionOrder(reduceFanIn(byPosition, BY_POSITION, temporary));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot merge spilled words", e);
+        } finally {
+            temporary.forEach(SpillingWordSet::deleteQuietly);
+        }
+    }
+
+    /**
+     * The number of distinct words, counted by merging the runs without listing them.
+     */
+    long distinctCount() {
+        if (runs.isEmpty()) {
+            return words.size();
+        }
+        Path inMemory = writeRun(sortedEntries());
+        List<Path> temporary = new ArrayList<>(List.of(inMemory));
+        try {
+            List<Path> byWord = new ArrayList<>(runs);
+            byWord.add(inMemory);
+            long count = 0;
+            try (var merger = new RunMerger(reduceFanIn(byWord, BY_WORD, temporary), BY_WORD)) {
+                String previous = null;
+                for (Entry entry = merger.next(); entry != null; entry = merger.next()) {
+                    if (!entry.word().equals(previous)) {
+                        count++;
+                        previous = entry.word();
+                    }
+                }
+            }
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot merge spilled words", e);
+        } finally {
+            temporary.forEach(SpillingWordSet::deleteQuietly);
+        }
+    }
+
+    /**
+     * Deletes the runs. The set must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (cleanable != null) {
+            cleanable.clean();
+        }
+    }
+
+    private void spillIfFull() {
+        if (words.footprintBytes() > memoryCapBytes) {
+            if (cleanable == null) {
+                List<Path> spilled = runs;
+                cleanable = CLEANER.register(this, () -> {
+                    spilled.forEach(SpillingWordSet::deleteQuietly);
+                    spilled.clear();
+                });
+            }
+            runs.add(writeRun(sortedEntries()));
+            firstPosition += words.size();
+            words = new FoldedWordSet(foldCase);
+        }
+    }
+
+    /**
+     * The words in memory, sorted, with their first-occurrence positions.
+     */
+    private List<Entry> sortedEntries() {
+        Integer[] order = new Integer[words.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(words::get));
+
+        List<Entry> entries = new ArrayList<>(order.length);
+        for (int index : order) {
+            entries.add(new Entry(words.get(index), firstPosition + index));
+        }
+        return entries;
+    }
+
+    /**
+     * Merges runs sorted by {@code order} a group of {@value #MAX_FAN_IN} at a time
+     * until no more than that are left. The runs it writes are added to
+     * {@code temporary}, and those it merged away are deleted from it.
+     */
+    private List<Path> reduceFanIn(List<Path> runs, Comparator<Entry> order, List<Path> temporary)
+            throws IOException {
+        while (runs.size() > MAX_FAN_IN) {
+            List<Path> reduced = new ArrayList<>();
+            for (int from = 0; from < runs.size(); from += MAX_FAN_IN) {
+                List<Path> group = runs.subList(from, Math.min(from + MAX_FAN_IN, runs.size()));
+                if (group.size() == 1) {
+                    reduced.add(group.getFirst());
+                    continue;
+                }
+                Path merged = createRun();
+                temporary.add(merged);
+                try (var merger = new RunMerger(group, order); var out = openRun(merged)) {
+                    for (Entry entry = merger.next(); entry != null; entry = merger.next()) {
+                        writeEntry(out, entry);
+                    }
+                }
+                for (Path run : group) {
+                    if (temporary.remove(run)) {
+                        deleteQuietly(run);
+                    }
+                }
+                reduced.add(merged);
+            }
+            runs = reduced;
+        }
+        return runs;
+    }
+
+    /**
+     * Merges the runs by word, keeping each word once at its first position, into
+     * runs sorted by position, which are added to {@code temporary}.
+     */
+    private List<Path> mergeByWord(List<Path> byWord, List<Path> temporary) throws IOException {
+        List<Path> byPosition = new ArrayList<>();
+        List<Entry> buffer = new ArrayList<>();
+        long bufferBytes = 0;
+        try (var merger = new RunMerger(byWord, BY_WORD)) {
+            Entry pending = null;
+            for (Entry entry = merger.next(); entry != null; entry = merger.next()) {
+                if (pending != null && pending.word().equals(entry.word())) {
+                    pending = pending.position() <= entry.position() ? pending : entry;
+                    continue;
+                }
+                if (pending != null) {
+                    buffer.add(pending);
+                    bufferBytes += Entry.HEAP_BYTES + 2L * pending.word().length();
+                    if (bufferBytes > memoryCapBytes) {
+                        buffer.sort(BY_POSITION);
+                        byPosition.add(writeRun(buffer));
+                        temporary.add(byPosition.getLast());
+                        buffer.clear();
+                        bufferBytes = 0;
+                    }
+                }
+                pending = entry;
+            }
+            if (pending != null) {
+                buffer.add(pending);
+            }
+            buffer.sort(BY_POSITION);
+            byPosition.add(writeRun(buffer));
+            temporary.add(byPosition.getLast());
+            return byPosition;
+        }
+    }
+
+    private List<String> writeInPositionOrder(List<Path> byPosition) throws IOException {
+        Path file = createTempFile("long-words-");
+        var list = new SpilledWordList.Writer(file);
+        try (var merger = new RunMerger(byPosition, BY_POSITION)) {
+            for (Entry entry = merger.next(); entry != null; entry = merger.next()) {
+                list.add(entry.word());
+            }
+            return list.finish();
+        } catch (IOException | RuntimeException e) {
+            list.close();
+            deleteQuietly(file);
+            throw e;
+        }
+    }
+
+    private Path writeRun(List<Entry> entries) {
+        Path run = createRun();
+        try (var out = openRun(run)) {
+            for (Entry entry : entries) {
+                writeEntry(out, entry);
+            }
+            return run;
+        } catch (IOException e) {
+            deleteQuietly(run);
+            throw new UncheckedIOException("Cannot spill words to " + spillDirectory, e);
+        }
+    }
+
+    private Path createRun() {
+        try {
+            return createTempFile("words-run-");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot spill words to " + spillDirectory, e);
+        }
+    }
+
+    private Path createTempFile(String prefix) throws IOException {
+        Path file = Files.createTempFile(spillDirectory, prefix, ".bin");
+        // Left over only if neither closed nor collected before the JVM exits
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    private static DataOutputStream openRun(Path run) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16));
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        writeWord(out, entry.word());
+        out.writeLong(entry.position());
+    }
+
+    /**
+     * Writes {@code word} as its UTF-8 length and bytes.
+     *
+     * @return the number of bytes written
+     */
+    static int writeWord(DataOutputStream out, String word) throws IOException {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return Integer.BYTES + bytes.length;
+    }
+
+    /**
+     * Reads a word {@link #writeWord} wrote, or returns null at the end of the stream.
+     */
+    static String readWord(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    static Path defaultSpillDirectory() {
+        return Path.of(System.getProperty("java.io.tmpdir"));
+    }
+
+    static long checkMemoryCap(long memoryCapBytes) {
+        if (memoryCapBytes < 1) {
+            throw new IllegalArgumentException("Memory cap must be at least 1 byte, got " + memoryCapBytes);
+        }
+        return memoryCapBytes;
+    }
+
+    static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // A temporary file left behind is not worth failing the rule for
+        }
+    }
+
+    private record Entry(String word, long position) {
+        // Entry and String headers, the position, and the String's array header
+        static final int HEAP_BYTES = 80;
+    }
+
+    /**
+     * Reads several runs sorted alike as one sorted sequence.
+     */
+    private static final class RunMerger implements Closeable {
+        private final List<DataInputStream> inputs = new ArrayList<>();
+        private final PriorityQueue<Head> heads;
+
+        RunMerger(List<Path> runs, Comparator<Entry> order) throws IOException {
+            this.heads = new PriorityQueue<>(Math.max(1, runs.size()),
+                    Comparator.comparing(Head::entry, order).thenComparingInt(Head::run));
+            try {
+                for (Path run : runs) {
+                    var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+                    inputs.add(in);
+                    advance(inputs.size() - 1);
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * The next entry in order, or null after the last.
+         */
+        Entry next() throws IOException {
+            Head head = heads.poll();
+            if (head == null) {
+                return null;
+            }
+            advance(head.run());
+            return head.entry();
+        }
+
+        private void advance(int run) throws IOException {
+            DataInputStream in = inputs.get(run);
+            String word = readWord(in);
+            if (word != null) {
+                heads.add(new Head(new Entry(word, in.readLong()), run));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (DataInputStream in : inputs) {
+                in.close();
+            }
+        }
+
+        private record Head(Entry entry, int run) {
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.bluething.textflow.domain.rules;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * An estimated number of occurrences of a term. The true number is between
+ * {@code count - error} and {@code count}.
+ */
+public record TermCount(String term, long count, long error) implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Most frequent first, ties by term.
+     */
+    public static final Comparator<TermCount> BY_COUNT = Comparator.comparingLong(TermCount::count).reversed()
+            .thenComparing(TermCount::term);
+
+    /**
+     * The fewest occurrences the term can have.
+     */
+    public long guaranteedCount() {
+        return count - error;
+    }
+
+    @Override
+    public String toString() {
+        return error == 0 ? term + "=" + count : term + "=" + count + "±" + error;
+    }
+}
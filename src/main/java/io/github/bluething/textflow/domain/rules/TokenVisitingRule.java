@@ -0,0 +1,49 @@
+package io.github.bluething.textflow.domain.rules;
+
+import io.github.bluething.textflow.domain.TextContent;
+import io.github.bluething.textflow.domain.tokenization.SmartTokenizer;
+import io.github.bluething.textflow.domain.tokenization.TokenSink;
+import io.github.bluething.textflow.domain.tokenization.TokenizedText;
+
+/**
+ * A rule that receives tokens through a {@link TokenVisitor} instead of traversing
+ * the content itself, so every rule sharing a tokenization is fed in a single
+ * pass over the document. {@link #getTokenizationConfig()} must not be null.
+ */
+public interface TokenVisitingRule extends IndexingRule {
+
+    /**
+     * Starts a visitor for one document.
+     */
+    TokenVisitor newVisitor();
+
+    /**
+     * Starts a visitor for one document that may be told about a distinct token
+     * more than once, as when the document is tokenized a window or a segment at a
+     * time. Rules whose results depend on seeing each token once dedupe it here in
+     * their own state; other rules get {@link #newVisitor()}.
+     */
+    default TokenVisitor newRepeatingVisitor() {
+        return newVisitor();
+    }
+
+    /**
+     * Whether visitors are told about every occurrence of a token, as
+     * {@link SmartTokenizer#tokenize(CharSequence, TokenSink)} reports them, rather
+     * than about each distinct token once.
+     */
+    default boolean visitsOccurrences() {
+        return false;
+    }
+
+    @Override
+    default IndexingRuleResult apply(TextContent content, TokenizedText tokens) {
+        TokenVisitor visitor = newVisitor();
+        if (visitsOccurrences()) {
+            new SmartTokenizer(tokens.config()).tokenize(tokens.text(), visitor::onToken);
+        } else {
+            tokens.forEach(visitor::onToken);
+        }
+        return visitor.finish();
+    }
+}
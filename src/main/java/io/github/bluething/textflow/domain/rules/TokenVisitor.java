@@ -0,0 +1,31 @@
+package io.github.bluething.textflow.domain.rules;
+
+import io.github.bluething.textflow.domain.tokenization.TokenKind;
+
+/**
+ * The state of one {@link TokenVisitingRule} over one document. It is told about
+ * each distinct token of the document, in the order
+ * {@link io.github.bluething.textflow.domain.tokenization.SmartTokenizer#tokenize(String)}
+ * returns them, or about every occurrence if the rule
+ * {@link TokenVisitingRule#visitsOccurrences() visits occurrences}, and then asked
+ * for the result once.
+ * <p>
+ * A document tokenized a window or a chunk at a time has its tokens deduped per
+ * window only, so a distinct token may be visited again later. Such documents get
+ * visitors from {@link TokenVisitingRule#newRepeatingVisitor()}; those whose results
+ * depend on seeing a token once dedupe it themselves, in state that can be capped,
+ * as {@link LongWordsRule} and {@link UppercaseWordCountRule} do.
+ */
+public interface TokenVisitor {
+
+    /**
+     * Visits the token {@code [start, end)} of {@code text}. The text may be a
+     * reused buffer: copy what must outlive the call.
+     */
+    void onToken(CharSequence text, int start, int end, TokenKind kind);
+
+    /**
+     * Returns the rule's result for the tokens visited.
+     */
+    IndexingRuleResult finish();
+}
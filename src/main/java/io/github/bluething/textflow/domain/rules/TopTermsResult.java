@@ -0,0 +1,52 @@
+package io.github.bluething.textflow.domain.rules;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The most frequent terms of the input, with the whole frequency summary they
+ * were read from so results for separate inputs can be merged.
+ *
+ * @param k        how many terms {@link #top()} lists
+ * @param capacity how many counters the summary keeps
+ * @param total    the number of term occurrences counted
+ * @param counters every counter of the summary, most frequent first
+ */
+public record TopTermsResult(int k, int capacity, long total, List<TermCount> counters)
+        implements IndexingRuleResult, Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public TopTermsResult {
+        counters = List.copyOf(counters);
+    }
+
+    /**
+     * The {@code k} most frequent terms.
+     */
+    public List<TermCount> top() {
+        return counters.subList(0, Math.min(k, counters.size()));
+    }
+
+    /**
+     * The most any count overestimates its term's frequency by.
+     */
+    public long maxError() {
+        return total / capacity;
+    }
+
+    @Override
+    public String getDisplayValue() {
+        List<TermCount> top = top();
+        if (top.size() <= 10) {
+            return top.toString();
+        }
+        return top.subList(0, 10) + " ... (and " + (top.size() - 10) + " more)";
+    }
+
+    @Override
+    public Object getValue() {
+        return top();
+    }
+}
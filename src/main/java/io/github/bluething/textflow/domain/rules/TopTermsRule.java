@@ -0,0 +1,98 @@
+package io.github.bluething.textflow.domain.rules;
+
+import io.github.bluething.textflow.domain.TextContent;
+import io.github.bluething.textflow.domain.tokenization.TokenKind;
+import io.github.bluething.textflow.domain.tokenization.TokenizationConfig;
+
+/**
+ * Lists the {@code k} most frequent terms, ignoring case, counted in a
+ * {@link SpaceSaving} summary of fixed size. Counts overestimate by at most the
+ * number of occurrences divided by the capacity, which defaults to ten counters
+ * per listed term.
+ */
+public class TopTermsRule extends SmartTokenizingRule implements AccumulatingRule {
+    private final int k;
+    private final int capacity;
+
+    public TopTermsRule() {
+        this(100);
+    }
+
+    public TopTermsRule(int k) {
+        this(k, 10 * k);
+    }
+
+    public TopTermsRule(int k, int capacity) {
+        super();
+        this.k = k;
+        this.capacity = checkCapacity(k, capacity);
+    }
+
+    public TopTermsRule(TokenizationConfig config, int k, int capacity) {
+        super(config);
+        this.k = k;
+        this.capacity = checkCapacity(k, capacity);
+    }
+
+    @Override
+    public String getName() {
+        return "Top " + k + " terms";
+    }
+
+    @Override
+    public boolean visitsOccurrences() {
+        return true;
+    }
+
+    @Override
+    public IndexingRuleResult apply(TextContent content) {
+        TokenVisitor visitor = newVisitor();
+        if (!content.isEmpty()) {
+            tokenizer.tokenize(content.content(), visitor::onToken);
+        }
+        return visitor.finish();
+    }
+
+    @Override
+    public RuleAccumulator<?> accumulator() {
+        return new RuleAccumulator<SpaceSaving>() {
+            @Override
+            public SpaceSaving empty() {
+                return new SpaceSaving(capacity);
+            }
+
+            @Override
+            public SpaceSaving accumulate(SpaceSaving state, CharSequence text, int start, int end,
+                                          TokenKind kind) {
+                state.add(text, start, end);
+                return state;
+            }
+
+            @Override
+            public SpaceSaving merge(SpaceSaving first, SpaceSaving second) {
+                return SpaceSaving.merge(first, second);
+            }
+
+            @Override
+            public IndexingRuleResult finish(SpaceSaving state) {
+                return new TopTermsResult(k, capacity, state.total(), state.counters());
+            }
+
+            @Override
+            public SpaceSaving fromResult(IndexingRuleResult result) {
+                if (!(result instanceof TopTermsResult topTerms) || topTerms.capacity() != capacity) {
+                    throw new IllegalArgumentException("Expected a TopTermsResult of " + capacity
+                            + " counters, got " + result);
+                }
+                return SpaceSaving.of(capacity, topTerms.total(), topTerms.counters());
+            }
+        };
+    }
+
+    private static int checkCapacity(int k, int capacity) {
+        if (k < 1 || capacity < k) {
+            throw new IllegalArgumentException("Need 1 <= k <= capacity, got k=" + k + ", capacity=" + capacity);
+        }
+        return capacity;
+    }
+}
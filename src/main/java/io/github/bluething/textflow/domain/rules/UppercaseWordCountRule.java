@@ -1,10 +1,56 @@
 package io.github.bluething.textflow.domain.rules;
 
 import io.github.bluething.textflow.domain.TextContent;
+import io.github.bluething.textflow.domain.tokenization.TokenKind;
+import io.github.bluething.textflow.domain.tokenization.TokenizationConfig;
 
-import java.util.List;
+import java.nio.file.Path;
+
+/**
+ * Counts the distinct words of a document that start with an uppercase letter,
+ * summed over documents when results are merged.
+ * <p>
+ * Tokens that arrive deduped are counted as they come. Only a document tokenized
+ * a window or a chunk at a time, which may report a word again in a later one,
+ * has its uppercase words kept by the rule itself; with a memory cap, those words
+ * are spilled as {@link LongWordsRule} spills its own.
+ */
+public class UppercaseWordCountRule extends SmartTokenizingRule implements AccumulatingRule {
+    // Character.isUpperCase for every Latin-1 character, so most tokens skip the Unicode lookup
+    private static final boolean[] LATIN1_UPPERCASE = new boolean[256];
+
+    static {
+        for (char c = 0; c < LATIN1_UPPERCASE.length; c++) {
+            LATIN1_UPPERCASE[c] = Character.isUpperCase(c);
+        }
+    }
+
+    private final long memoryCapBytes;
+    private final Path spillDirectory;
+
+    public UppercaseWordCountRule() {
+        super();
+        this.memoryCapBytes = Long.MAX_VALUE;
+        this.spillDirectory = SpillingWordSet.defaultSpillDirectory();
+    }
+
+    /**
+     * @param memoryCapBytes heap the uppercase words of one windowed or streamed
+     *                       document may take before they are spilled to the default
+     *                       temporary directory
+     */
+    public UppercaseWordCountRule(long memoryCapBytes) {
+        super();
+        this.memoryCapBytes = SpillingWordSet.checkMemoryCap(memoryCapBytes);
+        this.spillDirectory = SpillingWordSet.defaultSpillDirectory();
+    }
+
+    public UppercaseWordCountRule(TokenizationConfig config, long memoryCapBytes, Path spillDirectory) {
+        super(config);
+        this.memoryCapBytes = SpillingWordSet.checkMemoryCap(memoryCapBytes);
+        this.spillDirectory = spillDirectory;
+    }
 
-public class UppercaseWordCountRule extends SmartTokenizingRule {
     @Override
     public String getName() {
         return "Words starting with uppercase";
@@ -15,18 +61,122 @@ public class UppercaseWordCountRule extends SmartTokenizingRule {
         if (content.isEmpty()) {
             return new CountResult(0);
         }
+        return apply(content, tokenizeText(content.content()));
+    }
+
+    @Override
+    public RuleAccumulator<?> accumulator() {
+        // The state is a single mutable count, so counting does not box
+        return new RuleAccumulator<long[]>() {
+            @Override
+            public long[] empty() {
+                return new long[1];
+            }
 
-        List<String> tokens = tokenize(content.content());
-        long count = tokens.stream()
-                .filter(this::startsWithUppercase)
-                .count();
-        return new CountResult(count);
+            @Override
+            public long[] accumulate(long[] state, CharSequence text, int start, int end, TokenKind kind) {
+                if (startsWithUppercase(text, start, end)) {
+                    state[0]++;
+                }
+                return state;
+            }
+
+            @Override
+            public long[] merge(long[] first, long[] second) {
+                first[0] += second[0];
+                return first;
+            }
+
+            @Override
+            public IndexingRuleResult finish(long[] state) {
+                return new CountResult(state[0]);
+            }
+
+            @Override
+            public long[] fromResult(IndexingRuleResult result) {
+                return new long[]{count(result)};
+            }
+        };
     }
 
-    private boolean startsWithUppercase(String word) {
-        return switch (word) {
-            case String w when w.isEmpty() -> false;
-            case String w -> Character.isUpperCase(w.charAt(0));
+    @Override
+    public RuleAccumulator<?> repeatingAccumulator() {
+        // Counted when finished, once the document's words are all known
+        return new RuleAccumulator<Count>() {
+            @Override
+            public Count empty() {
+                return new Count();
+            }
+
+            @Override
+            public Count accumulate(Count state, CharSequence text, int start, int end, TokenKind kind) {
+                if (startsWithUppercase(text, start, end)) {
+                    if (state.words == null) {
+                        state.words = new SpillingWordSet(memoryCapBytes, spillDirectory, false);
+                    }
+                    state.words.add(text, start, end);
+                }
+                return state;
+            }
+
+            @Override
+            public Count merge(Count first, Count second) {
+                // Separate documents: their words are counted apart
+                first.counted = first.total() + second.total();
+                first.release();
+                return first;
+            }
+
+            @Override
+            public IndexingRuleResult finish(Count state) {
+                return new CountResult(state.total());
+            }
+
+            @Override
+            public Count fromResult(IndexingRuleResult result) {
+                var state = new Count();
+                state.counted = count(result);
+                return state;
+            }
+
+            @Override
+            public void release(Count state) {
+                state.release();
+            }
         };
     }
+
+    private static long count(IndexingRuleResult result) {
+        if (!(result instanceof CountResult(long count))) {
+            throw new IllegalArgumentException("Expected a CountResult, got " + result);
+        }
+        return count;
+    }
+
+    private static boolean startsWithUppercase(CharSequence text, int start, int end) {
+        if (end <= start) {
+            return false;
+        }
+        char first = text.charAt(start);
+        return first < 256 ? LATIN1_UPPERCASE[first] : Character.isUpperCase(first);
+    }
+
+    /**
+     * The uppercase words of the document being read, and the count of those before it.
+     */
+    private static final class Count {
+        private SpillingWordSet words; // made on the first uppercase word
+        private long counted;
+
+        long total() {
+            return counted + (words == null ? 0 : words.distinctCount());
+        }
+
+        void release() {
+            if (words != null) {
+                words.close();
+                words = null;
+            }
+        }
+    }
 }
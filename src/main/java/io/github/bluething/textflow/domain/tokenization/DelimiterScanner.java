@@ -0,0 +1,22 @@
+package io.github.bluething.textflow.domain.tokenization;
+
+/**
+ * Finds where the word runs of one text start and end, scanning left to right.
+ * {@link TokenLexer} spends most of its time here on plain text, so the scan
+ * has a scalar and a vectorised implementation.
+ */
+interface DelimiterScanner {
+
+    /**
+     * Returns the index of the first word character at or after {@code from}, or
+     * of the first '@' if the scanner stops at them for email matching, or the
+     * text length if there is none.
+     */
+    int nextWordOrAt(int from);
+
+    /**
+     * Returns the index of the first character at or after {@code from} that is
+     * not a word character, or the text length if there is none.
+     */
+    int wordRunEnd(int from);
+}
@@ -0,0 +1,38 @@
+package io.github.bluething.textflow.domain.tokenization;
+
+/**
+ * Checks one character at a time. Works on any text and on any JVM.
+ */
+final class ScalarDelimiterScanner implements DelimiterScanner {
+    private final CharSequence text;
+    private final int length;
+    private final boolean stopAtAt;
+
+    ScalarDelimiterScanner(CharSequence text, boolean stopAtAt) {
+        this.text = text;
+        this.length = text.length();
+        this.stopAtAt = stopAtAt;
+    }
+
+    @Override
+    public int nextWordOrAt(int from) {
+        int i = from;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (TokenLexer.isWordChar(c) || (c == '@' && stopAtAt)) {
+                return i;
+            }
+            i++;
+        }
+        return length;
+    }
+
+    @Override
+    public int wordRunEnd(int from) {
+        int i = from;
+        while (i < length && TokenLexer.isWordChar(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -1,102 +1,323 @@
 package io.github.bluething.textflow.domain.tokenization;
 
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Pattern;
-import java.util.regex.MatchResult;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class SmartTokenizer {
-    private static final Pattern EMAIL_PATTERN =
-            Pattern.compile("\\b[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Z|a-z]{2,}\\b");
+    private final TokenizationConfig config;
+    private final TokenLexer lexer;
 
-    private static final Pattern URL_PATTERN =
-            Pattern.compile("\\bhttps?://[\\w.-]+(?:\\.[\\w.-]+)+[\\w\\-._~:/?#\\[\\]@!$&'()*+,;=]*\\b");
+    public SmartTokenizer(TokenizationConfig config) {
+        this.config = config;
+        this.lexer = TokenLexer.compile(config);
+    }
 
-    private static final Pattern HYPHENATED_WORD_PATTERN =
-            Pattern.compile("\\b\\w+(?:-\\w+)+\\b");
+    public TokenizationConfig getConfig() {
+        return config;
+    }
 
-    private static final Pattern NUMBER_PATTERN =
-            Pattern.compile("\\b\\d+(?:[.,]\\d+)*\\b");
+    TokenLexer lexer() {
+        return lexer;
+    }
 
-    private static final Pattern BASIC_WORD_PATTERN =
-            Pattern.compile("\\b\\w+\\b");
+    /**
+     * Tokenizes text according to the configured strategy.
+     * <p>
+     * Tokens are distinct and grouped by kind: emails, URLs, numbers, hyphenated
+     * words, then plain words, each group in document order.
+     */
+    public List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
 
-    private final TokenizationConfig config;
+        List<String> tokens = new ArrayList<>();
+        tokenizeDistinct(text, (source, start, end, kind) -> tokens.add(source.subSequence(start, end).toString()));
+        return tokens;
+    }
 
-    public SmartTokenizer(TokenizationConfig config) {
-        this.config = config;
+    /**
+     * Tokenizes {@code text} once into a result that several consumers can read.
+     * Holds the same tokens as {@link #tokenize(String)}, as spans over {@code text}.
+     */
+    public TokenizedText tokenizeText(CharSequence text) {
+        var builder = TokenizedText.builder(text != null ? text : "", config);
+        tokenizeDistinct(text, builder);
+        return builder.build();
     }
 
     /**
-     * Tokenizes text according to the configured strategy.
+     * Tokenizes {@code text} like {@link #tokenizeText(CharSequence)}, lexing up to
+     * {@code chunks} slices of it in parallel on {@code pool}; see
+     * {@link #tokenizeDistinct(CharSequence, int, ForkJoinPool, TokenSink)}.
+     */
+    public TokenizedText tokenizeText(CharSequence text, int chunks, ForkJoinPool pool) {
+        var builder = TokenizedText.builder(text != null ? text : "", config);
+        tokenizeDistinct(text, chunks, pool, builder);
+        return builder.build();
+    }
+
+    /**
+     * Reports what {@link #tokenizeDistinct(CharSequence, TokenSink)} does, lexing up
+     * to {@code chunks} slices of {@code text} in parallel on {@code pool}. The sink
+     * is called on the calling thread.
+     * <p>
+     * Slices are cut at sync points (characters no token can contain, such as
+     * whitespace) found at or after equal shares of the text, so no token
+     * straddles two slices. Each slice dedupes its own tokens; the slices are then
+     * merged in document order, which gives exactly the sequential result. Rules
+     * thus see the document whole rather than merging per-slice states, which
+     * their accumulators, built for whole documents, do not support. Text
+     * without sync points is lexed as one slice.
      */
-    public java.util.List<String> tokenize(String text) {
-        if (text == null || text.trim().isEmpty()) {
-            return java.util.List.of();
+    public void tokenizeDistinct(CharSequence text, int chunks, ForkJoinPool pool, TokenSink sink) {
+        CharSequence source = text != null ? text : "";
+        int[] bounds = chunkBounds(source, chunks);
+        if (bounds.length <= 2) {
+            tokenizeDistinct(source, sink);
+            return;
         }
 
-        List<String> tokens = new java.util.ArrayList<>();
+        List<ForkJoinTask<DistinctCollector>> tasks = new ArrayList<>(bounds.length - 1);
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            int from = bounds[i];
+            int to = bounds[i + 1];
+            tasks.add(pool.submit(() -> {
+                var collector = new DistinctCollector(source);
+                lexer.lex(source, from, to, collector);
+                return collector;
+            }));
+        }
+
+        var merged = new DistinctCollector(source);
+        for (ForkJoinTask<DistinctCollector> task : tasks) {
+            merged.addAll(task.join());
+        }
+        merged.replay(sink);
+    }
 
-        // Handle special patterns first
-        if (config.isPreserveEmails()) {
-            extractPattern(text, EMAIL_PATTERN, tokens);
+    /**
+     * Returns the slice boundaries for {@code chunks} slices, starting with 0 and
+     * ending with the text length.
+     */
+    private static int[] chunkBounds(CharSequence text, int chunks) {
+        int length = text.length();
+        int[] bounds = new int[Math.max(chunks, 1) + 1];
+        int count = 1;
+        for (int k = 1; k < chunks; k++) {
+            int share = (int) ((long) length * k / chunks);
+            if (share <= bounds[count - 1]) {
+                continue;
+            }
+            int sync = TokenLexer.nextSyncPoint(text, share);
+            if (sync >= length) {
+                break;
+            }
+            bounds[count++] = sync;
         }
+        bounds[count++] = length;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Tokenizes UTF-8 encoded bytes, such as a memory-mapped file, without decoding
+     * them. Gives the same tokens as decoding the bytes and calling {@link #tokenizeText(CharSequence)};
+     * spans are byte offsets into a {@link Utf8Text} view of {@code utf8}.
+     */
+    public TokenizedText tokenizeText(ByteBuffer utf8) {
+        return tokenizeText(new Utf8Text(utf8));
+    }
+
+    /**
+     * Reports every token of {@code text} as a span, without building strings.
+     * Tokens of one kind arrive in document order; the same token is reported
+     * each time it occurs.
+     */
+    public void tokenize(CharSequence text, TokenSink sink) {
+        if (text == null) {
+            return;
+        }
+        lexer.lex(text, sink);
+    }
+
+    /**
+     * Whether {@code index} is a word boundary of {@code text}, as {@code \b} in the
+     * tokenizer's patterns: a word character on exactly one side of it.
+     */
+    public static boolean isWordBoundary(CharSequence text, int index) {
+        return TokenLexer.isBoundary(text, index);
+    }
+
+    /**
+     * Whether {@code c} is a word character to the tokenizer, on its own.
+     */
+    public static boolean isWordChar(char c) {
+        return TokenLexer.isWordChar(c);
+    }
 
-        if (config.isPreserveUrls()) {
-            extractPattern(text, URL_PATTERN, tokens);
+    /**
+     * Opens a session that tokenizes a text fed to it in chunks, reporting to
+     * {@code sink} what {@link #tokenize(CharSequence, TokenSink)} would, short of
+     * the cuts described by {@link TokenizerSession}.
+     */
+    public TokenizerSession openSession(TokenSink sink) {
+        return new TokenizerSession(lexer, sink);
+    }
+
+    /**
+     * Opens a session that reports to {@code sink} what
+     * {@link #tokenizeDistinct(CharSequence, TokenSink, TokenSink)} would for each
+     * segment of the text fed to it, as the session lexes them. As with windows over
+     * a mapped file, tokens are deduped within a segment only, so a later segment
+     * may report a token again; nothing is kept between segments.
+     *
+     * @param occurrences where to report every occurrence, or null
+     */
+    public TokenizerSession openDistinctSession(TokenSink sink, TokenSink occurrences) {
+        return new TokenizerSession((text, start, end) -> {
+            var collector = new DistinctCollector(text);
+            lexer.lex(text, start, end, occurrences == null ? collector : (source, from, to, kind) -> {
+                occurrences.accept(source, from, to, kind);
+                collector.accept(source, from, to, kind);
+            });
+            collector.replay(sink);
+        });
+    }
+
+    /**
+     * Reports the tokens {@link #tokenize(String)} would return, in the same order,
+     * as spans over {@code text}. Each distinct token is reported once, at its first
+     * occurrence.
+     */
+    public void tokenizeDistinct(CharSequence text, TokenSink sink) {
+        if (text == null || text.isEmpty()) {
+            return;
         }
 
-        if (config.isPreserveNumbers()) {
-            extractPattern(text, NUMBER_PATTERN, tokens);
+        var collector = new DistinctCollector(text);
+        lexer.lex(text, collector);
+        collector.replay(sink);
+    }
+
+    /**
+     * Does what {@link #tokenizeDistinct(CharSequence, TokenSink)} does while also
+     * reporting every occurrence to {@code occurrences}, as
+     * {@link #tokenize(CharSequence, TokenSink)} would, in the same lexing pass.
+     * All occurrences are reported before the first distinct token.
+     */
+    public void tokenizeDistinct(CharSequence text, TokenSink sink, TokenSink occurrences) {
+        if (text == null || text.isEmpty()) {
+            return;
         }
 
-        // Handle hyphenated words
-        handleHyphenatedWords(text, tokens);
+        var collector = new DistinctCollector(text);
+        lexer.lex(text, (source, start, end, kind) -> {
+            occurrences.accept(source, start, end, kind);
+            collector.accept(source, start, end, kind);
+        });
+        collector.replay(sink);
+    }
 
-        // Extract remaining basic words
-        extractPattern(text, BASIC_WORD_PATTERN, tokens);
+    /**
+     * Does what {@link #tokenizeDistinct(CharSequence, TokenSink, TokenSink)} does
+     * for UTF-8 text of any length, such as a file of several GB mapped as one
+     * segment. The text is lexed in windows of at most {@code windowSize} bytes,
+     * each a {@link Utf8Text} ending at a sync point, so no token is split unless
+     * a window holds no sync point at all.
+     * <p>
+     * Each window's distinct tokens are reported after its occurrences, in the order
+     * the windows come. Tokens are deduped within a window only, so a token may be
+     * reported again by a later window: nothing outlives a window, and memory does
+     * not grow with the text. Sinks that must see a token once dedupe it themselves.
+     *
+     * @param occurrences where to report every occurrence, or null
+     */
+    public void tokenizeDistinct(MemorySegment utf8, int windowSize, TokenSink sink, TokenSink occurrences) {
+        if (windowSize < 2) {
+            throw new IllegalArgumentException("Window size must be at least 2 bytes, got " + windowSize);
+        }
+        long size = utf8.byteSize();
+        for (long start = 0; start < size; ) {
+            long end = windowEnd(utf8, start, Math.min(start + windowSize, size));
+            // The window keeps the sync point it ends at, as the lexer may look at it
+            var window = new Utf8Text(utf8.asSlice(start, Math.min(end + 1, size) - start).asByteBuffer());
+            int length = (int) (end - start);
 
-        // Filter by minimum length and clean up
-        return tokens.stream()
-                .filter(token -> token.length() >= config.getMinWordLength())
-                .distinct()
-                .collect(java.util.stream.Collectors.toList());
+            var collector = new DistinctCollector(window);
+            lexer.lex(window, 0, length, occurrences == null ? collector : (source, from, to, kind) -> {
+                occurrences.accept(source, from, to, kind);
+                collector.accept(source, from, to, kind);
+            });
+            collector.replay(sink);
+            start = end;
+        }
     }
 
-    private void extractPattern(String text, Pattern pattern, List<String> tokens) {
-        pattern.matcher(text)
-                .results()
-                .map(MatchResult::group)
-                .forEach(tokens::add);
+    /**
+     * The last sync point in {@code (start, limit)}, or {@code limit} if it is the
+     * end of the text. Failing both, {@code limit} moved back to the start of a
+     * UTF-8 sequence.
+     */
+    private static long windowEnd(MemorySegment utf8, long start, long limit) {
+        if (limit == utf8.byteSize()) {
+            return limit;
+        }
+        for (long i = limit - 1; i > start; i--) {
+            byte b = utf8.get(ValueLayout.JAVA_BYTE, i);
+            if (b >= 0 && TokenLexer.isSyncPoint((char) b)) {
+                return i;
+            }
+        }
+        long end = limit;
+        while (end > start + 1 && (utf8.get(ValueLayout.JAVA_BYTE, end) & 0xC0) == 0x80) {
+            end--;
+        }
+        return end;
     }
 
-    private void handleHyphenatedWords(String text, java.util.List<String> tokens) {
-        switch (config.getHyphenHandling()) {
-            case PRESERVE -> extractPattern(text, HYPHENATED_WORD_PATTERN, tokens);
+    /**
+     * Dedupes tokens per kind while lexing, then replays them kind by kind so the
+     * order matches the per-kind regex passes the list output was defined by.
+     */
+    private static final class DistinctCollector implements TokenSink {
+        private final CharSequence text;
+        private final TokenSpanSet[] phases = new TokenSpanSet[TokenKind.PHASE_COUNT];
 
-            case SPLIT -> HYPHENATED_WORD_PATTERN.matcher(text)
-                    .results()
-                    .forEach(match -> {
-                        String[] parts = match.group().split("-");
-                        for (String part : parts) {
-                            if (part.length() >= config.getMinWordLength()) {
-                                tokens.add(part);
-                            }
-                        }
-                    });
+        DistinctCollector(CharSequence text) {
+            this.text = text;
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new TokenSpanSet(text);
+            }
+        }
+
+        @Override
+        public void accept(CharSequence source, int start, int end, TokenKind kind) {
+            phases[kind.phase()].add(start, end, kind);
+        }
+
+        void addAll(DistinctCollector other) {
+            for (int i = 0; i < phases.length; i++) {
+                phases[i].addAll(other.phases[i]);
+            }
+        }
 
-            case BOTH -> HYPHENATED_WORD_PATTERN.matcher(text)
-                    .results()
-                    .forEach(match -> {
-                        // Add the full hyphenated word
-                        tokens.add(match.group());
-                        // Add individual parts
-                        String[] parts = match.group().split("-");
-                        for (String part : parts) {
-                            if (part.length() >= config.getMinWordLength()) {
-                                tokens.add(part);
-                            }
-                        }
-                    });
+        void replay(TokenSink sink) {
+            var seen = new TokenSpanSet(text);
+            for (TokenSpanSet phase : phases) {
+                for (int i = 0; i < phase.size(); i++) {
+                    int start = phase.start(i);
+                    int end = phase.end(i);
+                    if (seen.add(start, end, phase.kind(i))) {
+                        sink.accept(text, start, end, phase.kind(i));
+                    }
+                }
+            }
         }
     }
 }
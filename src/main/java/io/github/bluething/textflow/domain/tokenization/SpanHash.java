@@ -0,0 +1,79 @@
+package io.github.bluething.textflow.domain.tokenization;
+
+/**
+ * Hashing and case folding of token spans, for the sets and counters that look a
+ * token up by its span of a text instead of by a {@code String}.
+ */
+public final class SpanHash {
+    // Character.toLowerCase for every Latin-1 character, so most characters skip the Unicode lookup
+    private static final char[] LATIN1_LOWER = new char[256];
+
+    static {
+        for (char c = 0; c < LATIN1_LOWER.length; c++) {
+            LATIN1_LOWER[c] = Character.toLowerCase(c);
+        }
+    }
+
+    private SpanHash() {
+    }
+
+    /**
+     * Hashes the characters of the span {@code [start, end)} of {@code text}.
+     */
+    public static int hash(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Hashes the span as {@link #hash} hashes its {@linkplain #fold folded} characters,
+     * without folding it into a copy first.
+     */
+    public static int foldedHash(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + fold(text.charAt(i));
+        }
+        return mix(hash);
+    }
+
+    /**
+     * A 64-bit hash of the span's {@linkplain #fold folded} characters, for sketches
+     * and signatures that need more bits than a hash table: FNV-1a over the
+     * characters, finished with {@link #mix64}.
+     */
+    public static long foldedHash64(CharSequence text, int start, int end) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ fold(text.charAt(i))) * 0x100000001b3L;
+        }
+        return mix64(hash);
+    }
+
+    /**
+     * The MurmurHash3 finalizer, which spreads every input bit over the whole result.
+     */
+    public static long mix64(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Lower-cases one character, as {@link Character#toLowerCase(char)} does.
+     */
+    public static char fold(char c) {
+        return c < 256 ? LATIN1_LOWER[c] : Character.toLowerCase(c);
+    }
+
+    private static int mix(int hash) {
+        // Mix so linear probing over the low bits stays short for similar tokens
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
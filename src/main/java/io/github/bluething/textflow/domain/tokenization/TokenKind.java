@@ -0,0 +1,36 @@
+package io.github.bluething.textflow.domain.tokenization;
+
+/**
+ * The recogniser that produced a token. Constants are declared in the order
+ * {@link SmartTokenizer#tokenize(String)} lists their tokens.
+ */
+public enum TokenKind {
+    EMAIL,
+    URL,
+    NUMBER,
+    /**
+     * A whole hyphenated word such as "state-of-the-art".
+     */
+    HYPHENATED,
+    /**
+     * One part of a hyphenated word, emitted when hyphens are split.
+     */
+    HYPHEN_PART,
+    WORD;
+
+    /**
+     * Position of this kind's tokens in the tokenizer's list output.
+     * Hyphenated words and their parts share one slot, in document order.
+     */
+    int phase() {
+        return switch (this) {
+            case EMAIL -> 0;
+            case URL -> 1;
+            case NUMBER -> 2;
+            case HYPHENATED, HYPHEN_PART -> 3;
+            case WORD -> 4;
+        };
+    }
+
+    static final int PHASE_COUNT = 5;
+}
@@ -0,0 +1,488 @@
+package io.github.bluething.textflow.domain.tokenization;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-pass lexer behind {@link SmartTokenizer}.
+ * <p>
+ * The tokenizer used to run one regex per token kind over the whole text:
+ * <pre>
+ * EMAIL      \b[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\.[A-Z|a-z]{2,}\b
+ * URL        \bhttps?://[\w.-]+(?:\.[\w.-]+)+[\w\-._~:/?#\[\]@!$&'()*+,;=]*\b
+ * NUMBER     \b\d+(?:[.,]\d+)*\b
+ * HYPHENATED \b\w+(?:-\w+)+\b
+ * WORD       \b\w+\b
+ * </pre>
+ * This class finds exactly the matches those patterns found, in one left-to-right
+ * scan. Every recogniser keeps its own resume position, just like the separate
+ * {@code Matcher.find()} loops did, so overlapping kinds (the words inside an
+ * email, for example) are still reported.
+ * <p>
+ * Word boundaries follow {@code java.util.regex}: {@code \w} is ASCII only, and a
+ * non-spacing mark counts as a word character when it follows a letter or digit.
+ * <p>
+ * Word runs are found by a {@link DelimiterScanner}, vectorised when the JVM runs
+ * with {@code --add-modules jdk.incubator.vector} and scalar otherwise.
+ * <p>
+ * An instance is the compiled form of one {@link TokenizationConfig}: the flags
+ * are folded into a table of which recognisers can start at each character, and
+ * disabled recognisers never run. Instances are immutable and shared through
+ * {@link #compile(TokenizationConfig)}.
+ */
+final class TokenLexer {
+    private static final boolean VECTOR_SCAN_SUPPORTED = probeVectorScan();
+    private static final Map<TokenizationConfig, TokenLexer> PLANS = new ConcurrentHashMap<>();
+
+    // Recognisers that can start a match at the first character of a word run
+    private static final byte STARTS_URL = 1;
+    private static final byte STARTS_NUMBER = 1 << 1;
+
+    private static final int WORD = 1;
+    private static final int DIGIT = 1 << 1;
+    private static final int EMAIL_LOCAL = 1 << 2;
+    private static final int EMAIL_DOMAIN = 1 << 3;
+    private static final int EMAIL_TLD = 1 << 4;
+    private static final int URL_TAIL = 1 << 5;
+
+    // Indexed by Latin-1 character; nothing above ASCII belongs to a class
+    private static final byte[] CLASSES = new byte[256];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            mark(c, WORD | EMAIL_LOCAL | EMAIL_DOMAIN | EMAIL_TLD | URL_TAIL);
+            mark(Character.toUpperCase(c), WORD | EMAIL_LOCAL | EMAIL_DOMAIN | EMAIL_TLD | URL_TAIL);
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            mark(c, WORD | DIGIT | EMAIL_LOCAL | EMAIL_DOMAIN | URL_TAIL);
+        }
+        mark('_', WORD | EMAIL_LOCAL | URL_TAIL);
+        mark('.', EMAIL_LOCAL | EMAIL_DOMAIN | URL_TAIL);
+        mark('-', EMAIL_LOCAL | EMAIL_DOMAIN | URL_TAIL);
+        mark('%', EMAIL_LOCAL);
+        mark('+', EMAIL_LOCAL | URL_TAIL);
+        mark('|', EMAIL_TLD);
+        for (char c : "~:/?#[]@!$&'()*,;=".toCharArray()) {
+            mark(c, URL_TAIL);
+        }
+    }
+
+    private static void mark(char c, int classes) {
+        CLASSES[c] |= (byte) classes;
+    }
+
+    private final boolean preserveEmails;
+    private final byte[] runStarts = new byte[128];
+    private final boolean emitHyphenated;
+    private final boolean emitHyphenParts;
+    private final int minWordLength;
+    private final boolean vectorScan;
+
+    TokenLexer(TokenizationConfig config) {
+        this(config, VECTOR_SCAN_SUPPORTED);
+    }
+
+    TokenLexer(TokenizationConfig config, boolean vectorScan) {
+        this.preserveEmails = config.isPreserveEmails();
+        if (config.isPreserveUrls()) {
+            runStarts['h'] |= STARTS_URL;
+        }
+        if (config.isPreserveNumbers()) {
+            for (char c = '0'; c <= '9'; c++) {
+                runStarts[c] |= STARTS_NUMBER;
+            }
+        }
+        this.emitHyphenated = config.getHyphenHandling() != TokenizationConfig.HyphenHandling.SPLIT;
+        this.emitHyphenParts = config.getHyphenHandling() != TokenizationConfig.HyphenHandling.PRESERVE;
+        this.minWordLength = config.getMinWordLength();
+        this.vectorScan = vectorScan && VECTOR_SCAN_SUPPORTED;
+    }
+
+    /**
+     * Returns the shared lexer for {@code config}, compiling it on first use.
+     */
+    static TokenLexer compile(TokenizationConfig config) {
+        return PLANS.computeIfAbsent(config, TokenLexer::new);
+    }
+
+    /**
+     * Whether {@code jdk.incubator.vector} is available and worth using on this machine.
+     */
+    static boolean isVectorScanSupported() {
+        return VECTOR_SCAN_SUPPORTED;
+    }
+
+    private static boolean probeVectorScan() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorDelimiterScanner.isProfitable();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    private DelimiterScanner scanner(CharSequence text) {
+        DelimiterScanner scanner = vectorScan ? VectorDelimiterScanner.forText(text, preserveEmails) : null;
+        return scanner != null ? scanner : new ScalarDelimiterScanner(text, preserveEmails);
+    }
+
+    /**
+     * Reports every token of {@code text} to {@code sink}. Tokens of one kind
+     * arrive in document order; different kinds interleave.
+     */
+    void lex(CharSequence text, TokenSink sink) {
+        lex(text, 0, text.length(), sink);
+    }
+
+    /**
+     * Reports the tokens of {@code text} that lie in {@code [from, to)}. Both ends
+     * must be the text's ends or {@link #isSyncPoint sync points}, so no token
+     * crosses them and lexing consecutive ranges reports what lexing the whole
+     * text does.
+     */
+    void lex(CharSequence text, int from, int to, TokenSink sink) {
+        int emailFrom = from;
+        int urlFrom = from;
+        int numberFrom = from;
+        int hyphenFrom = from;
+        DelimiterScanner scanner = scanner(text);
+
+        int i = scanner.nextWordOrAt(from);
+        while (i < to) {
+            char c = text.charAt(i);
+            if (c == '@') {
+                emailFrom = scanEmail(text, i, emailFrom, sink);
+                i = scanner.nextWordOrAt(i + 1);
+                continue;
+            }
+
+            int runStart = i;
+            int runEnd = scanner.wordRunEnd(runStart);
+            if (!isWordBefore(text, runStart)) {
+                int starts = runStarts[c];
+                if ((starts & STARTS_URL) != 0 && runStart >= urlFrom) {
+                    urlFrom = scanUrl(text, runStart, urlFrom, sink);
+                }
+                if ((starts & STARTS_NUMBER) != 0 && runStart >= numberFrom) {
+                    numberFrom = scanNumber(text, runStart, numberFrom, sink);
+                }
+                if (runEnd < to && text.charAt(runEnd) == '-' && runStart >= hyphenFrom) {
+                    hyphenFrom = scanHyphenated(text, runStart, runEnd, hyphenFrom, sink);
+                }
+                if (!isWordAt(text, runEnd)) {
+                    emit(sink, text, runStart, runEnd, TokenKind.WORD);
+                }
+            }
+            i = scanner.nextWordOrAt(runEnd);
+        }
+    }
+
+    /**
+     * Matches an email around the '@' at {@code at}. The local part may not reach
+     * back past {@code from}, where the previous email ended.
+     */
+    private int scanEmail(CharSequence text, int at, int from, TokenSink sink) {
+        int start = at;
+        while (start > from && is(text.charAt(start - 1), EMAIL_LOCAL)) {
+            start--;
+        }
+        while (start < at && !isBoundary(text, start)) {
+            start++;
+        }
+        if (start == at) {
+            return from;
+        }
+
+        int domainStart = at + 1;
+        int domainEnd = skip(text, domainStart, EMAIL_DOMAIN);
+
+        // Backtrack over the dots of the domain, last one first, like the regex did
+        for (int dot = domainEnd - 1; dot > domainStart; dot--) {
+            if (text.charAt(dot) != '.') {
+                continue;
+            }
+            int tldEnd = skip(text, dot + 1, EMAIL_TLD);
+            for (int end = tldEnd; end >= dot + 3; end--) {
+                if (isBoundary(text, end)) {
+                    emit(sink, text, start, end, TokenKind.EMAIL);
+                    return end;
+                }
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Matches a URL starting at {@code start}, which is known to be a word boundary.
+     */
+    private int scanUrl(CharSequence text, int start, int from, TokenSink sink) {
+        int hostStart = schemeEnd(text, start);
+        if (hostStart < 0) {
+            return from;
+        }
+
+        int length = text.length();
+        int firstDot = -1;
+        int hostEnd = hostStart;
+        while (hostEnd < length && isHostChar(text.charAt(hostEnd))) {
+            if (firstDot < 0 && hostEnd > hostStart && text.charAt(hostEnd) == '.') {
+                firstDot = hostEnd;
+            }
+            hostEnd++;
+        }
+        if (firstDot < 0 || firstDot + 1 >= hostEnd) {
+            return from;
+        }
+
+        // The shortest host the pattern accepts ends one character after the first dot;
+        // the match takes the longest end up to the tail that sits on a word boundary.
+        int tailEnd = skip(text, hostEnd, URL_TAIL);
+        for (int end = tailEnd; end >= firstDot + 2; end--) {
+            if (isBoundary(text, end)) {
+                emit(sink, text, start, end, TokenKind.URL);
+                return end;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Returns the index after "http://" or "https://" at {@code start}, or -1.
+     */
+    private static int schemeEnd(CharSequence text, int start) {
+        int length = text.length();
+        if (!regionMatches(text, start, "http")) {
+            return -1;
+        }
+        int i = start + 4;
+        if (i < length && text.charAt(i) == 's') {
+            i++;
+        }
+        return regionMatches(text, i, "://") ? i + 3 : -1;
+    }
+
+    private static boolean regionMatches(CharSequence text, int from, String expected) {
+        if (from + expected.length() > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (text.charAt(from + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Matches a number starting at {@code start}, which is a word boundary and a digit.
+     */
+    private int scanNumber(CharSequence text, int start, int from, TokenSink sink) {
+        int length = text.length();
+        int groupEnd = skip(text, start, DIGIT);
+        // End of the second to last digit group; always a boundary since a separator follows
+        int previousGroupEnd = -1;
+        while (groupEnd + 1 < length
+                && (text.charAt(groupEnd) == '.' || text.charAt(groupEnd) == ',')
+                && is(text.charAt(groupEnd + 1), DIGIT)) {
+            previousGroupEnd = groupEnd;
+            groupEnd = skip(text, groupEnd + 1, DIGIT);
+        }
+
+        int end = isBoundary(text, groupEnd) ? groupEnd : previousGroupEnd;
+        if (end < 0) {
+            return from;
+        }
+        emit(sink, text, start, end, TokenKind.NUMBER);
+        return end;
+    }
+
+    /**
+     * Matches a hyphenated word starting at the word run {@code [start, runEnd)},
+     * which begins on a word boundary.
+     */
+    private int scanHyphenated(CharSequence text, int start, int runEnd, int from, TokenSink sink) {
+        int length = text.length();
+        int parts = 1;
+        int partEnd = runEnd;
+        // End of the second to last part, usable when there are at least three parts
+        int previousPartEnd = -1;
+        while (partEnd + 1 < length && text.charAt(partEnd) == '-' && is(text.charAt(partEnd + 1), WORD)) {
+            if (parts >= 2) {
+                previousPartEnd = partEnd;
+            }
+            parts++;
+            partEnd = skip(text, partEnd + 1, WORD);
+        }
+        if (parts < 2) {
+            return from;
+        }
+
+        int end = isBoundary(text, partEnd) ? partEnd : previousPartEnd;
+        if (end < 0) {
+            return from;
+        }
+
+        if (emitHyphenated) {
+            emit(sink, text, start, end, TokenKind.HYPHENATED);
+        }
+        if (emitHyphenParts) {
+            int partStart = start;
+            while (partStart < end) {
+                int nextHyphen = skip(text, partStart, WORD);
+                emit(sink, text, partStart, nextHyphen, TokenKind.HYPHEN_PART);
+                partStart = nextHyphen + 1;
+            }
+        }
+        return end;
+    }
+
+    private void emit(TokenSink sink, CharSequence text, int start, int end, TokenKind kind) {
+        if (end - start >= minWordLength) {
+            sink.accept(text, start, end, kind);
+        }
+    }
+
+    /**
+     * Returns the first index at or after {@code from} holding a sync point, or the
+     * text length. A sync point is an ASCII character that no token kind accepts,
+     * such as whitespace: every recogniser stops there, so the text can be split
+     * at it without changing the tokens.
+     */
+    static int nextSyncPoint(CharSequence text, int from) {
+        int length = text.length();
+        int i = from;
+        while (i < length && !isSyncPoint(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    static boolean isSyncPoint(char c) {
+        return c < 128 && CLASSES[c] == 0;
+    }
+
+    static boolean isWordChar(char c) {
+        return is(c, WORD);
+    }
+
+    private static boolean is(char c, int classes) {
+        return c < 256 && (CLASSES[c] & classes) != 0;
+    }
+
+    private static boolean isHostChar(char c) {
+        return is(c, WORD) || c == '.' || c == '-';
+    }
+
+    private static int skip(CharSequence text, int from, int classes) {
+        int length = text.length();
+        int i = from;
+        while (i < length && is(text.charAt(i), classes)) {
+            i++;
+        }
+        return i;
+    }
+
+    static boolean isBoundary(CharSequence text, int index) {
+        return isWordBefore(text, index) != isWordAt(text, index);
+    }
+
+    /*
+     * Boundary checks take a table lookup for Latin-1 text, which has no word
+     * characters beyond ASCII and no non-spacing marks; only higher code points
+     * go through Character.getType and the base character walk.
+     */
+
+    private static boolean isWordBefore(CharSequence text, int index) {
+        if (index <= 0) {
+            return false;
+        }
+        char c = text.charAt(index - 1);
+        if (text instanceof Utf8Text utf8) {
+            return c < 128 ? (CLASSES[c] & WORD) != 0 : isWordBefore(utf8, index);
+        }
+        if (c < 256) {
+            return (CLASSES[c] & WORD) != 0;
+        }
+        int codePoint = Character.codePointBefore(text, index);
+        return isNonSpacingMark(codePoint) && hasBaseCharacter(text, index - 1);
+    }
+
+    private static boolean isWordAt(CharSequence text, int index) {
+        if (index >= text.length()) {
+            return false;
+        }
+        char c = text.charAt(index);
+        if (text instanceof Utf8Text utf8) {
+            // Lead bytes below 0xCC encode code points below U+0300, the first
+            // non-spacing mark; continuation bytes decode to U+FFFD
+            return c < 128 ? (CLASSES[c] & WORD) != 0
+                    : c >= 0xCC && isNonSpacingMark(utf8.codePointAt(index)) && hasBaseCharacter(utf8, index);
+        }
+        if (c < 256) {
+            return (CLASSES[c] & WORD) != 0;
+        }
+        int codePoint = Character.codePointAt(text, index);
+        return isNonSpacingMark(codePoint) && hasBaseCharacter(text, index);
+    }
+
+    private static boolean isWordBefore(Utf8Text utf8, int index) {
+        // A two-byte sequence with a lead below 0xCC is a code point below U+0300
+        if (index >= 2) {
+            char lead = utf8.charAt(index - 2);
+            if (lead >= 0xC2 && lead < 0xCC && (utf8.charAt(index - 1) & 0xC0) == 0x80) {
+                return false;
+            }
+        }
+        int codePoint = utf8.codePointBefore(index);
+        // The regex looks for the base one UTF-16 unit back, which for a
+        // supplementary mark is its own low surrogate
+        return isNonSpacingMark(codePoint) && !Character.isSupplementaryCodePoint(codePoint)
+                && hasBaseCharacter(utf8, index - Utf8Text.encodedLength(codePoint));
+    }
+
+    private static boolean isNonSpacingMark(int codePoint) {
+        return Character.getType(codePoint) == Character.NON_SPACING_MARK;
+    }
+
+    /**
+     * Same walk as {@code java.util.regex.Pattern.hasBaseCharacter}: non-spacing
+     * marks count as word characters only when they follow a letter or digit.
+     */
+    private static boolean hasBaseCharacter(CharSequence text, int index) {
+        for (int i = index; i >= 0; i--) {
+            int codePoint = Character.codePointAt(text, i);
+            if (Character.isLetterOrDigit(codePoint)) {
+                return true;
+            }
+            if (!isNonSpacingMark(codePoint)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The walk above over UTF-8, stepping back one code point at a time. Stepping
+     * onto a supplementary code point ends the walk, because in UTF-16 the regex
+     * would land on its low surrogate.
+     */
+    private static boolean hasBaseCharacter(Utf8Text text, int index) {
+        int i = index;
+        int codePoint = text.codePointAt(i);
+        while (true) {
+            if (Character.isLetterOrDigit(codePoint)) {
+                return true;
+            }
+            if (!isNonSpacingMark(codePoint) || i == 0) {
+                return false;
+            }
+            codePoint = text.codePointBefore(i);
+            if (Character.isSupplementaryCodePoint(codePoint)) {
+                return false;
+            }
+            i -= Utf8Text.encodedLength(codePoint);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package io.github.bluething.textflow.domain.tokenization;
+
+/**
+ * Receives tokens as spans over the text being tokenized, so a consumer only
+ * builds a {@code String} for the tokens it decides to keep.
+ */
+@FunctionalInterface
+public interface TokenSink {
+    /**
+     * Called once per token.
+     *
+     * @param text  the text being tokenized
+     * @param start index of the token's first character
+     * @param end   index after the token's last character
+     * @param kind  the recogniser that produced the token
+     */
+    void accept(CharSequence text, int start, int end, TokenKind kind);
+}
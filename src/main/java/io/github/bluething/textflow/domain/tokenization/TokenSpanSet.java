@@ -0,0 +1,117 @@
+package io.github.bluething.textflow.domain.tokenization;
+
+import java.util.Arrays;
+
+/**
+ * Insertion-ordered set of token spans over one text, compared by their characters.
+ * Spans are stored as offsets into the text, so adding a token allocates nothing
+ * beyond the occasional table growth.
+ */
+final class TokenSpanSet {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final CharSequence text;
+    private int[] table = new int[INITIAL_CAPACITY]; // entry index + 1, 0 marks a free slot
+    private int[] starts = new int[INITIAL_CAPACITY / 2];
+    private int[] ends = new int[INITIAL_CAPACITY / 2];
+    private int[] hashes = new int[INITIAL_CAPACITY / 2];
+    private TokenKind[] kinds = new TokenKind[INITIAL_CAPACITY / 2];
+    private int size;
+
+    TokenSpanSet(CharSequence text) {
+        this.text = text;
+    }
+
+    /**
+     * Adds the span {@code [start, end)} unless an equal token is already present.
+     *
+     * @return true if the token was not present before
+     */
+    boolean add(int start, int end, TokenKind kind) {
+        return add(start, end, SpanHash.hash(text, start, end), kind);
+    }
+
+    /**
+     * Adds the tokens of {@code other}, a set over the same text, that are not
+     * present yet, keeping their order after the tokens already here.
+     */
+    void addAll(TokenSpanSet other) {
+        for (int entry = 0; entry < other.size; entry++) {
+            add(other.starts[entry], other.ends[entry], other.hashes[entry], other.kinds[entry]);
+        }
+    }
+
+    private boolean add(int start, int end, int hash, TokenKind kind) {
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot] - 1;
+            if (entry < 0) {
+                append(slot, start, end, hash, kind);
+                return true;
+            }
+            if (hashes[entry] == hash && matches(entry, start, end)) {
+                return false;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int start(int index) {
+        return starts[index];
+    }
+
+    int end(int index) {
+        return ends[index];
+    }
+
+    TokenKind kind(int index) {
+        return kinds[index];
+    }
+
+    private void append(int slot, int start, int end, int hash, TokenKind kind) {
+        if (size == starts.length) {
+            int capacity = size * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        hashes[size] = hash;
+        kinds[size] = kind;
+        table[slot] = ++size;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int slot = hashes[entry] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = entry + 1;
+        }
+    }
+
+    private boolean matches(int entry, int start, int end) {
+        int otherStart = starts[entry];
+        int length = end - start;
+        if (ends[entry] - otherStart != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(start + i) != text.charAt(otherStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,5 +1,7 @@
 package io.github.bluething.textflow.domain.tokenization;
 
+import java.util.Objects;
+
 public class TokenizationConfig {
     public enum HyphenHandling {
         /**
@@ -98,4 +100,29 @@ public class TokenizationConfig {
     public int getMinWordLength() {
         return minWordLength;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TokenizationConfig that)) return false;
+        return preserveNumbers == that.preserveNumbers
+                && preserveEmails == that.preserveEmails
+                && preserveUrls == that.preserveUrls
+                && minWordLength == that.minWordLength
+                && hyphenHandling == that.hyphenHandling;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hyphenHandling, preserveNumbers, preserveEmails, preserveUrls, minWordLength);
+    }
+
+    @Override
+    public String toString() {
+        return "TokenizationConfig[hyphenHandling=" + hyphenHandling
+                + ", preserveNumbers=" + preserveNumbers
+                + ", preserveEmails=" + preserveEmails
+                + ", preserveUrls=" + preserveUrls
+                + ", minWordLength=" + minWordLength + "]";
+    }
 }
@@ -0,0 +1,116 @@
+package io.github.bluething.textflow.domain.tokenization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The distinct tokens of one text, kept as spans so several rules can share a
+ * single tokenization. Tokens are held in the order {@link SmartTokenizer#tokenize(String)}
+ * returns them.
+ */
+public final class TokenizedText {
+    private final CharSequence text;
+    private final TokenizationConfig config;
+    private final int[] starts;
+    private final int[] ends;
+    private final TokenKind[] kinds;
+    private final int size;
+
+    private TokenizedText(Builder builder) {
+        this.text = builder.text;
+        this.config = builder.config;
+        this.starts = builder.starts;
+        this.ends = builder.ends;
+        this.kinds = builder.kinds;
+        this.size = builder.size;
+    }
+
+    /**
+     * Reports every token to {@code sink}, in order.
+     */
+    public void forEach(TokenSink sink) {
+        for (int i = 0; i < size; i++) {
+            sink.accept(text, starts[i], ends[i], kinds[i]);
+        }
+    }
+
+    /**
+     * Materialises the tokens as strings.
+     */
+    public List<String> toList() {
+        if (size == 0) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>(size);
+        forEach((source, start, end, kind) -> tokens.add(source.subSequence(start, end).toString()));
+        return tokens;
+    }
+
+    public int start(int index) {
+        return starts[Objects.checkIndex(index, size)];
+    }
+
+    public int end(int index) {
+        return ends[Objects.checkIndex(index, size)];
+    }
+
+    public TokenKind kind(int index) {
+        return kinds[Objects.checkIndex(index, size)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * The text the token spans point into.
+     */
+    public CharSequence text() {
+        return text;
+    }
+
+    public TokenizationConfig config() {
+        return config;
+    }
+
+    static Builder builder(CharSequence text, TokenizationConfig config) {
+        return new Builder(text, config);
+    }
+
+    static final class Builder implements TokenSink {
+        private final CharSequence text;
+        private final TokenizationConfig config;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private TokenKind[] kinds = new TokenKind[16];
+        private int size;
+
+        private Builder(CharSequence text, TokenizationConfig config) {
+            this.text = text;
+            this.config = config;
+        }
+
+        @Override
+        public void accept(CharSequence source, int start, int end, TokenKind kind) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                kinds = Arrays.copyOf(kinds, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            kinds[size] = kind;
+            size++;
+        }
+
+        TokenizedText build() {
+            return new TokenizedText(this);
+        }
+    }
+}
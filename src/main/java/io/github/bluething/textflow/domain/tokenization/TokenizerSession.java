@@ -0,0 +1,102 @@
+package io.github.bluething.textflow.domain.tokenization;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Tokenizes a text that arrives in chunks, such as the output of a streaming
+ * decoder, without ever holding the whole text.
+ * <p>
+ * Each {@link #feed(CharBuffer)} lexes everything up to the last sync point in
+ * the text so far (a character no token can contain, such as whitespace) and
+ * keeps only the rest, which may still be part of a token. {@link #finish()}
+ * lexes that remainder. The tokens reported are those of
+ * {@link SmartTokenizer#tokenize(CharSequence, TokenSink)} over the whole text,
+ * in the same order, unless more than {@value #MAX_UNSYNCED} characters pass
+ * without a sync point: that stretch is then lexed as it stands, splitting any
+ * token that runs across the cut, as windows over a mapped file do. Memory is
+ * thus bounded by the chunk size plus that limit.
+ * <p>
+ * The text handed to the sink is the session's own buffer: spans are relative to
+ * it and are only valid during the call. Not thread-safe.
+ */
+public final class TokenizerSession {
+    private static final int INITIAL_CAPACITY = 8192;
+    // Far longer than any real token; past it, a run without a sync point is cut
+    static final int MAX_UNSYNCED = 1 << 20;
+
+    private final SegmentLexer lexer;
+    private char[] buffer = new char[INITIAL_CAPACITY];
+    // The buffer holds the text from the last sync point on, or from the start of the text
+    private int length;
+    private boolean finished;
+
+    TokenizerSession(TokenLexer lexer, TokenSink sink) {
+        this((text, start, end) -> lexer.lex(text, start, end, sink));
+    }
+
+    /**
+     * @param lexer lexes each segment of the text as it becomes ready
+     */
+    TokenizerSession(SegmentLexer lexer) {
+        this.lexer = lexer;
+    }
+
+    /**
+     * Tokenizes the remaining characters of {@code chunk} as far as they can be
+     * tokenized without seeing what follows. Consumes the chunk.
+     */
+    public void feed(CharBuffer chunk) {
+        if (finished) {
+            throw new IllegalStateException("Session already finished");
+        }
+        int fed = length;
+        int count = chunk.remaining();
+        if (length + count > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+        }
+        chunk.get(buffer, length, count);
+        length += count;
+
+        // Only the new characters can hold a sync point that has not been lexed up to
+        int sync = length - 1;
+        while (sync >= fed && !TokenLexer.isSyncPoint(buffer[sync])) {
+            sync--;
+        }
+        int end = length;
+        if (sync < fed || sync == 0) {
+            if (length <= MAX_UNSYNCED) {
+                return;
+            }
+            // Lex it all, but keep a high surrogate with the low one to come. The cut is
+            // no sync point, so the text lexed ends there
+            sync = Character.isHighSurrogate(buffer[length - 1]) ? length - 1 : length;
+            end = sync;
+        }
+
+        lexer.lex(CharBuffer.wrap(buffer, 0, end), 0, sync);
+        System.arraycopy(buffer, sync, buffer, 0, length - sync);
+        length -= sync;
+    }
+
+    /**
+     * Tokenizes what is left of the text. The session cannot be fed afterwards.
+     */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        lexer.lex(CharBuffer.wrap(buffer, 0, length), 0, length);
+        buffer = null;
+    }
+
+    /**
+     * Lexes the segment {@code [start, end)} of a session's buffer, reporting its
+     * tokens before returning.
+     */
+    @FunctionalInterface
+    interface SegmentLexer {
+        void lex(CharSequence text, int start, int end);
+    }
+}
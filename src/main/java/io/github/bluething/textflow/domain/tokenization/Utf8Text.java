@@ -0,0 +1,136 @@
+package io.github.bluething.textflow.domain.tokenization;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 encoded text, such as a memory-mapped file, presented to the tokenizer
+ * without decoding it.
+ * <p>
+ * Indexes are byte offsets and {@link #charAt(int)} returns the raw byte. ASCII
+ * bytes are therefore the characters they encode, and since every token the
+ * tokenizer recognises is ASCII, token spans over this view are exact. Bytes of
+ * multibyte sequences come back as values above 127, which the tokenizer treats
+ * as delimiters; it decodes them with {@link #codePointAt(int)} and
+ * {@link #codePointBefore(int)} only where a word boundary depends on them.
+ * Malformed sequences decode to U+FFFD, as they would when the whole text is
+ * decoded.
+ */
+public final class Utf8Text implements CharSequence {
+    private static final int REPLACEMENT = 0xFFFD;
+
+    private final ByteBuffer bytes;
+
+    /**
+     * Wraps the remaining bytes of {@code bytes}; index 0 is the buffer's position.
+     */
+    public Utf8Text(ByteBuffer bytes) {
+        this.bytes = bytes.slice();
+    }
+
+    @Override
+    public int length() {
+        return bytes.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new Utf8Text(bytes.slice(start, end - start));
+    }
+
+    /**
+     * Decodes the whole text.
+     */
+    @Override
+    public String toString() {
+        byte[] copy = new byte[bytes.limit()];
+        bytes.get(0, copy);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The bytes, with index 0 at position 0.
+     */
+    ByteBuffer bytes() {
+        return bytes;
+    }
+
+    /**
+     * Decodes the code point whose encoding starts at {@code index}.
+     */
+    int codePointAt(int index) {
+        int codePoint = decode(index);
+        return codePoint < 0 ? REPLACEMENT : codePoint;
+    }
+
+    /**
+     * Decodes the code point whose encoding ends just before {@code index}.
+     */
+    int codePointBefore(int index) {
+        int start = index - 1;
+        while (start > 0 && start > index - 4 && isContinuation(bytes.get(start))) {
+            start--;
+        }
+        int codePoint = decode(start);
+        return codePoint >= 0 && start + encodedLength(codePoint) == index ? codePoint : REPLACEMENT;
+    }
+
+    static int encodedLength(int codePoint) {
+        if (codePoint < 0x80) return 1;
+        if (codePoint < 0x800) return 2;
+        if (codePoint < 0x10000) return 3;
+        return 4;
+    }
+
+    /**
+     * Decodes the well-formed sequence at {@code index}, or returns -1.
+     */
+    private int decode(int index) {
+        int lead = bytes.get(index) & 0xFF;
+        if (lead < 0x80) {
+            return lead;
+        }
+
+        int length;
+        int codePoint;
+        int min;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            length = 2;
+            codePoint = lead & 0x1F;
+            min = 0x80;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            length = 3;
+            codePoint = lead & 0x0F;
+            min = 0x800;
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            length = 4;
+            codePoint = lead & 0x07;
+            min = 0x10000;
+        } else {
+            return -1;
+        }
+        if (index + length > bytes.limit()) {
+            return -1;
+        }
+
+        for (int i = 1; i < length; i++) {
+            byte next = bytes.get(index + i);
+            if (!isContinuation(next)) {
+                return -1;
+            }
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        boolean overlong = codePoint < min;
+        boolean surrogate = codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE;
+        return overlong || surrogate || codePoint > Character.MAX_CODE_POINT ? -1 : codePoint;
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+}
@@ -0,0 +1,240 @@
+package io.github.bluething.textflow.domain.tokenization;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * Classifies a whole block of characters per iteration with the Vector API and
+ * keeps the result as bitmasks, one bit per position: word characters, and word
+ * characters or '@'. Lookups within a block are then a shift and a trailing zero
+ * count. The last, partial block of a text is classified one character at a time.
+ * <p>
+ * Only loaded when {@code jdk.incubator.vector} is in the boot layer; see
+ * {@link TokenLexer#isVectorScanSupported()}.
+ */
+abstract class VectorDelimiterScanner implements DelimiterScanner {
+    private static final VectorSpecies<Byte> BYTES = species(ByteVector.SPECIES_PREFERRED, ByteVector.SPECIES_512);
+    private static final VectorSpecies<Short> CHARS = species(ShortVector.SPECIES_PREFERRED, ShortVector.SPECIES_512);
+
+    private final int length;
+    private final int lanes;
+    private final boolean stopAtAt;
+    private int blockStart;
+    private int blockEnd;
+    private long candidateBits;
+    private long nonWordBits;
+
+    private VectorDelimiterScanner(int length, int lanes, boolean stopAtAt) {
+        this.length = length;
+        this.lanes = lanes;
+        this.stopAtAt = stopAtAt;
+    }
+
+    /**
+     * Returns a scanner for {@code text}, or null if it is not a type whose
+     * characters can be loaded into vectors.
+     */
+    static DelimiterScanner forText(CharSequence text, boolean stopAtAt) {
+        if (text instanceof String string) {
+            return new Utf16(string, stopAtAt);
+        }
+        if (text instanceof CharBuffer chars && chars.hasArray()) {
+            return new Utf16(chars, stopAtAt);
+        }
+        if (text instanceof Utf8Text utf8) {
+            return new Utf8(utf8.bytes(), stopAtAt);
+        }
+        return null;
+    }
+
+    /**
+     * Whether the preferred vector shape is wide enough to beat the scalar scan.
+     */
+    static boolean isProfitable() {
+        return ByteVector.SPECIES_PREFERRED.vectorBitSize() >= 128;
+    }
+
+    // Masks are read into a long, so at most 64 lanes
+    private static <E> VectorSpecies<E> species(VectorSpecies<E> preferred, VectorSpecies<E> fallback) {
+        return preferred.length() <= Long.SIZE ? preferred : fallback;
+    }
+
+    @Override
+    public int nextWordOrAt(int from) {
+        int i = from;
+        while (i < length) {
+            if (i < blockStart || i >= blockEnd) {
+                load(i);
+            }
+            long bits = candidateBits >>> (i - blockStart);
+            if (bits != 0) {
+                return i + Long.numberOfTrailingZeros(bits);
+            }
+            i = blockEnd;
+        }
+        return length;
+    }
+
+    @Override
+    public int wordRunEnd(int from) {
+        int i = from;
+        while (i < length) {
+            if (i < blockStart || i >= blockEnd) {
+                load(i);
+            }
+            long bits = nonWordBits >>> (i - blockStart);
+            if (bits != 0) {
+                return i + Long.numberOfTrailingZeros(bits);
+            }
+            i = blockEnd;
+        }
+        return length;
+    }
+
+    private void load(int from) {
+        int size = Math.min(lanes, length - from);
+        long word;
+        long at;
+        if (size == lanes) {
+            word = wordMask(from);
+            at = stopAtAt ? atMask(from) : 0;
+        } else {
+            word = 0;
+            at = 0;
+            for (int i = 0; i < size; i++) {
+                char c = charAt(from + i);
+                word |= TokenLexer.isWordChar(c) ? 1L << i : 0;
+                at |= c == '@' && stopAtAt ? 1L << i : 0;
+            }
+        }
+        long valid = size == Long.SIZE ? -1L : (1L << size) - 1;
+        blockStart = from;
+        blockEnd = from + size;
+        candidateBits = word | at;
+        nonWordBits = ~word & valid;
+    }
+
+    /**
+     * Loads the block at {@code from}; {@link #atMask}, if needed, is called next
+     * for the same block.
+     */
+    abstract long wordMask(int from);
+
+    abstract long atMask(int from);
+
+    abstract char charAt(int index);
+
+    /**
+     * UTF-8 bytes, such as a mapped file. Bytes of multibyte sequences are negative
+     * as signed bytes and so never classify as word characters or '@'.
+     */
+    private static final class Utf8 extends VectorDelimiterScanner {
+        private final ByteBuffer bytes;
+        private final byte[] array;
+        private final int arrayOffset;
+        private ByteVector block;
+
+        Utf8(ByteBuffer bytes, boolean stopAtAt) {
+            super(bytes.limit(), BYTES.length(), stopAtAt);
+            this.bytes = bytes;
+            if (bytes.hasArray()) {
+                this.array = bytes.array();
+                this.arrayOffset = bytes.arrayOffset();
+            } else {
+                // Off-heap bytes are copied into this array a block at a time
+                this.array = new byte[BYTES.length()];
+                this.arrayOffset = -1;
+            }
+        }
+
+        @Override
+        long wordMask(int from) {
+            if (arrayOffset >= 0) {
+                block = ByteVector.fromArray(BYTES, array, arrayOffset + from);
+            } else {
+                bytes.get(from, array, 0, array.length);
+                block = ByteVector.fromArray(BYTES, array, 0);
+            }
+            ByteVector folded = block.or((byte) 0x20);
+            VectorMask<Byte> word = folded.compare(VectorOperators.GE, (byte) 'a')
+                    .and(folded.compare(VectorOperators.LE, (byte) 'z'))
+                    .or(block.compare(VectorOperators.GE, (byte) '0')
+                            .and(block.compare(VectorOperators.LE, (byte) '9')))
+                    .or(block.compare(VectorOperators.EQ, (byte) '_'));
+            return word.toLong();
+        }
+
+        @Override
+        long atMask(int from) {
+            return block.compare(VectorOperators.EQ, (byte) '@').toLong();
+        }
+
+        @Override
+        char charAt(int index) {
+            return (char) (bytes.get(index) & 0xFF);
+        }
+    }
+
+    /**
+     * A heap CharBuffer, loaded straight from its array, or a String, copied a
+     * block at a time into a char array to load it. Characters from U+8000 up are
+     * negative as shorts, and those from U+0080 up never fall in an ASCII range,
+     * so only ASCII classifies as a word character.
+     */
+    private static final class Utf16 extends VectorDelimiterScanner {
+        private final CharSequence text;
+        private final String string;
+        private final char[] chars;
+        private final int offset;
+        private ShortVector block;
+
+        Utf16(String text, boolean stopAtAt) {
+            super(text.length(), CHARS.length(), stopAtAt);
+            this.text = text;
+            this.string = text;
+            this.chars = new char[CHARS.length()];
+            this.offset = -1;
+        }
+
+        Utf16(CharBuffer text, boolean stopAtAt) {
+            super(text.length(), CHARS.length(), stopAtAt);
+            this.text = text;
+            this.string = null;
+            this.chars = text.array();
+            this.offset = text.arrayOffset() + text.position();
+        }
+
+        @Override
+        long wordMask(int from) {
+            if (string != null) {
+                string.getChars(from, from + chars.length, chars, 0);
+                block = ShortVector.fromCharArray(CHARS, chars, 0);
+            } else {
+                block = ShortVector.fromCharArray(CHARS, chars, offset + from);
+            }
+            ShortVector folded = block.or((short) 0x20);
+            VectorMask<Short> word = folded.compare(VectorOperators.GE, (short) 'a')
+                    .and(folded.compare(VectorOperators.LE, (short) 'z'))
+                    .or(block.compare(VectorOperators.GE, (short) '0')
+                            .and(block.compare(VectorOperators.LE, (short) '9')))
+                    .or(block.compare(VectorOperators.EQ, (short) '_'));
+            return word.toLong();
+        }
+
+        @Override
+        long atMask(int from) {
+            return block.compare(VectorOperators.EQ, (short) '@').toLong();
+        }
+
+        @Override
+        char charAt(int index) {
+            return text.charAt(index);
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package io.github.bluething.textflow.domain;
+
+import io.github.bluething.textflow.domain.rules.CountResult;
+import io.github.bluething.textflow.domain.rules.IndexingRule;
+import io.github.bluething.textflow.domain.rules.IndexingRuleResult;
+import io.github.bluething.textflow.domain.rules.ListResult;
+import io.github.bluething.textflow.domain.rules.LongWordsRule;
+import io.github.bluething.textflow.domain.rules.SmartTokenizingRule;
+import io.github.bluething.textflow.domain.rules.TermCount;
+import io.github.bluething.textflow.domain.rules.TokenVisitingRule;
+import io.github.bluething.textflow.domain.rules.TokenVisitor;
+import io.github.bluething.textflow.domain.rules.TopTermsResult;
+import io.github.bluething.textflow.domain.rules.TopTermsRule;
+import io.github.bluething.textflow.domain.rules.UppercaseWordCountRule;
+import io.github.bluething.textflow.domain.tokenization.TokenKind;
+import io.github.bluething.textflow.domain.tokenization.TokenizationConfig;
+import io.github.bluething.textflow.domain.tokenization.TokenizedText;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("FileProcessor Tests")
+class FileProcessorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("processFile() Method Tests")
+    class ProcessFileTests {
+
+        @Test
+        @DisplayName("Should apply the built-in rules to a text file")
+        void shouldApplyBuiltInRules() throws IOException {
+            // Given
+            Path file = Files.writeString(tempDir.resolve("sample.txt"),
+                    "Lorem ipsum dolor sit amet, consectetur adipiscing elit. Lorem Consectetur");
+            var processor = new FileProcessor(new ContentExtractorRegistry(),
+                    List.of(new UppercaseWordCountRule(), new LongWordsRule()));
+
+            // When
+            FileProcessingResult result = processor.processFile(file);
+
+            // Then
+            assertThat(result.isSuccess()).isTrue();
+            assertThat(result.indexingResults().get("Words starting with uppercase"))
+                    .isEqualTo(new CountResult(2));
+            assertThat(result.indexingResults().get("Words longer than 5 characters"))
+                    .isEqualTo(new ListResult(List.of("consectetur", "adipiscing")));
+        }
+
+        @Test
+        @DisplayName("Should tokenize once per distinct tokenization config")
+        void shouldShareTokensBetweenRulesWithTheSameConfig() throws IOException {
+            // Given
+            Path file = Files.writeString(tempDir.resolve("shared.txt"), "Some well-known words");
+            var splitConfig = new TokenizationConfig.Builder()
+                    .withHyphenHandling(TokenizationConfig.HyphenHandling.SPLIT)
+                    .build();
+            var first = new RecordingRule("first", TokenizationConfig.defaultConfig());
+            var second = new RecordingRule("second", TokenizationConfig.defaultConfig());
+            var split = new RecordingRule("split", splitConfig);
+            var processor = new FileProcessor(new ContentExtractorRegistry(), List.of(first, second, split));
+
+            // When
+            processor.processFile(file);
+
+            // Then
+            assertThat(first.received).hasSize(1);
+            assertThat(second.received).singleElement().isSameAs(first.received.getFirst());
+            assertThat(split.received).singleElement().isNotSameAs(first.received.getFirst());
+            assertThat(split.received.getFirst().toList()).contains("well", "known").doesNotContain("well-known");
+        }
+
+        @Test
+        @DisplayName("Should give the same results when tokenizing a large file's mapped bytes")
+        void shouldTokenizeMappedBytesLikeDecodedText() throws IOException {
+            // Given - a text file over the memory mapping threshold
+            var content = new StringBuilder();
+            for (int i = 0; content.length() < 11 * 1024 * 1024; i++) {
+                content.append("Line ").append(i).append(" naïve café-au-lait Überraschung mail").append(i % 97)
+                        .append("@example.com https://example.org/").append(i % 13).append('\n');
+            }
+            Path file = Files.writeString(tempDir.resolve("large.log"), content);
+            var rules = List.<IndexingRule>of(new UppercaseWordCountRule(), new LongWordsRule());
+            var mapped = new FileProcessor(configuration(rules, true));
+            var decoded = new FileProcessor(configuration(rules, false));
+
+            // When
+            FileProcessingResult mappedResult = mapped.processFile(file);
+            FileProcessingResult decodedResult = decoded.processFile(file);
+
+            // Then
+            assertThat(mappedResult.isSuccess()).isTrue();
+            assertThat(mappedResult.indexingResults()).isEqualTo(decodedResult.indexingResults());
+        }
+
+        @Test
+        @DisplayName("Should decode a large file for a tokenizing rule that reads the content itself")
+        void shouldDecodeLargeFileForContentReadingRule() throws IOException {
+            // Given - a text file over the memory mapping threshold and a rule that only overrides apply
+            var content = new StringBuilder();
+            for (int i = 0; content.length() < 11 * 1024 * 1024; i++) {
+                content.append("Line ").append(i).append(" of the log\n");
+            }
+            Path file = Files.writeString(tempDir.resolve("large.log"), content);
+            var rule = new SmartTokenizingRule() {
+                @Override
+                public String getName() {
+                    return "Token count";
+                }
+
+                @Override
+                public IndexingRuleResult apply(TextContent textContent) {
+                    return new CountResult(tokenize(textContent.content()).size());
+                }
+            };
+            var processor = new FileProcessor(configuration(List.of(rule), true));
+
+            // When
+            FileProcessingResult result = processor.processFile(file);
+
+            // Then
+            assertThat(result.isSuccess()).isTrue();
+            var decoded = TextContent.of(content.toString(), "large.log", "log", "text/plain");
+            assertThat(result.indexingResults()).containsExactly(entry("Token count", rule.apply(decoded)));
+            assertThat(result.indexingResults().get("Token count")).isNotEqualTo(new CountResult(0));
+        }
+
+        @Test
+        @DisplayName("Should fall back to a zero count when a rule fails")
+        void shouldIsolateFailingRules() throws IOException {
+            // Given
+            Path file = Files.writeString(tempDir.resolve("failing.txt"), "Some Text");
+            IndexingRule failing = new IndexingRule() {
+                @Override
+                public String getName() {
+                    return "failing";
+                }
+
+                @Override
+                public IndexingRuleResult apply(TextContent content) {
+                    throw new IllegalStateException("boom");
+                }
+            };
+            var processor = new FileProcessor(new ContentExtractorRegistry(),
+                    List.of(failing, new UppercaseWordCountRule()));
+
+            // When
+            FileProcessingResult result = processor.processFile(file);
+
+            // Then
+            assertThat(result.indexingResults())
+                    .containsEntry("failing", new CountResult(0))
+                    .containsEntry("Words starting with uppercase", new CountResult(2));
+        }
+
+        @Test
+        @DisplayName("Should feed visitor rules and legacy token rules from the same pass")
+        void shouldIsolateFailingVisitors() throws IOException {
+            // Given
+            Path file = Files.writeString(tempDir.resolve("visitors.txt"), "Some Text with Capitals");
+            TokenVisitingRule failing = new TokenVisitingRule() {
+                @Override
+                public String getName() {
+                    return "failing visitor";
+                }
+
+                @Override
+                public IndexingRuleResult apply(TextContent content) {
+                    throw new AssertionError("expected the visitor to be used");
+                }
+
+                @Override
+                public TokenizationConfig getTokenizationConfig() {
+                    return TokenizationConfig.defaultConfig();
+                }
+
+                @Override
+                public TokenVisitor newVisitor() {
+                    return new TokenVisitor() {
+                        @Override
+                        public void onToken(CharSequence text, int start, int end, TokenKind kind) {
+                            throw new IllegalStateException("boom");
+                        }
+
+                        @Override
+                        public IndexingRuleResult finish() {
+                            throw new AssertionError("a failed visitor must not be finished");
+                        }
+                    };
+                }
+            };
+            var recording = new RecordingRule("recording", TokenizationConfig.defaultConfig());
+            var processor = new FileProcessor(new ContentExtractorRegistry(),
+                    List.of(new UppercaseWordCountRule(), failing, recording, new LongWordsRule(8)));
+
+            // When
+            FileProcessingResult result = processor.processFile(file);
+
+            // Then
+            assertThat(result.indexingResults()).containsExactly(
+                    entry("Words starting with uppercase", new CountResult(3)),
+                    entry("failing visitor", new CountResult(0)),
+                    entry("recording", new CountResult(4)),
+                    entry("Words longer than 7 characters", new ListResult(List.of("capitals"))));
+        }
+
+        @Test
+        @DisplayName("Should feed occurrence and distinct-token visitors from one lexing pass")
+        void shouldFeedOccurrenceVisitors() throws IOException {
+            // Given
+            Path file = Files.writeString(tempDir.resolve("occurrences.txt"), "Data data DATA science Data");
+            var processor = new FileProcessor(new ContentExtractorRegistry(),
+                    List.of(new UppercaseWordCountRule(), new TopTermsRule(1, 4)));
+
+            // When
+            FileProcessingResult result = processor.processFile(file);
+
+            // Then
+            assertThat(result.indexingResults().get("Words starting with uppercase")).isEqualTo(new CountResult(2));
+            assertThat(((TopTermsResult) result.indexingResults().get("Top 1 terms")).top())
+                    .containsExactly(new TermCount("data", 4, 0));
+        }
+    }
+
+    @Nested
+    @DisplayName("Concurrent Rule Tests")
+    class ConcurrentRuleTests {
+
+        @Test
+        @DisplayName("Should give the same results as running the rules in turn")
+        void shouldMatchSequentialResults() throws IOException {
+            // Given
+            Path file = Files.writeString(tempDir.resolve("concurrent.txt"),
+                    "Data data DATA science Data, Lorem ipsum consectetur Adipiscing");
+            var rules = List.<IndexingRule>of(new UppercaseWordCountRule(), new LongWordsRule(),
+                    new TopTermsRule(2, 8), new RecordingRule("recording", TokenizationConfig.defaultConfig()));
+            var concurrent = new FileProcessor(new IndexerConfiguration.Builder()
+                    .withIndexingRules(rules)
+                    .withConcurrentRules(true)
+                    .build());
+            var inTurn = new FileProcessor(configuration(rules, true));
+
+            // When
+            FileProcessingResult concurrentResult = concurrent.processFile(file);
+            FileProcessingResult inTurnResult = inTurn.processFile(file);
+
+            // Then
+            assertThat(concurrentResult.indexingResults()).containsExactlyEntriesOf(inTurnResult.indexingResults());
+        }
+
+        @Test
+        @DisplayName("Should fall back to a zero count for rules that fail or time out")
+        void shouldIsolateFailingAndSlowRules() throws IOException {
+            // Given
+            Path file = Files.writeString(tempDir.resolve("slow.txt"), "Some Text");
+            var processor = new FileProcessor(new IndexerConfiguration.Builder()
+                    .withIndexingRules(List.of(contentRule("slow", () -> {
+                        Thread.sleep(60_000);
+                        return new CountResult(1);
+                    }), contentRule("failing", () -> {
+                        throw new IllegalStateException("boom");
+                    }), new UppercaseWordCountRule()))
+                    .withConcurrentRules(true)
+                    .withRuleTimeout(Duration.ofMillis(200))
+                    .build());
+
+            // When
+            FileProcessingResult result = processor.processFile(file);
+
+            // Then
+            assertThat(result.indexingResults()).containsExactly(
+                    entry("slow", new CountResult(0)),
+                    entry("failing", new CountResult(0)),
+                    entry("Words starting with uppercase", new CountResult(2)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Streaming Extraction Tests")
+    class StreamingExtractionTests {
+
+        @Test
+        @DisplayName("Should give the same results as extracting the whole file")
+        void shouldMatchWholeFileResults() throws IOException {
+            // Given - far more text than one chunk, so tokens straddle chunk ends
+            var text = new StringBuilder();
+            for (int i = 0; i < 5_000; i++) {
+                text.append("Naïve Résumé user").append(i % 97).append("@example.com state-of-the-art ")
+                        .append(i % 13).append(".5 https://example.org/a?b=").append(i % 7).append(" Zebras\n");
+            }
+            Path file = Files.writeString(tempDir.resolve("streamed.txt"), text);
+            var rules = List.<IndexingRule>of(new UppercaseWordCountRule(), new LongWordsRule(), new TopTermsRule(3, 64));
+            var streaming = new FileProcessor(new IndexerConfiguration.Builder()
+                    .withIndexingRules(rules)
+                    .withMemoryMapping(false)
+                    .withStreamingExtraction(true)
+                    .withStreamingBufferBytes(8 * 1024)
+                    .build());
+            var whole = new FileProcessor(configuration(rules, false));
+
+            // When
+            FileProcessingResult streamed = streaming.processFile(file);
+            FileProcessingResult extracted = whole.processFile(file);
+
+            // Then - long words come segment by segment, so only their order differs
+            assertThat(streamed.isSuccess()).isTrue();
+            assertThat(streamed.indexingResults()).containsOnlyKeys(extracted.indexingResults().keySet());
+            assertThat(streamed.indexingResults().get("Words starting with uppercase"))
+                    .isEqualTo(extracted.indexingResults().get("Words starting with uppercase"));
+            assertThat(streamed.indexingResults().get("Top 3 terms"))
+                    .isEqualTo(extracted.indexingResults().get("Top 3 terms"));
+            assertThat(((ListResult) streamed.indexingResults().get("Words longer than 5 characters")).items())
+                    .containsExactlyInAnyOrderElementsOf(
+                            ((ListResult) extracted.indexingResults().get("Words longer than 5 characters")).items());
+        }
+
+        @Test
+        @DisplayName("Should give the same results when stripping large HTML files from their bytes")
+        void shouldMatchParsedHtmlResults() throws IOException {
+            // Given
+            var html = new StringBuilder("<html><head><title>Quarterly Report</title></head><body><table>");
+            for (int i = 0; i < 2_000; i++) {
+                html.append("<tr><td>Région ").append(i % 17).append("</td><td>Revenue &amp; Margins</td>")
+                        .append("<td><b>Excellent</b> ").append(i % 5).append(".25</td></tr>\n");
+            }
+            Path file = Files.writeString(tempDir.resolve("report.html"), html.append("</table></body></html>"));
+            var rules = List.<IndexingRule>of(new UppercaseWordCountRule(), new LongWordsRule(), new TopTermsRule(3, 64));
+            var stripping = new FileProcessor(new IndexerConfiguration.Builder()
+                    .withIndexingRules(rules)
+                    .withFastHtmlThresholdBytes(1024)
+                    .build());
+            var parsing = new FileProcessor(configuration(rules, true));
+
+            // When
+            FileProcessingResult stripped = stripping.processFile(file);
+            FileProcessingResult parsed = parsing.processFile(file);
+
+            // Then
+            assertThat(stripped.isSuccess()).isTrue();
+            assertThat(stripped.indexingResults()).containsExactlyEntriesOf(parsed.indexingResults());
+        }
+
+        @Test
+        @DisplayName("Should give the same results when scanning HTML files instead of parsing them")
+        void shouldMatchParsedHtmlResultsWhenScanning() throws IOException {
+            // Given
+            Path file = Files.writeString(tempDir.resolve("scanned.html"), """
+                    <html><head><title>Quarterly Report</title><noscript>Enable Scripts</noscript></head>
+                    <body><img alt="Company Logotype"><p>Revenue &amp; Margins grew&nbsp;Considerably</p>
+                    <p>Excellent<br>Results</p><img alt="Performance Chart"></body></html>
+                    """);
+            var rules = List.<IndexingRule>of(new UppercaseWordCountRule(), new LongWordsRule(), new TopTermsRule(3, 64));
+            var scanning = new FileProcessor(new IndexerConfiguration.Builder()
+                    .withIndexingRules(rules)
+                    .withStreamingHtmlExtraction(true)
+                    .withStreamingExtraction(true)
+                    .build());
+            var parsing = new FileProcessor(configuration(rules, true));
+
+            // When
+            FileProcessingResult scanned = scanning.processFile(file);
+            FileProcessingResult parsed = parsing.processFile(file);
+
+            // Then
+            assertThat(scanned.isSuccess()).isTrue();
+            assertThat(scanned.indexingResults()).containsExactlyEntriesOf(parsed.indexingResults());
+        }
+
+        @Test
+        @DisplayName("Should reject a buffer too small to hold a chunk")
+        void shouldRejectTinyBuffer() {
+            assertThatThrownBy(() -> new IndexerConfiguration.Builder().withStreamingBufferBytes(1024))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("aggregateResults() Method Tests")
+    class AggregateResultsTests {
+
+        @Test
+        @DisplayName("Should combine per-file results in file order")
+        void shouldCombinePerFileResults() throws IOException {
+            // Given
+            Path first = Files.writeString(tempDir.resolve("first.txt"), "Alpha Numerous zebras, numerous Pandas");
+            Path second = Files.writeString(tempDir.resolve("second.txt"), "Elephant pandas ELEPHANT Numerous");
+            var processor = new FileProcessor(new ContentExtractorRegistry(),
+                    List.of(new UppercaseWordCountRule(), new LongWordsRule()));
+            List<FileProcessingResult> results = List.of(processor.processFile(first), processor.processFile(second));
+
+            // When
+            Map<String, IndexingRuleResult> totals = processor.aggregateResults(results);
+
+            // Then
+            assertThat(totals).containsExactly(
+                    entry("Words starting with uppercase", new CountResult(6)),
+                    entry("Words longer than 5 characters", new ListResult(List.of("numerous", "zebras", "pandas", "elephant"))));
+        }
+    }
+
+    private static IndexerConfiguration configuration(List<IndexingRule> rules, boolean memoryMapping) {
+        return new IndexerConfiguration.Builder()
+                .withIndexingRules(rules)
+                .withMemoryMapping(memoryMapping)
+                .build();
+    }
+
+    private static IndexingRule contentRule(String name, Callable<IndexingRuleResult> body) {
+        return new IndexingRule() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public IndexingRuleResult apply(TextContent content) {
+                try {
+                    return body.call();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    private static final class RecordingRule implements IndexingRule {
+        private final String name;
+        private final TokenizationConfig config;
+        private final List<TokenizedText> received = new ArrayList<>();
+
+        RecordingRule(String name, TokenizationConfig config) {
+            this.name = name;
+            this.config = config;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public IndexingRuleResult apply(TextContent content) {
+            throw new AssertionError("expected the shared tokens to be used");
+        }
+
+        @Override
+        public IndexingRuleResult apply(TextContent content, TokenizedText tokens) {
+            received.add(tokens);
+            return new CountResult(tokens.size());
+        }
+
+        @Override
+        public TokenizationConfig getTokenizationConfig() {
+            return config;
+        }
+    }
+}
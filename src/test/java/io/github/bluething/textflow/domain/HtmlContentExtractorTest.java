@@ -761,4 +761,89 @@ class HtmlContentExtractorTest {
         }
     }
 
-}
\ No newline at end of file
+    @Nested
+    @DisplayName("Streaming Mode Tests")
+    class StreamingModeTests {
+
+        @TempDir
+        Path tempDir;
+
+        @ParameterizedTest
+        @ValueSource(strings = {"complex", "malformed", "entities", "comments", "cdata", "xhtml", "metadata", "head",
+                "references"})
+        @DisplayName("Should extract the same words and metadata as the jsoup document")
+        void shouldMatchDocumentExtraction(String sample) throws IOException {
+            // Given
+            String html = switch (sample) {
+                case "complex" -> TestFileUtils.createComplexHtmlDocument();
+                case "malformed" -> TestFileUtils.createMalformedHtmlDocument();
+                case "entities" -> TestFileUtils.SampleDocuments.WITH_ENTITIES;
+                case "comments" -> TestFileUtils.SampleDocuments.WITH_COMMENTS;
+                case "cdata" -> TestFileUtils.SampleDocuments.WITH_CDATA;
+                case "xhtml" -> TestFileUtils.SampleDocuments.XHTML_DOCUMENT;
+                case "head" -> """
+                        <html><head><noscript><p>Enable scripts</p></noscript><title>Head title</title></head>
+                        <body><img alt="First picture"><p>Before</p><title>Body title</title>
+                        <noscript>No scripts</noscript><img alt=" Second  picture "><p>After</p></body></html>
+                        """;
+                case "references" -> """
+                        <p>&copy2024 &#99999999999; &#128;uro &#65x &notit; &ampx &Aacute &#x; &xyz; &amp</p>
+                        <img alt="&copy2024 &AMP &notin; &#66">
+                        """;
+                default -> """
+                        <html><head><title> Caf&eacute;
+                          &amp; Bar </title>
+                        <meta name="Description" content="Menu &amp; prices">
+                        <meta content='coffee, tea' name=keywords></head>
+                        <body><p>Open<br>daily &nbsp;from&#x20;9</p><img alt="A &quot;cup&quot;" src=cup.png>
+                        <textarea>a <b> tag</textarea><script>if (a < b && b </scri) {}</script>Done</body></html>
+                        """;
+            };
+            Path htmlFile = tempDir.resolve(sample + ".html");
+            Files.writeString(htmlFile, html);
+
+            // When
+            TextContent streamed = new HtmlContentExtractor(true).extract(htmlFile, "text/html");
+            TextContent parsed = new HtmlContentExtractor(false).extract(htmlFile, "text/html");
+
+            // Then
+            assertThat(streamed.content().split("\\s+")).containsExactly(parsed.content().split("\\s+"));
+            assertThat(streamed.metadata()).isEqualTo(parsed.metadata());
+        }
+
+        @Test
+        @DisplayName("Should end abruptly closed comments at once")
+        void shouldEndAbruptComments() throws IOException {
+            // Given
+            Path htmlFile = tempDir.resolve("abrupt-comments.html");
+            Files.writeString(htmlFile, "<p>a</p><!-->visible<p>b</p><!--->shown<p>c</p><!---->d");
+
+            // When
+            TextContent result = new HtmlContentExtractor(true).extract(htmlFile, "text/html");
+
+            // Then
+            assertThat(result.content()).isEqualTo("a visible b shown c d");
+        }
+
+        @Test
+        @DisplayName("Should push the same text whatever the chunk size")
+        void shouldStreamLikeWholeExtraction() throws IOException {
+            // Given
+            Path htmlFile = tempDir.resolve("complex.html");
+            Files.writeString(htmlFile, TestFileUtils.createComplexHtmlDocument());
+            var streaming = new HtmlContentExtractor(true);
+            String whole = streaming.extract(htmlFile, "text/html").content();
+
+            for (int chunkSize : new int[] {1, 3, 16}) {
+                // When
+                var streamed = new StringBuilder();
+                streaming.extract(htmlFile, "text/html", streamed::append, chunkSize);
+
+                // Then
+                assertThat(streamed.toString()).isEqualTo(whole);
+            }
+            assertThat(streaming.streamsInBoundedMemory()).isTrue();
+            assertThat(new HtmlContentExtractor().streamsInBoundedMemory()).isFalse();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package io.github.bluething.textflow.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("HtmlTagStripper Tests")
+class HtmlTagStripperTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("pushTo() Method Tests")
+    class PushToTests {
+
+        @Test
+        @DisplayName("Should keep text and drop tags, comments, declarations and raw text bodies")
+        void shouldStripMarkup() throws IOException {
+            // Given
+            String html = """
+                    <!DOCTYPE html><?xml version="1.0"?>
+                    <html><head><title>Report</title><style>p > b { color: red }</style></head>
+                    <body><p class="a>b">Total<b>ly</b> &lt;fine&gt; &amp; caf&eacute; &#x41;&#66; &ampx &bogus; 3 < 4</p>
+                    <!-- hidden <p>comment</p> --><script>if (a </b> b) {}</SCRIPT >
+                    <div>Zoë 🌍<br/>done<![CDATA[ raw <text> ]]></div></body></html>
+                    """;
+
+            // When
+            String text = strip(html, 1024);
+
+            // Then
+            assertThat(text.strip().split("\\s+")).containsExactly("Totally", "<fine>", "&", "café", "AB", "&x",
+                    "&bogus;", "3", "<", "4", "Zoë", "🌍", "done", "raw", "<text>");
+        }
+
+        @Test
+        @DisplayName("Should end abruptly closed comments at once")
+        void shouldEndAbruptComments() throws IOException {
+            // When
+            String text = strip("<p>a</p><!-->visible<p>b</p><!--->shown<p>c</p><!---->d<!-- x -> y -->", 1024);
+
+            // Then
+            assertThat(text.strip().split("\\s+")).containsExactly("a", "visible", "b", "shown", "c", "d");
+        }
+
+        @Test
+        @DisplayName("Should push the same text whatever the chunk size")
+        void shouldChunkLikeWholeText() throws IOException {
+            // Given
+            String html = TestFileUtils.createComplexHtmlDocument() + "<p>Zoë 🌍 &copy;</p>";
+            String whole = strip(html, 1 << 16);
+
+            // When & Then
+            for (int chunkSize : new int[] {1, 2, 7}) {
+                assertThat(strip(html, chunkSize)).isEqualTo(whole);
+            }
+        }
+
+        @Test
+        @DisplayName("Should find the same words as the HTML extractor in well-formed markup")
+        void shouldMatchHtmlExtractorWords() throws IOException {
+            // Given
+            String html = TestFileUtils.createComplexHtmlDocument();
+            Path htmlFile = Files.writeString(tempDir.resolve("complex.html"), html);
+
+            // When
+            String stripped = strip(html, 1024);
+            TextContent extracted = new HtmlContentExtractor().extract(htmlFile, "text/html");
+
+            // Then
+            assertThat(stripped.strip().split("\\s+")).containsExactly(extracted.content().split(" "));
+        }
+
+        @Test
+        @DisplayName("Should replace malformed UTF-8 sequences")
+        void shouldReplaceMalformedBytes() throws IOException {
+            // Given
+            byte[] bytes = {'a', (byte) 0xC3, 'b', (byte) 0xE2, (byte) 0x82, '<', 'i', '>', (byte) 0xFF};
+            var text = new StringBuilder();
+
+            // When
+            new HtmlTagStripper(MemorySegment.ofArray(bytes)).pushTo(text::append, 16);
+
+            // Then
+            assertThat(text.toString()).isEqualTo("a�b��");
+        }
+    }
+
+    private static String strip(String html, int chunkSize) throws IOException {
+        var text = new StringBuilder();
+        new HtmlTagStripper(MemorySegment.ofArray(html.getBytes(StandardCharsets.UTF_8))).pushTo(text::append, chunkSize);
+        return text.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.bluething.textflow.domain;
+
+import io.github.bluething.textflow.domain.rules.CountResult;
+import io.github.bluething.textflow.domain.rules.FrequencyTableResult;
+import io.github.bluething.textflow.domain.rules.IndexingRule;
+import io.github.bluething.textflow.domain.rules.IndexingRuleResult;
+import io.github.bluething.textflow.domain.rules.KeywordMatchRule;
+import io.github.bluething.textflow.domain.rules.LongWordsRule;
+import io.github.bluething.textflow.domain.rules.TopTermsRule;
+import io.github.bluething.textflow.domain.rules.UppercaseWordCountRule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("IndexingRuleEngine Tests")
+class IndexingRuleEngineTest {
+
+    @Nested
+    @DisplayName("Tokenization Failure Tests")
+    class TokenizationFailureTests {
+
+        @ParameterizedTest
+        @ValueSource(booleans = {false, true})
+        @DisplayName("Should fail every rule of a group whose text cannot be tokenized, not the file")
+        void shouldFailRulesWhenTokenizationFails(boolean concurrent) {
+            // Given
+            List<IndexingRule> rules = List.of(new UppercaseWordCountRule(), new LongWordsRule(), new TopTermsRule(3, 16));
+            var engine = new IndexingRuleEngine(rules, null, concurrent ? Duration.ofSeconds(10) : null);
+            var content = TextContent.of("Some Text", "broken.txt", "txt", "text/plain");
+
+            // When
+            var results = engine.apply(content, new BrokenText(64));
+
+            // Then
+            assertThat(results).hasSize(3).allSatisfy((name, result) -> assertThat(result).isEqualTo(new CountResult(0)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Concurrent Rule Tests")
+    class ConcurrentRuleTests {
+
+        @Test
+        @DisplayName("Should fall back per rule and keep the interrupt when interrupted while waiting")
+        void shouldFallBackWhenInterrupted() throws InterruptedException {
+            // Given - interrupted once the quick rule is done and the other still sleeps
+            List<IndexingRule> rules = List.of(new SleepingRule(), new UppercaseWordCountRule());
+            var engine = new IndexingRuleEngine(rules, null, Duration.ofSeconds(30));
+            var content = TextContent.of("Some Text", "slow.txt", "txt", "text/plain");
+            Thread owner = Thread.currentThread();
+            Thread interrupter = Thread.ofVirtual().start(() -> {
+                try {
+                    Thread.sleep(500);
+                    owner.interrupt();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            // When
+            var results = engine.apply(content, content.content());
+            boolean interrupted = Thread.interrupted();
+            interrupter.join();
+
+            // Then
+            assertThat(interrupted).isTrue();
+            assertThat(results).containsExactly(
+                    entry("sleeping", new CountResult(0)),
+                    entry("Words starting with uppercase", new CountResult(2)));
+        }
+    }
+
+    @Nested
+    @DisplayName("merge() Method Tests")
+    class MergeTests {
+
+        @Test
+        @DisplayName("Should combine the results of token rules and of mergeable content rules")
+        void shouldMergeMergeableRules() {
+            // Given
+            var keywords = new KeywordMatchRule.Builder().withKeywords(List.of("alpha", "beta")).build();
+            List<IndexingRule> rules = List.of(new UppercaseWordCountRule(), keywords);
+            var engine = new IndexingRuleEngine(rules, null, null);
+            var first = TextContent.of("Alpha beta", "a.txt", "txt", "text/plain");
+            var second = TextContent.of("alpha Gamma alpha", "b.txt", "txt", "text/plain");
+
+            // When
+            var merged = engine.merge(List.of(
+                    engine.apply(first, first.content()), engine.apply(second, second.content())));
+
+            // Then
+            assertThat(merged).containsExactly(
+                    entry("Words starting with uppercase", new CountResult(2)),
+                    entry("Keyword hits", FrequencyTableResult.of(Map.of("alpha", 3L, "beta", 1L))));
+        }
+    }
+
+    /**
+     * A rule that sleeps until it is interrupted.
+     */
+    private static final class SleepingRule implements IndexingRule {
+        @Override
+        public String getName() {
+            return "sleeping";
+        }
+
+        @Override
+        public IndexingRuleResult apply(TextContent content) {
+            try {
+                Thread.sleep(Duration.ofMinutes(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new CountResult(1);
+        }
+    }
+
+    /**
+     * Text that cannot be read past its first half, as a file failing mid-read.
+     */
+    private record BrokenText(int length) implements CharSequence {
+        @Override
+        public char charAt(int index) {
+            if (index >= length / 2) {
+                throw new IllegalStateException("Cannot read character " + index);
+            }
+            return index % 6 == 5 ? ' ' : 'w';
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
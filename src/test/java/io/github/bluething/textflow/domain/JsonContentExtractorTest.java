@@ -0,0 +1,190 @@
+package io.github.bluething.textflow.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("JsonContentExtractor Tests")
+class JsonContentExtractorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String ORDER = """
+            {
+              "id": 42,
+              "customer": {"name": "Ada Lovelace", "email": "ada@example.com", "vip": true},
+              "items": [
+                {"title": "Analytical Engine", "notes": "steam \\"powered\\"", "price": 1.5e3},
+                {"title": "Caf\\u00e9 table", "notes": null}
+              ],
+              "tags": ["rare", [], {}, "antique"]
+            }
+            """;
+
+    @Nested
+    @DisplayName("extract() Method Tests")
+    class ExtractTests {
+
+        @Test
+        @DisplayName("Should extract field names and string values in document order")
+        void shouldExtractNamesAndStrings() throws IOException {
+            // Given
+            Path file = Files.writeString(tempDir.resolve("order.json"), ORDER);
+
+            // When
+            TextContent content = new JsonContentExtractor().extract(file, null);
+
+            // Then
+            assertThat(content.content()).isEqualTo("id customer name Ada Lovelace email ada@example.com vip"
+                    + " items title Analytical Engine notes steam \"powered\" price title Café table notes tags rare antique");
+            assertThat(content.fileType()).isEqualTo("JSON");
+            assertThat(content.detectedMimeType()).isEqualTo("application/json");
+        }
+
+        @Test
+        @DisplayName("Should stream the same text whatever the chunk size")
+        void shouldStreamLikeWholeExtraction() throws IOException {
+            // Given
+            Path file = Files.writeString(tempDir.resolve("order.json"), ORDER);
+            var extractor = new JsonContentExtractor();
+            String whole = extractor.extract(file, null).content();
+
+            for (int chunkSize : new int[] {1, 2, 7, 64}) {
+                // When
+                var streamed = new StringBuilder();
+                List<Integer> chunkLengths = new ArrayList<>();
+                extractor.extract(file, null, chunk -> {
+                    chunkLengths.add(chunk.remaining());
+                    streamed.append(chunk);
+                }, chunkSize);
+
+                // Then
+                assertThat(streamed.toString()).isEqualTo(whole);
+                assertThat(chunkLengths).allSatisfy(length -> assertThat(length).isBetween(1, chunkSize));
+            }
+        }
+
+        @Test
+        @DisplayName("Should reject malformed and too deeply nested documents")
+        void shouldRejectMalformedDocuments() throws IOException {
+            // Given
+            Path unterminated = Files.writeString(tempDir.resolve("unterminated.json"), "{\"a\": \"b");
+            Path unbalanced = Files.writeString(tempDir.resolve("unbalanced.json"), "[{\"a\": 1]]");
+            Path deep = Files.writeString(tempDir.resolve("deep.json"),
+                    "[".repeat(JsonContentExtractor.MAX_DEPTH + 1) + "]".repeat(JsonContentExtractor.MAX_DEPTH + 1));
+            var extractor = new JsonContentExtractor();
+
+            // When & Then
+            assertThatThrownBy(() -> extractor.extract(unterminated, null))
+                    .isInstanceOf(IOException.class)
+                    .rootCause().hasMessageContaining("unterminated string");
+            assertThatThrownBy(() -> extractor.extract(unbalanced, null))
+                    .isInstanceOf(IOException.class)
+                    .rootCause().hasMessageContaining("unexpected ']'");
+            assertThatThrownBy(() -> extractor.extract(deep, null))
+                    .isInstanceOf(IOException.class)
+                    .rootCause().hasMessageContaining("nested deeper than");
+        }
+
+        @Test
+        @DisplayName("Should accept nesting up to the maximum depth")
+        void shouldAcceptMaximumDepth() throws IOException {
+            // Given
+            int depth = JsonContentExtractor.MAX_DEPTH;
+            Path file = Files.writeString(tempDir.resolve("nested.json"),
+                    "{\"k\":".repeat(depth - 1) + "[\"leaf\"]" + "}".repeat(depth - 1));
+
+            // When
+            TextContent content = new JsonContentExtractor().extract(file, null);
+
+            // Then
+            assertThat(content.content()).endsWith("k k leaf");
+        }
+    }
+
+    @Nested
+    @DisplayName("Builder Tests")
+    class BuilderTests {
+
+        @Test
+        @DisplayName("Should extract only included keys, with everything in their values")
+        void shouldIncludeKeys() throws IOException {
+            // Given
+            Path file = Files.writeString(tempDir.resolve("order.json"), ORDER);
+            var extractor = new JsonContentExtractor.Builder()
+                    .withIncludedKeys(List.of("customer", "title"))
+                    .build();
+
+            // When
+            TextContent content = extractor.extract(file, null);
+
+            // Then
+            assertThat(content.content()).isEqualTo("customer name Ada Lovelace email ada@example.com vip"
+                    + " title Analytical Engine title Café table");
+        }
+
+        @Test
+        @DisplayName("Should skip excluded keys and everything in their values")
+        void shouldExcludeKeys() throws IOException {
+            // Given
+            Path file = Files.writeString(tempDir.resolve("order.json"), ORDER);
+            var extractor = new JsonContentExtractor.Builder()
+                    .withExcludedKeys(List.of("customer", "notes"))
+                    .build();
+
+            // When
+            TextContent content = extractor.extract(file, null);
+
+            // Then
+            assertThat(content.content()).isEqualTo("id items title Analytical Engine price title Café table"
+                    + " tags rare antique");
+        }
+
+        @Test
+        @DisplayName("Should project paths through arrays and wildcards")
+        void shouldProjectPaths() throws IOException {
+            // Given
+            Path file = Files.writeString(tempDir.resolve("order.json"), ORDER);
+            var extractor = new JsonContentExtractor.Builder()
+                    .withProjectedPaths(List.of("$.items.title", "customer.*"))
+                    .withExcludedKeys(List.of("email"))
+                    .build();
+
+            // When
+            TextContent content = extractor.extract(file, null);
+
+            // Then
+            assertThat(content.content()).isEqualTo("name Ada Lovelace vip title Analytical Engine title Café table");
+        }
+
+        @Test
+        @DisplayName("Should reject paths with empty segments")
+        void shouldRejectEmptySegments() {
+            assertThatThrownBy(() -> new JsonContentExtractor.Builder().withProjectedPaths(List.of("items..title")))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    @DisplayName("Should be found by the registry for .json files")
+    void shouldBeRegisteredForJson() throws IOException {
+        // Given
+        Path file = Files.writeString(tempDir.resolve("data.json"), ORDER);
+
+        // When
+        ContentExtractor extractor = new ContentExtractorRegistry().findExtractor(file);
+
+        // Then
+        assertThat(extractor).isInstanceOf(JsonContentExtractor.class);
+    }
+}
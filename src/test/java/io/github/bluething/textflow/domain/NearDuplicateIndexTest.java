@@ -0,0 +1,115 @@
+package io.github.bluething.textflow.domain;
+
+import io.github.bluething.textflow.domain.rules.MinHashResult;
+import io.github.bluething.textflow.domain.rules.ShingleFingerprintRule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("NearDuplicateIndex Tests")
+class NearDuplicateIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("groups() Method Tests")
+    class GroupsTests {
+
+        @Test
+        @DisplayName("Should group edited copies of a file and leave unrelated files out")
+        void shouldGroupNearDuplicates() throws IOException {
+            // Given - two pages with edited copies of each, and unrelated pages
+            var random = new Random(17);
+            var rule = new ShingleFingerprintRule();
+            var processor = new FileProcessor(new ContentExtractorRegistry(), List.of(rule));
+            List<String> first = randomWords(random, 500);
+            List<String> second = randomWords(random, 500);
+            var index = NearDuplicateIndex.forThreshold(rule.getName(), ShingleFingerprintRule.DEFAULT_SIGNATURE_SIZE, 0.6);
+            index.add(processor.processFile(write("a.txt", first)));
+            index.add(processor.processFile(write("b.txt", second)));
+            index.add(processor.processFile(write("unrelated1.txt", randomWords(random, 500))));
+            index.add(processor.processFile(write("a-copy.txt", edit(first, 100))));
+            index.add(processor.processFile(write("b-copy.txt", edit(second, 60))));
+            index.add(processor.processFile(write("unrelated2.txt", randomWords(random, 500))));
+            index.add(processor.processFile(write("a-copy2.txt", edit(first, 80))));
+
+            // When
+            List<List<String>> groups = index.groups(0.6);
+
+            // Then
+            assertThat(groups).containsExactly(
+                    List.of("a.txt", "a-copy.txt", "a-copy2.txt"),
+                    List.of("b.txt", "b-copy.txt"));
+        }
+
+        @Test
+        @DisplayName("Should group a large bucket of copies apart from a file sharing only some bands")
+        void shouldGroupLargeBucket() {
+            // Given - 20k copies of one signature and a file sharing its first band only
+            String name = "MinHash of 5-word shingles";
+            var index = new NearDuplicateIndex(name, 4, 4);
+            long[] signature = new long[16];
+            Arrays.setAll(signature, i -> i * 31L);
+            long[] other = signature.clone();
+            Arrays.fill(other, 4, 16, -1L);
+            for (int i = 0; i < 20_000; i++) {
+                index.add(FileProcessingResult.success(
+                        "copy" + i + ".txt", Map.of(name, new MinHashResult(5, 100, signature)), 0, 0));
+            }
+            index.add(FileProcessingResult.success("other.txt", Map.of(name, new MinHashResult(5, 100, other)), 0, 0));
+
+            // When
+            List<List<String>> groups = index.groups(0.9);
+
+            // Then
+            assertThat(groups).hasSize(1);
+            assertThat(groups.get(0)).hasSize(20_000).doesNotContain("other.txt");
+        }
+
+        @Test
+        @DisplayName("Should skip failed files and files without a signature")
+        void shouldSkipFilesWithoutSignatures() {
+            // Given
+            var index = new NearDuplicateIndex("MinHash of 5-word shingles", 16, 8);
+
+            // When
+            boolean failedAdded = index.add(FileProcessingResult.failure("missing.txt", "not found", 0, 0));
+
+            // Then
+            assertThat(failedAdded).isFalse();
+            assertThat(index.size()).isZero();
+        }
+    }
+
+    private Path write(String name, List<String> words) throws IOException {
+        return Files.writeString(tempDir.resolve(name), String.join(" ", words));
+    }
+
+    private static List<String> randomWords(Random random, int count) {
+        return random.ints(count, 0, 100_000).mapToObj(i -> "w" + i).toList();
+    }
+
+    /**
+     * Replaces every {@code step}th word.
+     */
+    private static List<String> edit(List<String> words, int step) {
+        List<String> edited = new ArrayList<>(words);
+        for (int i = step / 2; i < edited.size(); i += step) {
+            edited.set(i, "edited" + i + "x" + step);
+        }
+        return edited;
+    }
+}
@@ -131,6 +131,16 @@ public class TestFileUtils {
             """;
     }
 
+    /**
+     * Wraps text as the content of a plain text file, for rules under test.
+     *
+     * @param text the text of the file
+     * @return the content a text extractor would give for it
+     */
+    public static TextContent textContent(String text) {
+        return TextContent.of(text, "test.txt", "txt", "text/plain");
+    }
+
     /**
      * Sample HTML documents for various test scenarios.
      */
@@ -0,0 +1,131 @@
+package io.github.bluething.textflow.domain.rules;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.github.bluething.textflow.domain.TestFileUtils.textContent;
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("DistinctWordsRule Tests")
+class DistinctWordsRuleTest {
+
+    @Nested
+    @DisplayName("apply() Method Tests")
+    class ApplyTests {
+
+        @Test
+        @DisplayName("Should estimate distinct words within the error bound, ignoring case")
+        void shouldEstimateDistinctWords() {
+            // Given - 50,000 distinct words, each also repeated in upper case
+            var rule = new DistinctWordsRule();
+            String text = IntStream.range(0, 50_000)
+                    .mapToObj(i -> "word" + i + " WORD" + i)
+                    .collect(Collectors.joining(" "));
+
+            // When
+            var result = (DistinctCountResult) rule.apply(textContent(text));
+
+            // Then
+            assertThat(result.standardError()).isCloseTo(0.01625, within(0.0001));
+            assertThat((double) result.estimate()).isCloseTo(50_000, withinPercentage(3 * 1.625));
+        }
+
+        @Test
+        @DisplayName("Should count only words of the minimum length")
+        void shouldRespectMinimumLength() {
+            // Given
+            var rule = new DistinctWordsRule(6, 10);
+
+            // When
+            var result = (DistinctCountResult) rule.apply(textContent("short words, lengthy phrases and Phrases"));
+
+            // Then
+            assertThat(result.estimate()).isEqualTo(2);
+            assertThat(rule.getName()).isEqualTo("Distinct words longer than 5 characters (estimated)");
+        }
+
+        @Test
+        @DisplayName("Should reject precisions outside the supported range")
+        void shouldRejectBadPrecision() {
+            assertThatThrownBy(() -> new DistinctWordsRule(1, 3)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> new DistinctWordsRule(1, 19)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("merge() Method Tests")
+    class MergeTests {
+
+        @Test
+        @DisplayName("Should merge per-file results into the sketch of all files")
+        void shouldMergeLikeOneInput() {
+            // Given
+            var rule = new DistinctWordsRule();
+            String first = words(0, 30_000);
+            String second = words(20_000, 60_000);
+
+            // When
+            IndexingRuleResult merged = rule.merge(
+                    List.of(rule.apply(textContent(first)), rule.apply(textContent(second))));
+
+            // Then
+            assertThat(merged).isEqualTo(rule.apply(textContent(first + " " + second)));
+        }
+
+        @Test
+        @DisplayName("Should keep the sketch through byte and Java serialization")
+        void shouldSerializeSketches() throws Exception {
+            // Given
+            var result = (DistinctCountResult) new DistinctWordsRule().apply(textContent(words(0, 1000)));
+
+            // When
+            HyperLogLog decoded = HyperLogLog.fromBytes(result.sketch().toBytes());
+            var buffer = new ByteArrayOutputStream();
+            try (var out = new ObjectOutputStream(buffer)) {
+                out.writeObject(result);
+            }
+            Object deserialized;
+            try (var in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+                deserialized = in.readObject();
+            }
+
+            // Then
+            assertThat(result.sketch().toBytes()).hasSize(2 + 4096);
+            assertThat(decoded).isEqualTo(result.sketch());
+            assertThat(deserialized).isEqualTo(result);
+        }
+
+        @Test
+        @DisplayName("Should reject sketches with impossible registers or the wrong length")
+        void shouldRejectCorruptSketches() {
+            // Given
+            byte[] bytes = new HyperLogLog(12).toBytes();
+            byte[] tooHigh = bytes.clone();
+            tooHigh[2 + 100] = 64 - 12 + 2;
+            byte[] negative = bytes.clone();
+            negative[2 + 7] = -1;
+            byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+
+            // When & Then
+            assertThatThrownBy(() -> HyperLogLog.fromBytes(tooHigh)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> HyperLogLog.fromBytes(negative)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> HyperLogLog.fromBytes(truncated)).isInstanceOf(IllegalArgumentException.class);
+            bytes[2 + 100] = 64 - 12 + 1;
+            assertThat(HyperLogLog.fromBytes(bytes).precision()).isEqualTo(12);
+        }
+    }
+
+    private static String words(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "term" + i).collect(Collectors.joining(" "));
+    }
+}
@@ -0,0 +1,163 @@
+package io.github.bluething.textflow.domain.rules;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("FrequencyTableResult Tests")
+class FrequencyTableResultTest {
+
+    @Nested
+    @DisplayName("Construction Tests")
+    class ConstructionTests {
+
+        @Test
+        @DisplayName("Should sort terms and add up repeated ones")
+        void shouldSortAndCombine() {
+            // When
+            var table = FrequencyTableResult.of(new String[]{"pear", "apple", "pear", "fig"}, new long[]{2, 5, 3, 1});
+
+            // Then
+            assertThat(table).isEqualTo(new FrequencyTableResult(new String[]{"apple", "fig", "pear"}, new long[]{5, 1, 5}));
+            assertThat(table.countOf("pear")).isEqualTo(5);
+            assertThat(table.countOf("plum")).isZero();
+            assertThat(table.total()).isEqualTo(11);
+            assertThat(table.countBuffer().isReadOnly()).isTrue();
+        }
+
+        @Test
+        @DisplayName("Should reject unsorted terms")
+        void shouldRejectUnsortedTerms() {
+            assertThatThrownBy(() -> new FrequencyTableResult(new String[]{"b", "a"}, new long[]{1, 1}))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("merge() Method Tests")
+    class MergeTests {
+
+        @Test
+        @DisplayName("Should add up the counts of both tables")
+        void shouldMergeTables() {
+            // Given
+            var first = FrequencyTableResult.of(Map.of("a", 1L, "c", 3L));
+            var second = FrequencyTableResult.of(Map.of("b", 2L, "c", 4L, "d", 5L));
+
+            // When
+            FrequencyTableResult merged = first.merge(second);
+
+            // Then
+            assertThat(merged).isEqualTo(FrequencyTableResult.of(Map.of("a", 1L, "b", 2L, "c", 7L, "d", 5L)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Serialization Tests")
+    class SerializationTests {
+
+        @Test
+        @DisplayName("Should read back what it wrote")
+        void shouldRoundTrip() throws IOException {
+            // Given
+            var table = FrequencyTableResult.of(Map.of("naïve", 3L, "x".repeat(70_000), 1L));
+            var offsets = OffsetListResult.of(0, 17, 42, Integer.MAX_VALUE);
+            var bytes = new ByteArrayOutputStream();
+
+            // When
+            try (var out = new DataOutputStream(bytes)) {
+                table.writeTo(out);
+                offsets.writeTo(out);
+            }
+            var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+            // Then
+            assertThat(FrequencyTableResult.readFrom(in)).isEqualTo(table);
+            assertThat(OffsetListResult.readFrom(in)).isEqualTo(offsets);
+        }
+
+        @Test
+        @DisplayName("Should fail with an IOException on a corrupt term length")
+        void shouldRejectCorruptTermLength() throws IOException {
+            // Given - one entry whose term length is negative, then one claiming 2 GB
+            byte[] negative = bytes(out -> {
+                out.writeByte(1);
+                out.writeInt(1);
+                out.writeInt(-5);
+            });
+            byte[] huge = bytes(out -> {
+                out.writeByte(1);
+                out.writeInt(1);
+                out.writeInt(Integer.MAX_VALUE);
+                out.writeBytes("abc");
+            });
+
+            // When / Then
+            assertThatThrownBy(() -> FrequencyTableResult.readFrom(input(negative))).isInstanceOf(IOException.class);
+            assertThatThrownBy(() -> FrequencyTableResult.readFrom(input(huge))).isInstanceOf(IOException.class);
+        }
+
+        @Test
+        @DisplayName("Should fail with an IOException on a size longer than the input")
+        void shouldRejectCorruptSize() throws IOException {
+            // Given
+            byte[] table = bytes(out -> {
+                out.writeByte(1);
+                out.writeInt(Integer.MAX_VALUE);
+            });
+            byte[] offsets = bytes(out -> {
+                out.writeByte(1);
+                out.writeInt(Integer.MAX_VALUE);
+                out.writeInt(7);
+            });
+
+            // When / Then
+            assertThatThrownBy(() -> FrequencyTableResult.readFrom(input(table))).isInstanceOf(IOException.class);
+            assertThatThrownBy(() -> OffsetListResult.readFrom(input(offsets))).isInstanceOf(IOException.class);
+        }
+
+        @Test
+        @DisplayName("Should fail with an IOException on terms out of order")
+        void shouldRejectUnsortedTerms() throws IOException {
+            // Given
+            byte[] table = bytes(out -> {
+                out.writeByte(1);
+                out.writeInt(2);
+                for (String term : new String[]{"b", "a"}) {
+                    out.writeInt(1);
+                    out.writeBytes(term);
+                    out.writeLong(1);
+                }
+            });
+
+            // When / Then
+            assertThatThrownBy(() -> FrequencyTableResult.readFrom(input(table))).isInstanceOf(IOException.class);
+        }
+    }
+
+    private static byte[] bytes(Writer writer) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
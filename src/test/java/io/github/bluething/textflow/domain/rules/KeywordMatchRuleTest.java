@@ -0,0 +1,169 @@
+package io.github.bluething.textflow.domain.rules;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static io.github.bluething.textflow.domain.TestFileUtils.textContent;
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("KeywordMatchRule Tests")
+class KeywordMatchRuleTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("apply() Method Tests")
+    class ApplyTests {
+
+        @Test
+        @DisplayName("Should count overlapping keywords inside words when whole words are off")
+        void shouldCountOverlappingKeywords() {
+            // Given
+            var rule = new KeywordMatchRule.Builder()
+                    .withKeywords(List.of("he", "she", "his", "hers"))
+                    .withIgnoreCase(false)
+                    .withWholeWords(false)
+                    .build();
+
+            // When
+            IndexingRuleResult result = rule.apply(textContent("ushers and She said his"));
+
+            // Then
+            assertThat(result).isEqualTo(FrequencyTableResult.of(Map.of("he", 2L, "she", 1L, "his", 1L, "hers", 1L)));
+        }
+
+        @Test
+        @DisplayName("Should match whole words ignoring case by default")
+        void shouldMatchWholeWordsIgnoringCase() {
+            // Given
+            var rule = new KeywordMatchRule.Builder()
+                    .withKeywords(List.of("cat", "New York", "c++", "CAT"))
+                    .build();
+
+            // When
+            var result = (FrequencyTableResult) rule.apply(textContent(
+                    "Cat, concatenate cats; a CAT in new york (NEW YORK). I write C++ and c++11"));
+
+            // Then
+            assertThat(result.terms()).containsExactly("New York", "c++", "cat");
+            assertThat(result.counts()).containsExactly(2, 2, 2);
+            assertThat(result.total()).isEqualTo(6);
+        }
+
+        @Test
+        @DisplayName("Should find what a naive search finds on random text")
+        void shouldMatchNaiveSearch() {
+            // Given
+            var random = new Random(3);
+            List<String> keywords = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                keywords.add(randomString(random, 1 + random.nextInt(4)));
+            }
+            String text = randomString(random, 20_000);
+            var rule = new KeywordMatchRule.Builder()
+                    .withKeywords(keywords)
+                    .withIgnoreCase(false)
+                    .withWholeWords(false)
+                    .build();
+
+            // When
+            var result = (FrequencyTableResult) rule.apply(textContent(text));
+
+            // Then
+            Map<String, Long> expected = new LinkedHashMap<>();
+            for (String keyword : rule.getKeywords()) {
+                long hits = 0;
+                for (int i = text.indexOf(keyword); i >= 0; i = text.indexOf(keyword, i + 1)) {
+                    hits++;
+                }
+                if (hits > 0) {
+                    expected.put(keyword, hits);
+                }
+            }
+            assertThat(result).isEqualTo(FrequencyTableResult.of(expected));
+        }
+    }
+
+    @Nested
+    @DisplayName("merge() Method Tests")
+    class MergeTests {
+
+        @Test
+        @DisplayName("Should add up the hits of every document")
+        void shouldAddUpHits() {
+            // Given
+            var rule = new KeywordMatchRule.Builder().withKeywords(List.of("cat", "dog", "owl")).build();
+            var first = rule.apply(textContent("cat dog cat"));
+            var second = rule.apply(textContent("dog owl"));
+            var none = rule.apply(textContent("nothing here"));
+
+            // When
+            var merged = rule.merge(List.of(first, second, none));
+
+            // Then
+            assertThat(merged).isEqualTo(FrequencyTableResult.of(Map.of("cat", 2L, "dog", 2L, "owl", 1L)));
+        }
+
+        @Test
+        @DisplayName("Should reject results of another kind")
+        void shouldRejectOtherResults() {
+            // Given
+            var rule = new KeywordMatchRule.Builder().addKeyword("cat").build();
+
+            // When / Then
+            assertThatThrownBy(() -> rule.merge(List.of(new CountResult(3))))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Builder Tests")
+    class BuilderTests {
+
+        @Test
+        @DisplayName("Should load keywords from a file, skipping blank and comment lines")
+        void shouldLoadKeywordFile() throws IOException {
+            // Given
+            Path file = Files.writeString(tempDir.resolve("watchlist.txt"), """
+                    # watch list
+                    alpha
+
+                      beta gamma \s
+                    ALPHA
+                    """);
+
+            // When
+            var rule = new KeywordMatchRule.Builder().withKeywordFile(file).build();
+
+            // Then
+            assertThat(rule.getKeywords()).containsExactly("alpha", "beta gamma");
+        }
+
+        @Test
+        @DisplayName("Should require at least one keyword")
+        void shouldRequireKeywords() {
+            assertThatThrownBy(() -> new KeywordMatchRule.Builder().addKeyword("  ").build())
+                    .isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        var builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append("abc ".charAt(random.nextInt(4)));
+        }
+        return builder.toString();
+    }
+}
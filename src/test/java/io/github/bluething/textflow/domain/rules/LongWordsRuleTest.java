@@ -0,0 +1,140 @@
+package io.github.bluething.textflow.domain.rules;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static io.github.bluething.textflow.domain.TestFileUtils.textContent;
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("LongWordsRule Tests")
+class LongWordsRuleTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("Memory Cap Tests")
+    class MemoryCapTests {
+
+        @Test
+        @DisplayName("Should spill past the cap and still list words in first-occurrence order")
+        void shouldSpillAndKeepOrder() throws IOException {
+            // Given - 20k distinct IDs, each repeated later in another case
+            String text = ids(new Random(23), 20_000);
+            var inMemory = new LongWordsRule(6);
+            var capped = new LongWordsRule(inMemory.getTokenizationConfig(), 6, 16 * 1024, tempDir);
+
+            // When
+            var expected = (ListResult) inMemory.apply(textContent(text));
+            var spilled = (ListResult) capped.apply(textContent(text));
+
+            // Then
+            assertThat(spilled.items()).isInstanceOf(SpilledWordList.class).hasSize(expected.items().size());
+            try (Stream<String> words = spilled.stream()) {
+                assertThat(words).containsExactlyElementsOf(expected.items());
+            }
+            assertThat(spilled.items().get(12_345)).isEqualTo(expected.items().get(12_345));
+            assertThat(spilled.getDisplayValue()).isEqualTo(expected.getDisplayValue());
+            try (Stream<Path> files = Files.list(tempDir)) {
+                // Only the list: the state's runs went with it
+                assertThat(files).hasSize(1);
+            }
+        }
+
+        @Test
+        @DisplayName("Should merge more runs than it may read at once")
+        void shouldMergeManyRuns() throws IOException {
+            // Given - a cap of a few words spills hundreds of runs
+            String text = ids(new Random(31), 2_000);
+            var inMemory = new LongWordsRule(6);
+            var capped = new LongWordsRule(inMemory.getTokenizationConfig(), 6, 512, tempDir);
+
+            // When
+            var expected = (ListResult) inMemory.apply(textContent(text));
+            var spilled = (ListResult) capped.apply(textContent(text));
+
+            // Then
+            assertThat(spilled.items()).containsExactlyElementsOf(expected.items());
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertThat(files).hasSize(1);
+            }
+        }
+
+        @Test
+        @DisplayName("Should delete the file of a spilled list on close")
+        void shouldDeleteSpilledListOnClose() throws IOException {
+            // Given
+            var capped = new LongWordsRule(new LongWordsRule().getTokenizationConfig(), 6, 8 * 1024, tempDir);
+            var spilled = (ListResult) capped.apply(textContent(ids(new Random(37), 5_000)));
+
+            // When
+            spilled.close();
+            spilled.close();
+
+            // Then
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertThat(files).isEmpty();
+            }
+        }
+
+        @Test
+        @DisplayName("Should merge spilled results across files in file order")
+        void shouldMergeSpilledResults() throws IOException {
+            // Given
+            var random = new Random(29);
+            String first = ids(random, 5_000);
+            String second = ids(random, 5_000);
+            var inMemory = new LongWordsRule(6);
+            var capped = new LongWordsRule(inMemory.getTokenizationConfig(), 6, 8 * 1024, tempDir);
+
+            // When
+            IndexingRuleResult expected = inMemory.merge(
+                    List.of(inMemory.apply(textContent(first)), inMemory.apply(textContent(second))));
+            List<IndexingRuleResult> perFile =
+                    List.of(capped.apply(textContent(first)), capped.apply(textContent(second)));
+            IndexingRuleResult merged = capped.merge(perFile);
+
+            // Then
+            assertThat(merged).isEqualTo(expected);
+            try (Stream<Path> files = Files.list(tempDir)) {
+                // The per-file lists and the merged one; none of the lists made while merging
+                assertThat(files).hasSize(3);
+            }
+            ((ListResult) merged).close();
+            try (Stream<Path> files = Files.list(tempDir)) {
+                // Only the per-file lists, left for the caller to close
+                assertThat(files).hasSize(2);
+            }
+            IndexingRuleResult.closeAll(perFile);
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertThat(files).isEmpty();
+            }
+        }
+
+        @Test
+        @DisplayName("Should reject a cap below one byte")
+        void shouldRejectEmptyCap() {
+            assertThatThrownBy(() -> new LongWordsRule(6, 0)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    /**
+     * {@code count} random IDs, then the same IDs in upper case and shuffled.
+     */
+    private static String ids(Random random, int count) {
+        var text = new StringBuilder();
+        List<String> ids = random.ints(count, 0, Integer.MAX_VALUE).mapToObj(i -> "id" + Integer.toHexString(i)).toList();
+        ids.forEach(id -> text.append(id).append(' '));
+        random.ints(count, 0, count).forEach(i -> text.append(ids.get(i).toUpperCase()).append(' '));
+        return text.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.bluething.textflow.domain.rules;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static io.github.bluething.textflow.domain.TestFileUtils.textContent;
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("ShingleFingerprintRule Tests")
+class ShingleFingerprintRuleTest {
+
+    @Nested
+    @DisplayName("apply() Method Tests")
+    class ApplyTests {
+
+        @Test
+        @DisplayName("Should give equal signatures to texts differing only in case and spacing")
+        void shouldIgnoreCaseAndSpacing() {
+            // Given
+            var rule = new ShingleFingerprintRule(3, 64);
+
+            // When
+            var first = (MinHashResult) rule.apply(textContent("The quick brown fox jumps over the lazy dog"));
+            var second = (MinHashResult) rule.apply(textContent("the QUICK brown  fox\njumps over The lazy dog"));
+
+            // Then
+            assertThat(first).isEqualTo(second);
+            assertThat(first.shingles()).isEqualTo(7);
+            assertThat(first.similarity(second)).isEqualTo(1.0);
+        }
+
+        @Test
+        @DisplayName("Should estimate the Jaccard similarity of the shingle sets")
+        void shouldEstimateSimilarity() {
+            // Given - 1000 words, then the same words with every 50th replaced
+            var random = new Random(5);
+            String[] words = new String[1000];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = "w" + random.nextInt(100_000);
+            }
+            String original = String.join(" ", words);
+            for (int i = 0; i < words.length; i += 50) {
+                words[i] = "changed" + i;
+            }
+            String edited = String.join(" ", words);
+            String unrelated = String.join(" ", random.ints(1000, 0, 100_000).mapToObj(i -> "w" + i).toList());
+            var rule = new ShingleFingerprintRule(4, 256);
+
+            // When
+            var originalSignature = (MinHashResult) rule.apply(textContent(original));
+            var editedSignature = (MinHashResult) rule.apply(textContent(edited));
+            var unrelatedSignature = (MinHashResult) rule.apply(textContent(unrelated));
+
+            // Then - 20 edits touch 80 of 997 shingles, a Jaccard similarity of about 0.85
+            assertThat(originalSignature.similarity(editedSignature)).isCloseTo(0.85, within(0.1));
+            assertThat(originalSignature.similarity(unrelatedSignature)).isLessThan(0.05);
+        }
+
+        @Test
+        @DisplayName("Should hash a text shorter than one shingle as a single shingle")
+        void shouldHashShortText() {
+            // Given
+            var rule = new ShingleFingerprintRule();
+
+            // When
+            var result = (MinHashResult) rule.apply(textContent("Two words"));
+
+            // Then
+            assertThat(result.shingles()).isEqualTo(1);
+            assertThat(result.size()).isEqualTo(ShingleFingerprintRule.DEFAULT_SIGNATURE_SIZE);
+            assertThat(result.similarity((MinHashResult) rule.apply(textContent("two WORDS")))).isEqualTo(1.0);
+        }
+    }
+}
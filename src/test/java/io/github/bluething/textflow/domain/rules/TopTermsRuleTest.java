@@ -0,0 +1,105 @@
+package io.github.bluething.textflow.domain.rules;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static io.github.bluething.textflow.domain.TestFileUtils.textContent;
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("TopTermsRule Tests")
+class TopTermsRuleTest {
+
+    @Nested
+    @DisplayName("apply() Method Tests")
+    class ApplyTests {
+
+        @Test
+        @DisplayName("Should count every occurrence exactly while the vocabulary fits")
+        void shouldCountExactly() {
+            // Given
+            var rule = new TopTermsRule(2, 10);
+
+            // When
+            var result = (TopTermsResult) rule.apply(textContent("the cat and The dog and THE bird"));
+
+            // Then
+            assertThat(result.top()).containsExactly(new TermCount("the", 3, 0), new TermCount("and", 2, 0));
+            assertThat(result.total()).isEqualTo(8);
+        }
+
+        @Test
+        @DisplayName("Should keep heavy hitters within the error bound when counters run out")
+        void shouldBoundErrors() {
+            // Given - a skewed stream over many more terms than counters
+            String text = skewedText(new Random(7), 20_000);
+            Map<String, Long> exact = exactCounts(text);
+            var rule = new TopTermsRule(5, 50);
+
+            // When
+            var result = (TopTermsResult) rule.apply(textContent(text));
+
+            // Then
+            assertThat(result.total()).isEqualTo(20_000);
+            assertThat(result.counters()).allSatisfy(counter -> {
+                long actual = exact.get(counter.term());
+                assertThat(actual).isBetween(counter.guaranteedCount(), counter.count());
+                assertThat(counter.error()).isLessThanOrEqualTo(result.maxError());
+            });
+            assertThat(result.top()).extracting(TermCount::term)
+                    .containsExactly("term0", "term1", "term2", "term3", "term4");
+        }
+    }
+
+    @Nested
+    @DisplayName("merge() Method Tests")
+    class MergeTests {
+
+        @Test
+        @DisplayName("Should merge per-file summaries within the error bound of both")
+        void shouldMergeSummaries() {
+            // Given
+            var random = new Random(11);
+            String first = skewedText(random, 10_000);
+            String second = skewedText(random, 10_000);
+            Map<String, Long> exact = exactCounts(first + " " + second);
+            var rule = new TopTermsRule(5, 50);
+
+            // When
+            var merged = (TopTermsResult) rule.merge(
+                    List.of(rule.apply(textContent(first)), rule.apply(textContent(second))));
+
+            // Then
+            assertThat(merged.total()).isEqualTo(20_000);
+            assertThat(merged.counters()).hasSizeLessThanOrEqualTo(50).allSatisfy(counter ->
+                    assertThat(exact.get(counter.term())).isBetween(counter.guaranteedCount(), counter.count()));
+            assertThat(merged.top()).extracting(TermCount::term)
+                    .containsExactly("term0", "term1", "term2", "term3", "term4");
+        }
+    }
+
+    /**
+     * Terms drawn with probability falling off as 1 / rank.
+     */
+    private static String skewedText(Random random, int words) {
+        var text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            int rank = (int) Math.floor(Math.pow(2000, random.nextDouble())) - 1;
+            text.append("term").append(rank).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static Map<String, Long> exactCounts(String text) {
+        Map<String, Long> counts = new HashMap<>();
+        for (String word : text.trim().split("\\s+")) {
+            counts.merge(word, 1L, Long::sum);
+        }
+        return counts;
+    }
+}
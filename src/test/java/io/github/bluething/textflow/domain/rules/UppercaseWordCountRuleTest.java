@@ -0,0 +1,125 @@
+package io.github.bluething.textflow.domain.rules;
+
+import io.github.bluething.textflow.domain.tokenization.SmartTokenizer;
+import io.github.bluething.textflow.domain.tokenization.TokenKind;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static io.github.bluething.textflow.domain.TestFileUtils.textContent;
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("UppercaseWordCountRule Tests")
+class UppercaseWordCountRuleTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("Distinct Count Tests")
+    class DistinctCountTests {
+
+        @Test
+        @DisplayName("Should count a word reported again by a later window once")
+        void shouldCountRepeatedWordOnce() {
+            // Given
+            var rule = new UppercaseWordCountRule();
+            TokenVisitor visitor = rule.newRepeatingVisitor();
+
+            // When - "Alpha" once per window, as windowed tokenization reports it
+            visitor.onToken("Alpha beta", 0, 5, TokenKind.WORD);
+            visitor.onToken("beta Alpha Gamma", 5, 10, TokenKind.WORD);
+            visitor.onToken("beta Alpha Gamma", 11, 16, TokenKind.WORD);
+
+            // Then
+            assertThat(visitor.finish()).isEqualTo(new CountResult(2));
+        }
+
+        @Test
+        @DisplayName("Should count deduped tokens as they arrive")
+        void shouldCountDedupedTokens() {
+            // Given
+            var rule = new UppercaseWordCountRule();
+            TokenVisitor visitor = rule.newVisitor();
+
+            // When
+            visitor.onToken("Alpha beta Gamma", 0, 5, TokenKind.WORD);
+            visitor.onToken("Alpha beta Gamma", 6, 10, TokenKind.WORD);
+            visitor.onToken("Alpha beta Gamma", 11, 16, TokenKind.WORD);
+
+            // Then
+            assertThat(visitor.finish()).isEqualTo(new CountResult(2));
+        }
+
+        @Test
+        @DisplayName("Should keep case apart when counting")
+        void shouldKeepCaseApart() {
+            // Given
+            var rule = new UppercaseWordCountRule();
+
+            // When
+            var result = rule.apply(textContent("Alpha ALPHA alpha Alpha Beta"));
+
+            // Then
+            assertThat(result).isEqualTo(new CountResult(3));
+        }
+    }
+
+    @Nested
+    @DisplayName("Memory Cap Tests")
+    class MemoryCapTests {
+
+        @Test
+        @DisplayName("Should count the same past the cap and leave no files behind")
+        void shouldSpillAndCountTheSame() throws IOException {
+            // Given - 5k distinct capitalized IDs, each repeated
+            var text = new StringBuilder();
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < 5_000; i++) {
+                    text.append("Id").append(Integer.toHexString(i * 7919)).append(' ');
+                }
+            }
+            var inMemory = new UppercaseWordCountRule();
+            var capped = new UppercaseWordCountRule(inMemory.getTokenizationConfig(), 8 * 1024, tempDir);
+
+            // When - every occurrence reported, as windows of a large file may
+            var expected = inMemory.apply(textContent(text.toString()));
+            TokenVisitor visitor = capped.newRepeatingVisitor();
+            new SmartTokenizer(capped.getTokenizationConfig()).tokenize(text, visitor::onToken);
+            var spilled = visitor.finish();
+
+            // Then
+            assertThat(spilled).isEqualTo(expected).isEqualTo(new CountResult(5_000));
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertThat(files).isEmpty();
+            }
+        }
+
+        @Test
+        @DisplayName("Should sum counts across documents when merged")
+        void shouldSumAcrossDocuments() {
+            // Given
+            var rule = new UppercaseWordCountRule(1);
+
+            // When
+            var merged = rule.merge(
+                    List.of(rule.apply(textContent("Alpha Beta")), rule.apply(textContent("Alpha Gamma Delta"))));
+
+            // Then
+            assertThat(merged).isEqualTo(new CountResult(5));
+        }
+
+        @Test
+        @DisplayName("Should reject a cap below one byte")
+        void shouldRejectEmptyCap() {
+            assertThatThrownBy(() -> new UppercaseWordCountRule(0)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
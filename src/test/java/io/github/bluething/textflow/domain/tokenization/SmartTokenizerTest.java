@@ -0,0 +1,536 @@
+package io.github.bluething.textflow.domain.tokenization;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@DisplayName("SmartTokenizer Tests")
+class SmartTokenizerTest {
+
+    static final List<String> SAMPLES = List.of(
+            "Hello World",
+            "Contact john.doe@example.com or jane_smith+tag@mail.example.co.uk today.",
+            "Visit https://www.example.com/path?query=1&x=y#frag, or http://test.org.",
+            "Pi is 3.14159 and a million is 1,000,000.00 while 1.2.3x is odd.",
+            "The state-of-the-art well-known co-op re-entry x-ray",
+            "-leading trailing- double--hyphen a-b c-d-e_f-9",
+            "a@b@c.com x.@y.io .john@example.org user@host. user@host.c user@host.com|",
+            "email@domain.c|om email@domain.co|m tail@x.a|b| bar@baz.qu|x",
+            "http://a.b https://x.y.z/ http://.a.b http://a..b http://a.b. http://a-.b_-c",
+            "xhttp://example.com http://example.com/over/there?name=ferret#nose!",
+            "https://example.com/(parens)* http://example.com/a_b~c:d@e!f$g&h'i",
+            "12abc abc12 1.5x 1,2,3 1.2.3.4.5 9. 9.a 1..2 1,,2 _1_ 1_000",
+            "café naïve résumé éx á _́x x́_ 1́ ́x",
+            "中文 text 🌍 emoji 𝔘𝔫𝔦𝔠𝔬𝔡𝔢 a𝅧b word𝅧 ٣٤ digits",
+            "UPPER lower MiXeD CamelCase snake_case SCREAMING_SNAKE",
+            "   \t\n  ",
+            "line one\nline two\r\nline\tthree",
+            "ab-cd@ef.gh foo-bar@baz-qux.com a-b@c-d.e-f.gh",
+            "look at https://a.b-c.de/x-y-z and x-y-z@a.bc and 4-5-6",
+            "%%%@%%%.%% +a@b.cc _@_.__ a_b@c_d.ef 0@0.00 a@0.aa"
+    );
+
+    static Stream<TokenizationConfig> allConfigs() {
+        List<TokenizationConfig> configs = new ArrayList<>();
+        for (var hyphenHandling : TokenizationConfig.HyphenHandling.values()) {
+            for (int flags = 0; flags < 8; flags++) {
+                for (int minWordLength : new int[]{0, 1, 3}) {
+                    configs.add(new TokenizationConfig.Builder()
+                            .withHyphenHandling(hyphenHandling)
+                            .withPreserveEmails((flags & 1) != 0)
+                            .withPreserveUrls((flags & 2) != 0)
+                            .withPreserveNumbers((flags & 4) != 0)
+                            .withMinWordLength(minWordLength)
+                            .build());
+                }
+            }
+        }
+        return configs.stream();
+    }
+
+    static Stream<Arguments> configsAndSamples() {
+        return allConfigs().flatMap(config -> SAMPLES.stream().map(sample -> Arguments.of(config, sample)));
+    }
+
+    @Nested
+    @DisplayName("Equivalence with the regex tokenizer")
+    class EquivalenceTests {
+
+        @ParameterizedTest
+        @MethodSource("io.github.bluething.textflow.domain.tokenization.SmartTokenizerTest#configsAndSamples")
+        @DisplayName("Should produce the same tokens as the regex tokenizer for sample text")
+        void shouldMatchRegexTokenizerOnSamples(TokenizationConfig config, String sample) {
+            // When
+            List<String> actual = new SmartTokenizer(config).tokenize(sample);
+
+            // Then
+            assertThat(actual).containsExactlyElementsOf(new RegexSmartTokenizer(config).tokenize(sample));
+        }
+
+        @ParameterizedTest
+        @MethodSource("io.github.bluething.textflow.domain.tokenization.SmartTokenizerTest#allConfigs")
+        @DisplayName("Should produce the same tokens as the regex tokenizer for random text")
+        void shouldMatchRegexTokenizerOnRandomText(TokenizationConfig config) {
+            // Given - an alphabet dense in the characters the recognisers care about
+            String alphabet = "aZh_09.,-@|%+:/?#&=~!'() \t\né́̀ß٣";
+            String[] fragments = {"http://", "https://", "a.b", "x@y.com", ".co", "-", "@", "1,2", "𝅧"};
+            var random = new Random(42);
+            var tokenizer = new SmartTokenizer(config);
+            var reference = new RegexSmartTokenizer(config);
+
+            for (int round = 0; round < 300; round++) {
+                var text = new StringBuilder();
+                int length = 1 + random.nextInt(40);
+                while (text.length() < length) {
+                    if (random.nextInt(5) == 0) {
+                        text.append(fragments[random.nextInt(fragments.length)]);
+                    } else {
+                        text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                    }
+                }
+                String sample = text.toString();
+
+                // When & Then
+                assertThat(tokenizer.tokenize(sample))
+                        .as("tokens of \"%s\"", sample)
+                        .containsExactlyElementsOf(reference.tokenize(sample));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Span API Tests")
+    class SpanApiTests {
+
+        @ParameterizedTest
+        @MethodSource("io.github.bluething.textflow.domain.tokenization.SmartTokenizerTest#configsAndSamples")
+        @DisplayName("Should report the list tokens as spans in the same order")
+        void shouldReportDistinctTokensAsSpans(TokenizationConfig config, String sample) {
+            // Given
+            var tokenizer = new SmartTokenizer(config);
+            List<String> spans = new ArrayList<>();
+
+            // When
+            tokenizer.tokenizeDistinct(sample, (text, start, end, kind) -> spans.add(text.subSequence(start, end).toString()));
+
+            // Then
+            assertThat(spans).containsExactlyElementsOf(tokenizer.tokenize(sample));
+        }
+
+        @Test
+        @DisplayName("Should report every occurrence with its kind in document order")
+        void shouldReportEveryOccurrence() {
+            // Given
+            var tokenizer = new SmartTokenizer(TokenizationConfig.defaultConfig());
+            List<String> spans = new ArrayList<>();
+
+            // When
+            tokenizer.tokenize("go 42 go x@y.io", (text, start, end, kind) ->
+                    spans.add(kind + ":" + text.subSequence(start, end)));
+
+            // Then
+            assertThat(spans).containsExactly(
+                    "WORD:go", "NUMBER:42", "WORD:42", "WORD:go", "WORD:x", "EMAIL:x@y.io", "WORD:y", "WORD:io");
+        }
+    }
+
+    @Nested
+    @DisplayName("UTF-8 Byte Tests")
+    class Utf8ByteTests {
+
+        @ParameterizedTest
+        @MethodSource("io.github.bluething.textflow.domain.tokenization.SmartTokenizerTest#configsAndSamples")
+        @DisplayName("Should tokenize UTF-8 bytes like the decoded text")
+        void shouldTokenizeBytesLikeDecodedText(TokenizationConfig config, String sample) {
+            // Given
+            var tokenizer = new SmartTokenizer(config);
+            ByteBuffer bytes = ByteBuffer.wrap(sample.getBytes(StandardCharsets.UTF_8));
+
+            // When
+            List<String> tokens = tokenizer.tokenizeText(bytes).toList();
+
+            // Then
+            assertThat(tokens).containsExactlyElementsOf(tokenizer.tokenize(sample));
+        }
+
+        @Test
+        @DisplayName("Should treat malformed UTF-8 the way decoding does")
+        void shouldHandleMalformedBytes() {
+            // Given - random bytes mixing ASCII, marks, letters and broken sequences
+            byte[][] pieces = {
+                    "a".getBytes(StandardCharsets.UTF_8), "Z_9".getBytes(StandardCharsets.UTF_8),
+                    " ".getBytes(StandardCharsets.UTF_8), "-".getBytes(StandardCharsets.UTF_8),
+                    "x@y.io".getBytes(StandardCharsets.UTF_8), "http://a.b".getBytes(StandardCharsets.UTF_8),
+                    "\u0301".getBytes(StandardCharsets.UTF_8), "é".getBytes(StandardCharsets.UTF_8),
+                    "𝅧".getBytes(StandardCharsets.UTF_8), "𝔘".getBytes(StandardCharsets.UTF_8),
+                    {(byte) 0xC3}, {(byte) 0x81}, {(byte) 0xE0, (byte) 0x80, (byte) 0x80},
+                    {(byte) 0xED, (byte) 0xA0, (byte) 0x80}, {(byte) 0xF4, (byte) 0x90}, {(byte) 0xCC}
+            };
+            var tokenizer = new SmartTokenizer(TokenizationConfig.defaultConfig());
+            var random = new Random(7);
+
+            for (int round = 0; round < 2000; round++) {
+                var out = new ByteArrayOutputStream();
+                int count = 1 + random.nextInt(12);
+                for (int i = 0; i < count; i++) {
+                    out.writeBytes(pieces[random.nextInt(pieces.length)]);
+                }
+                byte[] bytes = out.toByteArray();
+                String decoded = new String(bytes, StandardCharsets.UTF_8);
+
+                // When & Then
+                assertThat(tokenizer.tokenizeText(ByteBuffer.wrap(bytes)).toList())
+                        .as("tokens of \"%s\"", decoded)
+                        .containsExactlyElementsOf(tokenizer.tokenize(decoded));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Parallel Tokenization Tests")
+    class ParallelTokenizationTests {
+
+        @ParameterizedTest
+        @MethodSource("io.github.bluething.textflow.domain.tokenization.SmartTokenizerTest#allConfigs")
+        @DisplayName("Should give the sequential result for any number of chunks")
+        void shouldMatchSequentialTokenization(TokenizationConfig config) {
+            // Given - samples run together, so chunks are cut next to emails, URLs and hyphens
+            var tokenizer = new SmartTokenizer(config);
+            var random = new Random(13);
+
+            try (var pool = new ForkJoinPool(4)) {
+                for (int round = 0; round < 10; round++) {
+                    var builder = new StringBuilder();
+                    for (int i = 0; i < 12; i++) {
+                        builder.append(SAMPLES.get(random.nextInt(SAMPLES.size())));
+                    }
+                    String text = builder.toString();
+                    var utf8 = new Utf8Text(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+                    int chunks = 2 + random.nextInt(30);
+
+                    // When & Then
+                    assertThat(tokenizer.tokenizeText(text, chunks, pool).toList())
+                            .containsExactlyElementsOf(tokenizer.tokenize(text));
+                    assertThat(tokenizer.tokenizeText(utf8, chunks, pool).toList())
+                            .containsExactlyElementsOf(tokenizer.tokenize(text));
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Should tokenize text without sync points as one chunk")
+        void shouldHandleTextWithoutSyncPoints() {
+            // Given
+            var tokenizer = new SmartTokenizer(TokenizationConfig.defaultConfig());
+            String text = "a-b-c@d.ef,1.2,https://x.y/z|".repeat(50);
+
+            try (var pool = new ForkJoinPool(4)) {
+                // When
+                List<String> tokens = tokenizer.tokenizeText(text, 8, pool).toList();
+
+                // Then
+                assertThat(tokens).containsExactlyElementsOf(tokenizer.tokenize(text));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Segment Window Tests")
+    class SegmentWindowTests {
+
+        @ParameterizedTest
+        @MethodSource("io.github.bluething.textflow.domain.tokenization.SmartTokenizerTest#allConfigs")
+        @DisplayName("Should report the same tokens whatever the window size")
+        void shouldTokenizeWindowsLikeWholeText(TokenizationConfig config) {
+            // Given
+            var tokenizer = new SmartTokenizer(config);
+            var random = new Random(19);
+
+            for (int round = 0; round < 10; round++) {
+                var builder = new StringBuilder();
+                for (int i = 0; i < 8; i++) {
+                    builder.append(SAMPLES.get(random.nextInt(SAMPLES.size()))).append(' ');
+                }
+                byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+                var whole = new Utf8Text(ByteBuffer.wrap(bytes));
+                List<String> expected = new ArrayList<>();
+                Set<String> expectedDistinct = new HashSet<>();
+                tokenizer.tokenizeDistinct(whole,
+                        (source, start, end, kind) -> expectedDistinct.add(source.subSequence(start, end).toString()),
+                        (source, start, end, kind) -> expected.add(kind + ":" + source.subSequence(start, end)));
+
+                // When
+                List<String> tokens = new ArrayList<>();
+                List<String> distinct = new ArrayList<>();
+                tokenizer.tokenizeDistinct(MemorySegment.ofArray(bytes), 64 + random.nextInt(200),
+                        (source, start, end, kind) -> distinct.add(source.subSequence(start, end).toString()),
+                        (source, start, end, kind) -> tokens.add(kind + ":" + source.subSequence(start, end)));
+
+                // Then
+                assertThat(tokens).containsExactlyElementsOf(expected);
+                // Deduped per window, so a later window may report a token again
+                assertThat(new HashSet<>(distinct)).isEqualTo(expectedDistinct);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Session Tests")
+    class SessionTests {
+
+        @ParameterizedTest
+        @MethodSource("io.github.bluething.textflow.domain.tokenization.SmartTokenizerTest#allConfigs")
+        @DisplayName("Should report the same tokens whatever the chunk sizes")
+        void shouldTokenizeChunksLikeWholeText(TokenizationConfig config) {
+            // Given
+            var tokenizer = new SmartTokenizer(config);
+            var random = new Random(17);
+
+            for (int round = 0; round < 10; round++) {
+                var builder = new StringBuilder();
+                for (int i = 0; i < 8; i++) {
+                    builder.append(SAMPLES.get(random.nextInt(SAMPLES.size())));
+                }
+                String text = builder.toString();
+                List<String> expected = new ArrayList<>();
+                tokenizer.tokenize(text, (source, start, end, kind) ->
+                        expected.add(kind + ":" + source.subSequence(start, end)));
+
+                // When
+                List<String> tokens = new ArrayList<>();
+                var session = tokenizer.openSession((source, start, end, kind) ->
+                        tokens.add(kind + ":" + source.subSequence(start, end)));
+                for (int fed = 0; fed < text.length(); ) {
+                    int next = Math.min(text.length(), fed + 1 + random.nextInt(40));
+                    session.feed(CharBuffer.wrap(text, fed, next));
+                    fed = next;
+                }
+                session.finish();
+
+                // Then
+                assertThat(tokens).containsExactlyElementsOf(expected);
+            }
+        }
+
+        @ParameterizedTest
+        @MethodSource("io.github.bluething.textflow.domain.tokenization.SmartTokenizerTest#allConfigs")
+        @DisplayName("Should report the distinct tokens of the whole text, deduped per segment")
+        void shouldTokenizeDistinctChunksLikeWholeText(TokenizationConfig config) {
+            // Given
+            var tokenizer = new SmartTokenizer(config);
+            var random = new Random(23);
+
+            for (int round = 0; round < 10; round++) {
+                var builder = new StringBuilder();
+                for (int i = 0; i < 8; i++) {
+                    builder.append(SAMPLES.get(random.nextInt(SAMPLES.size()))).append(' ');
+                }
+                String text = builder.toString();
+                Set<String> expected = new HashSet<>();
+                List<String> expectedOccurrences = new ArrayList<>();
+                tokenizer.tokenizeDistinct(text,
+                        (source, start, end, kind) -> expected.add(source.subSequence(start, end).toString()),
+                        (source, start, end, kind) -> expectedOccurrences.add(kind + ":" + source.subSequence(start, end)));
+
+                // When
+                List<String> distinct = new ArrayList<>();
+                List<String> occurrences = new ArrayList<>();
+                var session = tokenizer.openDistinctSession(
+                        (source, start, end, kind) -> distinct.add(source.subSequence(start, end).toString()),
+                        (source, start, end, kind) -> occurrences.add(kind + ":" + source.subSequence(start, end)));
+                for (int fed = 0; fed < text.length(); ) {
+                    int next = Math.min(text.length(), fed + 1 + random.nextInt(40));
+                    session.feed(CharBuffer.wrap(text, fed, next));
+                    fed = next;
+                }
+                session.finish();
+
+                // Then
+                // A segment may report a token again, under the kind it has there
+                assertThat(new HashSet<>(distinct)).isEqualTo(expected);
+                assertThat(occurrences).containsExactlyElementsOf(expectedOccurrences);
+            }
+        }
+
+        @Test
+        @DisplayName("Should cut a run without sync points rather than hold it all")
+        void shouldCutLongRunWithoutSyncPoint() {
+            // Given
+            String text = "a".repeat(TokenizerSession.MAX_UNSYNCED + 4096);
+            List<Integer> lengths = new ArrayList<>();
+            var session = new SmartTokenizer(TokenizationConfig.defaultConfig())
+                    .openSession((source, start, end, kind) -> lengths.add(end - start));
+
+            // When
+            for (int fed = 0; fed < text.length(); fed += 4096) {
+                session.feed(CharBuffer.wrap(text, fed, Math.min(text.length(), fed + 4096)));
+            }
+            int reportedBeforeFinish = lengths.size();
+            session.finish();
+
+            // Then
+            assertThat(reportedBeforeFinish).isOne();
+            assertThat(lengths.stream().mapToInt(Integer::intValue).sum()).isEqualTo(text.length());
+        }
+
+        @Test
+        @DisplayName("Should cut a run ending in a surrogate pair where the lexed text ends")
+        void shouldCutRunBeforeSurrogatePair() {
+            // Given - a run with no sync point, whose first chunk ends between the halves of a pair
+            String run = "a".repeat(TokenizerSession.MAX_UNSYNCED);
+            String rest = "\uD835\uDC00bc tail";
+            var lexed = new StringBuilder();
+            var session = new TokenizerSession((text, start, end) -> {
+                // Each segment must end at a sync point or at the end of the text
+                assertThat(end == text.length() || TokenLexer.isSyncPoint(text.charAt(end))).isTrue();
+                lexed.append(text, start, end);
+            });
+
+            // When
+            session.feed(CharBuffer.wrap(run + rest.charAt(0)));
+            session.feed(CharBuffer.wrap(rest.substring(1)));
+            session.finish();
+
+            // Then
+            assertThat(lexed.toString()).isEqualTo(run + rest);
+        }
+
+        @Test
+        @DisplayName("Should not accept chunks after finishing")
+        void shouldRejectFeedAfterFinish() {
+            // Given
+            var session = new SmartTokenizer(TokenizationConfig.defaultConfig())
+                    .openSession((source, start, end, kind) -> { });
+            session.feed(CharBuffer.wrap("some text"));
+            session.finish();
+
+            // When & Then
+            assertThatThrownBy(() -> session.feed(CharBuffer.wrap("more")))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Vector Scan Tests")
+    class VectorScanTests {
+
+        @ParameterizedTest
+        @MethodSource("io.github.bluething.textflow.domain.tokenization.SmartTokenizerTest#allConfigs")
+        @DisplayName("Should find the same tokens as the scalar scan")
+        void shouldMatchScalarScan(TokenizationConfig config) {
+            assumeTrue(TokenLexer.isVectorScanSupported(), "jdk.incubator.vector is not available");
+
+            // Given - texts long enough to span several blocks and end in a partial one
+            var vector = new TokenLexer(config, true);
+            var scalar = new TokenLexer(config, false);
+            var random = new Random(11);
+
+            for (int round = 0; round < 20; round++) {
+                var builder = new StringBuilder();
+                while (builder.length() < 64 * 5 + random.nextInt(64)) {
+                    builder.append(SAMPLES.get(random.nextInt(SAMPLES.size()))).append(' ');
+                }
+                String text = builder.toString();
+                byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+                ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length).put(utf8).flip();
+
+                // When & Then
+                assertThat(lex(vector, text)).isEqualTo(lex(scalar, text));
+                assertThat(lex(vector, new Utf8Text(ByteBuffer.wrap(utf8))))
+                        .isEqualTo(lex(scalar, new Utf8Text(ByteBuffer.wrap(utf8))));
+                assertThat(lex(vector, new Utf8Text(direct))).isEqualTo(lex(scalar, new Utf8Text(direct)));
+            }
+        }
+
+        private static List<String> lex(TokenLexer lexer, CharSequence text) {
+            List<String> tokens = new ArrayList<>();
+            lexer.lex(text, (source, start, end, kind) ->
+                    tokens.add(kind + ":" + start + ":" + source.subSequence(start, end)));
+            return tokens;
+        }
+    }
+
+    @Nested
+    @DisplayName("Compiled Plan Tests")
+    class CompiledPlanTests {
+
+        @Test
+        @DisplayName("Should share one compiled lexer between tokenizers with equal configs")
+        void shouldShareCompiledLexer() {
+            // Given
+            var first = new SmartTokenizer(new TokenizationConfig.Builder().withPreserveUrls(true).build());
+            var second = new SmartTokenizer(new TokenizationConfig.Builder().withPreserveUrls(true).build());
+            var other = new SmartTokenizer(new TokenizationConfig.Builder().withPreserveUrls(false).build());
+
+            // When & Then
+            assertThat(second.lexer()).isSameAs(first.lexer());
+            assertThat(other.lexer()).isNotSameAs(first.lexer());
+        }
+    }
+
+    @Nested
+    @DisplayName("tokenize() Method Tests")
+    class TokenizeTests {
+
+        @ParameterizedTest
+        @NullAndEmptySource
+        @DisplayName("Should return no tokens for null or empty text")
+        void shouldReturnNoTokensForNullOrEmptyText(String text) {
+            // When
+            List<String> tokens = new SmartTokenizer(TokenizationConfig.defaultConfig()).tokenize(text);
+
+            // Then
+            assertThat(tokens).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should list emails, URLs, numbers, hyphenated words and words in that order")
+        void shouldGroupTokensByKind() {
+            // Given
+            String text = "Mail bob@example.com about state-of-the-art 42 at https://example.com";
+
+            // When
+            List<String> tokens = new SmartTokenizer(TokenizationConfig.defaultConfig()).tokenize(text);
+
+            // Then
+            assertThat(tokens).startsWith("bob@example.com", "https://example.com", "42", "state-of-the-art");
+            assertThat(tokens).contains("Mail", "bob", "example", "com", "state", "art", "https");
+            assertThat(tokens).doesNotHaveDuplicates();
+        }
+
+        @Test
+        @DisplayName("Should split hyphenated words into parts when configured")
+        void shouldSplitHyphenatedWords() {
+            // Given
+            var config = new TokenizationConfig.Builder()
+                    .withHyphenHandling(TokenizationConfig.HyphenHandling.BOTH)
+                    .build();
+
+            // When
+            List<String> tokens = new SmartTokenizer(config).tokenize("well-known");
+
+            // Then
+            assertThat(tokens).containsExactly("well-known", "well", "known");
+        }
+    }
+}